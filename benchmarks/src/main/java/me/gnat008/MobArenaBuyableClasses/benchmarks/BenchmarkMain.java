@@ -0,0 +1,34 @@
+package me.gnat008.MobArenaBuyableClasses.benchmarks;
+
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.File;
+
+/*
+ * Runs the benchmarks and saves the results as JSON under results/, named
+ * after the plugin version being measured, so runs can be compared across
+ * versions. Any JMH command line options are passed through, e.g.
+ *
+ *   java -jar target/benchmarks.jar YAMLNodeBenchmark -f 2
+ */
+public class BenchmarkMain {
+
+    public static void main(String[] args) throws Exception {
+        String version = BenchmarkMain.class.getPackage().getImplementationVersion();
+        if (version == null) {
+            version = "dev";
+        }
+
+        File results = new File("results");
+        results.mkdirs();
+
+        new Runner(new OptionsBuilder()
+                .parent(new CommandLineOptions(args))
+                .resultFormat(ResultFormatType.JSON)
+                .result(new File(results, "jmh-" + version + ".json").getPath())
+                .build()).run();
+    }
+}
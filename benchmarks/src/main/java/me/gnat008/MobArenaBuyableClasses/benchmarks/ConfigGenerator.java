@@ -0,0 +1,110 @@
+package me.gnat008.MobArenaBuyableClasses.benchmarks;
+
+import me.gnat008.MobArenaBuyableClasses.util.YAMLFormat;
+import me.gnat008.MobArenaBuyableClasses.util.YAMLProcessor;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.*;
+
+/*
+ * Generates realistic, deterministic configuration trees: a "classes"
+ * section with prices, discounts, item lists and price tiers, and a
+ * "players" section with per-player owned classes and stats.
+ */
+public final class ConfigGenerator {
+
+    private static final String[] ITEMS = {"iron_sword", "bow", "arrow:64", "iron_chestplate", "bread:16", "shield"};
+
+    private ConfigGenerator() {
+    }
+
+    public static Map<String, Object> generate(int classCount, int playerCount) {
+        Random random = new Random(classCount * 31L + playerCount);
+        Map<String, Object> root = new LinkedHashMap<String, Object>();
+
+        Map<String, Object> classes = new LinkedHashMap<String, Object>();
+        for (int i = 0; i < classCount; i++) {
+            classes.put(className(i), generateClass(random));
+        }
+
+        Map<String, Object> players = new LinkedHashMap<String, Object>();
+        for (int i = 0; i < playerCount; i++) {
+            players.put(playerId(i).toString(), generatePlayer(random, classCount));
+        }
+
+        root.put("classes", classes);
+        root.put("players", players);
+        return root;
+    }
+
+    // Writes a generated tree to a file, as the plugin would save it.
+    public static File write(Map<String, Object> tree, File file) throws IOException {
+        YAMLProcessor processor = new YAMLProcessor(file, false, YAMLFormat.EXTENDED);
+        processor.replaceRoot(tree);
+        processor.write(processor.dump());
+        return file;
+    }
+
+    public static String className(int index) {
+        return "class" + index;
+    }
+
+    public static UUID playerId(int index) {
+        return new UUID(0x4d41424300000000L, index);
+    }
+
+    private static Map<String, Object> generateClass(Random random) {
+        Map<String, Object> node = new LinkedHashMap<String, Object>();
+        node.put("price", 50 + random.nextInt(20) * 50);
+        node.put("currency", random.nextBoolean() ? "economy" : "EMERALD");
+
+        Map<String, Object> discounts = new LinkedHashMap<String, Object>();
+        discounts.put("vip", 0.1);
+        discounts.put("mvp", 0.25);
+        node.put("discounts", discounts);
+
+        int itemCount = 4 + random.nextInt(8);
+        List<Object> items = new ArrayList<Object>(itemCount);
+        for (int i = 0; i < itemCount; i++) {
+            items.add(ITEMS[random.nextInt(ITEMS.length)]);
+        }
+        node.put("items", items);
+
+        List<Object> waves = new ArrayList<Object>();
+        for (int i = 1; i <= 5; i++) {
+            waves.add(i * 5 + random.nextInt(5));
+        }
+        node.put("unlock-waves", waves);
+
+        List<Object> tiers = new ArrayList<Object>();
+        for (int i = 0; i < 3; i++) {
+            Map<String, Object> tier = new LinkedHashMap<String, Object>();
+            tier.put("name", "tier" + i);
+            tier.put("price", (i + 1) * 100);
+            tiers.add(tier);
+        }
+        node.put("tiers", tiers);
+
+        return node;
+    }
+
+    private static Map<String, Object> generatePlayer(Random random, int classCount) {
+        Map<String, Object> node = new LinkedHashMap<String, Object>();
+
+        int ownedCount = random.nextInt(6);
+        List<Object> owned = new ArrayList<Object>(ownedCount);
+        for (int i = 0; i < ownedCount; i++) {
+            owned.add(className(random.nextInt(classCount)));
+        }
+        node.put("classes", owned);
+
+        Map<String, Object> stats = new LinkedHashMap<String, Object>();
+        stats.put("kills", random.nextInt(10000));
+        stats.put("deaths", random.nextInt(1000));
+        stats.put("waves", random.nextInt(500));
+        node.put("stats", stats);
+
+        return node;
+    }
+}
@@ -0,0 +1,114 @@
+package me.gnat008.MobArenaBuyableClasses.benchmarks;
+
+import me.gnat008.MobArenaBuyableClasses.economy.EconomyBackend;
+import me.gnat008.MobArenaBuyableClasses.economy.EconomyExecutor;
+import me.gnat008.MobArenaBuyableClasses.economy.FakeEconomyBackend;
+import me.gnat008.MobArenaBuyableClasses.ownership.NoOpOwnershipBackend;
+import me.gnat008.MobArenaBuyableClasses.ownership.OwnershipStore;
+import me.gnat008.MobArenaBuyableClasses.purchase.PurchaseProcessor;
+import me.gnat008.MobArenaBuyableClasses.purchase.PurchaseResult;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.UUID;
+import java.util.concurrent.*;
+import java.util.function.BiConsumer;
+
+/*
+ * Load-tests the off-main-thread purchase path against the fake economy.
+ * Each invocation submits a burst of purchases the way the main thread
+ * would and waits until every result has been handed back to a stand-in
+ * main thread. With latency, this shows how far batching and the worker
+ * pool hide a slow economy. Afterwards every player's balance must match
+ * what they own.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class EconomyExecutorBenchmark {
+
+    private static final int PLAYERS = 500;
+    private static final int BURST = 256;
+    private static final double STARTING_BALANCE = 1e9;
+
+    @Param({"0", "2"})
+    public int latencyMillis;
+
+    @Param({"1", "4"})
+    public int threads;
+
+    private UUID[] players;
+    private OwnershipStore ownership;
+    private FakeEconomyBackend economy;
+    private PurchaseProcessor processor;
+    private ExecutorService mainThread;
+    private EconomyExecutor executor;
+
+    private long sequence;
+
+    @Setup
+    public void setup() {
+        players = new UUID[PLAYERS];
+        ownership = new OwnershipStore(new NoOpOwnershipBackend());
+        economy = new FakeEconomyBackend(STARTING_BALANCE, latencyMillis);
+        processor = new PurchaseProcessor(ownership, economy);
+
+        mainThread = Executors.newSingleThreadExecutor();
+        executor = new EconomyExecutor(threads, 60000, 64, 1 << 20, mainThread);
+
+        for (int i = 0; i < PLAYERS; i++) {
+            players[i] = UUID.randomUUID();
+            ownership.load(players[i]).join();
+        }
+    }
+
+    @Benchmark
+    public int burst() throws InterruptedException {
+        final CountDownLatch done = new CountDownLatch(BURST);
+        final int[] successes = new int[1];
+
+        for (int i = 0; i < BURST; i++) {
+            long n = sequence++;
+            final UUID player = players[(int) (n % PLAYERS)];
+            final String classId = "class" + n / PLAYERS;
+
+            executor.submit(economy, new EconomyExecutor.Task<PurchaseResult>() {
+                @Override
+                public PurchaseResult run(EconomyBackend backend) {
+                    return processor.purchase(player, classId, 1, backend);
+                }
+            }).whenComplete(new BiConsumer<PurchaseResult, Throwable>() {
+                @Override
+                public void accept(PurchaseResult result, Throwable t) {
+                    // Only the main thread touches this.
+                    if (result == PurchaseResult.SUCCESS) {
+                        successes[0]++;
+                    }
+
+                    done.countDown();
+                }
+            });
+        }
+
+        done.await();
+        return successes[0];
+    }
+
+    @TearDown
+    public void verify() {
+        executor.close();
+        mainThread.shutdown();
+
+        for (UUID player : players) {
+            double expected = STARTING_BALANCE - ownership.getOwned(player).size();
+            if (economy.getBalance(player) != expected) {
+                throw new IllegalStateException("Inconsistent balance for " + player + ": "
+                        + economy.getBalance(player) + ", expected " + expected);
+            }
+        }
+
+        ownership.close();
+    }
+}
@@ -0,0 +1,60 @@
+package me.gnat008.MobArenaBuyableClasses.benchmarks;
+
+import me.gnat008.MobArenaBuyableClasses.util.YAMLFormat;
+import me.gnat008.MobArenaBuyableClasses.util.YAMLProcessor;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.File;
+import java.io.IOException;
+
+/*
+ * Benchmark state holding a generated configuration, both on disk and
+ * loaded into a YAMLProcessor.
+ */
+@State(Scope.Benchmark)
+public class GeneratedConfig {
+
+    @Param({"100", "500"})
+    public int classes;
+
+    @Param({"1000", "5000"})
+    public int players;
+
+    public File file;
+    public byte[] data;
+    public YAMLProcessor processor;
+
+    // Paths of a class and a player in the middle of the file.
+    public String classPath;
+    public String playerPath;
+
+    // Paths of values under them, built here so benchmarks don't measure
+    // the concatenation.
+    public String itemsPath;
+    public String tiersPath;
+    public String killsPath;
+    public String wavesPath;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        file = File.createTempFile("mabc-bench", ".yml");
+        ConfigGenerator.write(ConfigGenerator.generate(classes, players), file);
+
+        processor = new YAMLProcessor(file, false, YAMLFormat.EXTENDED);
+        processor.load();
+        data = processor.readBytes();
+
+        classPath = "classes." + ConfigGenerator.className(classes / 2);
+        playerPath = "players." + ConfigGenerator.playerId(players / 2);
+
+        itemsPath = classPath + ".items";
+        tiersPath = classPath + ".tiers";
+        killsPath = playerPath + ".stats.kills";
+        wavesPath = playerPath + ".stats.waves";
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        file.delete();
+    }
+}
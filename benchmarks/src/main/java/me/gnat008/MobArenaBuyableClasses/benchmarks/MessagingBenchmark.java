@@ -0,0 +1,130 @@
+package me.gnat008.MobArenaBuyableClasses.benchmarks;
+
+import me.gnat008.MobArenaBuyableClasses.messages.Message;
+import me.gnat008.MobArenaBuyableClasses.messages.MessageCatalog;
+import me.gnat008.MobArenaBuyableClasses.messages.Messenger;
+import me.gnat008.MobArenaBuyableClasses.metrics.MetricsRegistry;
+import org.bukkit.ChatColor;
+import org.bukkit.entity.Player;
+import org.openjdk.jmh.annotations.*;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/*
+ * Compares the cost per message of the old printToPlayer, which built the
+ * colour, prefix and text by concatenation on every call, against the
+ * Messenger. "unique" sends every message, so it measures rendering alone;
+ * "wave" sends the same few messages to the same players over and over, as
+ * a wave start does, so most of them are deduplicated or rate limited.
+ * The messengers' clocks advance once per round of players, standing in
+ * for server ticks.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Thread)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MessagingBenchmark {
+
+    private static final int PLAYERS = 64;
+    private static final String[] CLASSES = {"knight", "archer", "tank", "oddjob"};
+
+    private Player[] players;
+    private Messenger unique;
+    private Messenger wave;
+
+    // Not a constant, so the legacy concatenation can't be folded.
+    private double price = 250.0;
+
+    private int sequence;
+    private long sentChars;
+
+    @Setup
+    public void setup() {
+        players = new Player[PLAYERS];
+        for (int i = 0; i < PLAYERS; i++) {
+            players[i] = player(UUID.randomUUID());
+        }
+
+        MessageCatalog catalog = MessageCatalog.defaults();
+        unique = new Messenger(catalog, 0, Integer.MAX_VALUE, 1e12, new MetricsRegistry());
+        wave = new Messenger(catalog, 3000, 5, 1, new MetricsRegistry());
+    }
+
+    @TearDown
+    public void check() {
+        if (sentChars == 0) {
+            throw new IllegalStateException("Nothing was sent");
+        }
+    }
+
+    @Benchmark
+    public void legacy() {
+        int n = sequence++;
+        String classId = CLASSES[n % CLASSES.length];
+        legacyPrint(players[n % PLAYERS], "You unlocked " + classId + " for " + price + ".", false);
+    }
+
+    @Benchmark
+    public boolean unique() {
+        int n = sequence++;
+        if (n % PLAYERS == 0) {
+            unique.tick();
+        }
+
+        return unique.send(players[n % PLAYERS], Message.CLASS_UNLOCKED, CLASSES[n % CLASSES.length], price);
+    }
+
+    @Benchmark
+    public boolean wave() {
+        int n = sequence++;
+        if (n % PLAYERS == 0) {
+            wave.tick();
+        }
+
+        return wave.send(players[n % PLAYERS], Message.INSUFFICIENT_FUNDS, CLASSES[(n / PLAYERS) % 2], price);
+    }
+
+    // The original implementation, kept as the baseline.
+    private static void legacyPrint(Player player, String msg, boolean warn) {
+        String printer = "";
+
+        if (warn) {
+            printer += ChatColor.RED + "";
+        } else {
+            printer += ChatColor.GREEN + "";
+        }
+
+        printer += "[MABuyableClasses] " + msg;
+
+        player.sendMessage(printer);
+    }
+
+    private Player player(final UUID id) {
+        return (Player) Proxy.newProxyInstance(Player.class.getClassLoader(), new Class<?>[]{Player.class}, new InvocationHandler() {
+            @Override
+            public Object invoke(Object proxy, Method method, Object[] args) {
+                String name = method.getName();
+                if (name.equals("sendMessage")) {
+                    sentChars += ((String) args[0]).length();
+                    return null;
+                } else if (name.equals("getUniqueId")) {
+                    return id;
+                } else if (name.equals("isOnline")) {
+                    return true;
+                } else if (name.equals("hashCode")) {
+                    return id.hashCode();
+                } else if (name.equals("equals")) {
+                    return proxy == args[0];
+                }
+
+                throw new UnsupportedOperationException(name);
+            }
+        });
+    }
+}
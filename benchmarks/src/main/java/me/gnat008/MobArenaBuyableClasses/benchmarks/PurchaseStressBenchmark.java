@@ -0,0 +1,90 @@
+package me.gnat008.MobArenaBuyableClasses.benchmarks;
+
+import me.gnat008.MobArenaBuyableClasses.economy.FakeEconomyBackend;
+import me.gnat008.MobArenaBuyableClasses.ownership.NoOpOwnershipBackend;
+import me.gnat008.MobArenaBuyableClasses.ownership.OwnershipStore;
+import me.gnat008.MobArenaBuyableClasses.purchase.PurchaseProcessor;
+import me.gnat008.MobArenaBuyableClasses.purchase.PurchaseResult;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/*
+ * Hammers PurchaseProcessor from many threads. Every purchase is attempted
+ * twice in a row, usually by different threads, so double spends would
+ * show up. After the run, every player's balance must equal their starting
+ * balance minus the prices of exactly the classes they own, and must never
+ * be negative; the trial fails otherwise.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Threads(8)
+@Fork(1)
+public class PurchaseStressBenchmark {
+
+    private static final int PLAYERS = 2000;
+    private static final int CLASSES = 1000;
+    private static final long STARTING_BALANCE = 2000;
+
+    private final AtomicLong sequence = new AtomicLong();
+
+    private UUID[] players;
+    private String[] classes;
+    private OwnershipStore ownership;
+    private FakeEconomyBackend economy;
+    private PurchaseProcessor processor;
+
+    @Setup
+    public void setup() {
+        players = new UUID[PLAYERS];
+        classes = new String[CLASSES];
+        ownership = new OwnershipStore(new NoOpOwnershipBackend());
+        economy = new FakeEconomyBackend(STARTING_BALANCE, 0);
+        processor = new PurchaseProcessor(ownership, economy);
+
+        for (int i = 0; i < PLAYERS; i++) {
+            players[i] = UUID.randomUUID();
+            ownership.load(players[i]).join();
+        }
+
+        for (int i = 0; i < CLASSES; i++) {
+            classes[i] = "class" + i;
+        }
+    }
+
+    @Benchmark
+    public PurchaseResult purchase() {
+        long combo = (sequence.getAndIncrement() >>> 1) % ((long) PLAYERS * CLASSES);
+        int player = (int) (combo % PLAYERS);
+        int clazz = (int) (combo / PLAYERS);
+
+        return processor.purchase(players[player], classes[clazz], priceOf(clazz));
+    }
+
+    @TearDown
+    public void verify() {
+        for (UUID player : players) {
+            long spent = 0;
+            for (String owned : ownership.getOwned(player)) {
+                spent += priceOf(Integer.parseInt(owned.substring("class".length())));
+            }
+
+            long balance = (long) economy.getBalance(player);
+            if (balance < 0 || balance != STARTING_BALANCE - spent) {
+                throw new IllegalStateException("Inconsistent balance for " + player + ": " + balance
+                        + ", expected " + (STARTING_BALANCE - spent));
+            }
+        }
+
+        ownership.close();
+    }
+
+    private static long priceOf(int clazz) {
+        return 1 + clazz % 10;
+    }
+}
@@ -0,0 +1,54 @@
+package me.gnat008.MobArenaBuyableClasses.benchmarks;
+
+import me.gnat008.MobArenaBuyableClasses.util.YAMLFormat;
+import me.gnat008.MobArenaBuyableClasses.util.YAMLProcessor;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/*
+ * Compares what a plugin start pays to load a generated configuration: a
+ * cold parse with SnakeYAML against decoding the binary cache written by a
+ * previous start. Both read the file from disk, as load() does.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class StartupLoadBenchmark {
+
+    private YAMLProcessor parsing;
+    private YAMLProcessor cached;
+
+    @Setup
+    public void setup(GeneratedConfig config) throws IOException {
+        parsing = new YAMLProcessor(config.file, false, YAMLFormat.EXTENDED);
+
+        cached = new YAMLProcessor(config.file, false, YAMLFormat.EXTENDED);
+        cached.setBinaryCache(true);
+
+        // Writes the cache, as the previous start would have.
+        cached.load();
+    }
+
+    @TearDown
+    public void tearDown() {
+        cached.setBinaryCache(false);
+    }
+
+    @Benchmark
+    public Map<String, Object> coldParse() throws IOException {
+        parsing.load();
+        return parsing.getMap();
+    }
+
+    @Benchmark
+    public Map<String, Object> binaryCacheLoad() throws IOException {
+        cached.load();
+        return cached.getMap();
+    }
+}
@@ -0,0 +1,63 @@
+package me.gnat008.MobArenaBuyableClasses.benchmarks;
+
+import me.gnat008.MobArenaBuyableClasses.exceptions.YAMLProcessorException;
+import me.gnat008.MobArenaBuyableClasses.util.YAMLFormat;
+import me.gnat008.MobArenaBuyableClasses.util.YAMLProcessor;
+import me.gnat008.MobArenaBuyableClasses.util.YAMLStreamLoader;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/*
+ * Compares the memory cost of the default loader, which builds SnakeYAML's
+ * object graph and copies its root, with the event-based loader, both for
+ * parsing the whole file and for streaming the players section one player
+ * at a time. Whole-file runs parse bytes already in memory, so nothing but
+ * the loader is measured. Run with "-prof gc" and compare
+ * gc.alloc.rate.norm (bytes allocated per load).
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class StreamingLoadBenchmark {
+
+    private YAMLProcessor tree;
+    private YAMLProcessor streaming;
+    private byte[] data;
+
+    @Setup
+    public void setup(GeneratedConfig config) {
+        data = config.data;
+        tree = new YAMLProcessor(config.file, false, YAMLFormat.EXTENDED);
+
+        streaming = new YAMLProcessor(config.file, false, YAMLFormat.EXTENDED);
+        streaming.setStreaming(true);
+    }
+
+    @Benchmark
+    public Map<String, Object> treeParse() throws YAMLProcessorException {
+        return tree.parse(data);
+    }
+
+    @Benchmark
+    public Map<String, Object> streamingParse() throws YAMLProcessorException {
+        return streaming.parse(data);
+    }
+
+    @Benchmark
+    public void streamPlayers(final Blackhole blackhole) throws IOException, YAMLProcessorException {
+        streaming.streamSections("players", new YAMLStreamLoader.SectionHandler() {
+            @Override
+            public boolean onSection(String key, Object value) {
+                blackhole.consume(value);
+                return true;
+            }
+        });
+    }
+}
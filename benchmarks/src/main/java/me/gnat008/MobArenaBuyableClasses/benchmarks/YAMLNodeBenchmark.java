@@ -0,0 +1,39 @@
+package me.gnat008.MobArenaBuyableClasses.benchmarks;
+
+import me.gnat008.MobArenaBuyableClasses.util.YAMLNode;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/*
+ * Per-call costs of the YAMLNode accessors on a large generated tree: deep
+ * property lookups, list conversions and deep property writes.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class YAMLNodeBenchmark {
+
+    @Benchmark
+    public Object getPropertyDeep(GeneratedConfig config) {
+        return config.processor.getProperty(config.killsPath);
+    }
+
+    @Benchmark
+    public List<String> getStringList(GeneratedConfig config) {
+        return config.processor.getStringList(config.itemsPath, null);
+    }
+
+    @Benchmark
+    public List<YAMLNode> getNodeList(GeneratedConfig config) {
+        return config.processor.getNodeList(config.tiersPath, null);
+    }
+
+    @Benchmark
+    public void setPropertyDeep(GeneratedConfig config) {
+        config.processor.setProperty(config.wavesPath, 42);
+    }
+}
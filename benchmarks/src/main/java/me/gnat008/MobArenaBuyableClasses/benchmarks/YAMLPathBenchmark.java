@@ -0,0 +1,74 @@
+package me.gnat008.MobArenaBuyableClasses.benchmarks;
+
+import me.gnat008.MobArenaBuyableClasses.util.YAMLNode;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/*
+ * Compares the old split-and-walk property lookup against the compiled
+ * path lookup now used by YAMLNode, for a shallow and a 6-level-deep path.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class YAMLPathBenchmark {
+
+    @Param({"settings.currency", "classes.knight.price.groups.vip.amount"})
+    public String path;
+
+    private YAMLNode node;
+
+    @Setup
+    public void setup() {
+        node = new YAMLNode(new LinkedHashMap<String, Object>(), false);
+        node.setProperty("settings.currency", "emerald");
+        node.setProperty("classes.knight.price.groups.vip.amount", 250);
+    }
+
+    @Benchmark
+    public Object legacy() {
+        return legacyGetProperty(node.getMap(), path);
+    }
+
+    @Benchmark
+    public Object compiled() {
+        return node.getProperty(path);
+    }
+
+    // The lookup as YAMLNode implemented it before paths were compiled.
+    @SuppressWarnings("unchecked")
+    private static Object legacyGetProperty(Map<String, Object> root, String path) {
+        if (!path.contains(".")) {
+            return root.get(path);
+        }
+
+        String[] parts = path.split("\\.");
+        Map<String, Object> node = root;
+
+        for (int i = 0; i < parts.length; i++) {
+            Object o = node.get(parts[i]);
+
+            if (o == null) {
+                return null;
+            }
+
+            if (i == parts.length - 1) {
+                return o;
+            }
+
+            try {
+                node = (Map<String, Object>) o;
+            } catch (ClassCastException e) {
+                return null;
+            }
+        }
+
+        return null;
+    }
+}
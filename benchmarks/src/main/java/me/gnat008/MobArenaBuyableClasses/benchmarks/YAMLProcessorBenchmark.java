@@ -0,0 +1,50 @@
+package me.gnat008.MobArenaBuyableClasses.benchmarks;
+
+import me.gnat008.MobArenaBuyableClasses.exceptions.YAMLProcessorException;
+import me.gnat008.MobArenaBuyableClasses.util.YAMLSnapshot;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/*
+ * Whole-file costs of the YAML stack: loading from disk and each of its
+ * phases on their own (reading the bytes, parsing bytes that are already
+ * in memory), building the opt-in read-only snapshot of the loaded tree,
+ * and dumping the tree back to bytes.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class YAMLProcessorBenchmark {
+
+    @Benchmark
+    public Object load(GeneratedConfig config) throws IOException {
+        config.processor.load();
+        return config.processor.getMap();
+    }
+
+    @Benchmark
+    public byte[] read(GeneratedConfig config) throws IOException {
+        return config.processor.readBytes();
+    }
+
+    @Benchmark
+    public Map<String, Object> parse(GeneratedConfig config) throws YAMLProcessorException {
+        return config.processor.parse(config.data);
+    }
+
+    @Benchmark
+    public YAMLSnapshot snapshot(GeneratedConfig config) {
+        config.processor.publishSnapshot();
+        return config.processor.getSnapshot();
+    }
+
+    @Benchmark
+    public byte[] dump(GeneratedConfig config) throws IOException {
+        return config.processor.dump();
+    }
+}
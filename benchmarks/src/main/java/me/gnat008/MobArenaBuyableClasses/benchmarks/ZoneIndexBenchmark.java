@@ -0,0 +1,103 @@
+package me.gnat008.MobArenaBuyableClasses.benchmarks;
+
+import me.gnat008.MobArenaBuyableClasses.zones.PurchaseRegion;
+import me.gnat008.MobArenaBuyableClasses.zones.ZoneIndex;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/*
+ * Compares finding the purchase zone at a block by scanning every region,
+ * as a move listener would without an index, against the chunk buckets
+ * ZoneIndex uses for point lookups. Regions are 8x5x8 lobbies, cuboids or
+ * octagons, spread over a 4000 block square; queried blocks are a mix of
+ * hits and misses.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ZoneIndexBenchmark {
+
+    private static final int QUERIES = 1024;
+
+    @Param({"100", "10000"})
+    public int regions;
+
+    @Param({"cuboid", "polygon"})
+    public String shape;
+
+    private List<PurchaseRegion> all;
+    private ZoneIndex index;
+    private int[] queries;
+    private int next;
+
+    @Setup
+    public void setup() {
+        Random random = new Random(42);
+        all = new ArrayList<PurchaseRegion>(regions);
+
+        for (int i = 0; i < regions; i++) {
+            int x = random.nextInt(4000) - 2000;
+            int z = random.nextInt(4000) - 2000;
+            if (shape.equals("polygon")) {
+                all.add(PurchaseRegion.polygon("zone" + i, "arena", "knight", 60, 64, new int[]{
+                        x + 2, z, x + 5, z, x + 7, z + 2, x + 7, z + 5,
+                        x + 5, z + 7, x + 2, z + 7, x, z + 5, x, z + 2}));
+            } else {
+                all.add(PurchaseRegion.zone("zone" + i, "arena", "knight", x, 60, z, x + 7, 64, z + 7));
+            }
+        }
+
+        index = new ZoneIndex();
+        index.load(all);
+
+        queries = new int[QUERIES * 3];
+        for (int i = 0; i < QUERIES; i++) {
+            if (i % 2 == 0) {
+                PurchaseRegion region = all.get(random.nextInt(regions));
+                queries[i * 3] = region.getMinX() + 3;
+                queries[i * 3 + 1] = 62;
+                queries[i * 3 + 2] = region.getMinZ() + 3;
+            } else {
+                queries[i * 3] = random.nextInt(4000) - 2000;
+                queries[i * 3 + 1] = 62;
+                queries[i * 3 + 2] = random.nextInt(4000) - 2000;
+            }
+        }
+    }
+
+    @Benchmark
+    public PurchaseRegion scan() {
+        int i = nextQuery();
+        int x = queries[i];
+        int y = queries[i + 1];
+        int z = queries[i + 2];
+
+        PurchaseRegion best = null;
+        for (PurchaseRegion region : all) {
+            if (region.contains(x, y, z) && (best == null || region.getVolume() < best.getVolume())) {
+                best = region;
+            }
+        }
+
+        return best;
+    }
+
+    @Benchmark
+    public PurchaseRegion buckets() {
+        int i = nextQuery();
+        return index.getZoneAt("arena", queries[i], queries[i + 1], queries[i + 2]);
+    }
+
+    private int nextQuery() {
+        int i = next;
+        next = (i + 1) % QUERIES;
+        return i * 3;
+    }
+}
@@ -1,17 +1,54 @@
 package me.gnat008.MobArenaBuyableClasses;
 
-import com.sk89q.wepif.PermissionsResolverManager;
+import me.gnat008.MobArenaBuyableClasses.commands.AdminCommand;
+import me.gnat008.MobArenaBuyableClasses.config.ConfigurationChangeListener;
 import me.gnat008.MobArenaBuyableClasses.config.ConfigurationManager;
-import org.bukkit.Bukkit;
+import me.gnat008.MobArenaBuyableClasses.config.ConfigurationWatcher;
+import me.gnat008.MobArenaBuyableClasses.config.PluginSettings;
+import me.gnat008.MobArenaBuyableClasses.economy.EconomyBackend;
+import me.gnat008.MobArenaBuyableClasses.economy.EconomyExecutor;
+import me.gnat008.MobArenaBuyableClasses.economy.FakeEconomyBackend;
+import me.gnat008.MobArenaBuyableClasses.gui.ClassMenu;
+import me.gnat008.MobArenaBuyableClasses.listeners.MenuListener;
+import me.gnat008.MobArenaBuyableClasses.listeners.PlayerListener;
+import me.gnat008.MobArenaBuyableClasses.listeners.ZoneListener;
+import me.gnat008.MobArenaBuyableClasses.logging.Log;
+import me.gnat008.MobArenaBuyableClasses.logging.LogPipeline;
+import me.gnat008.MobArenaBuyableClasses.logging.Logs;
+import me.gnat008.MobArenaBuyableClasses.logging.RotatingFileSink;
+import me.gnat008.MobArenaBuyableClasses.messages.MessageCatalog;
+import me.gnat008.MobArenaBuyableClasses.messages.Messenger;
+import me.gnat008.MobArenaBuyableClasses.metrics.FunctionMetric;
+import me.gnat008.MobArenaBuyableClasses.metrics.MetricsDump;
+import me.gnat008.MobArenaBuyableClasses.metrics.MetricsMBean;
+import me.gnat008.MobArenaBuyableClasses.metrics.MetricsRegistry;
+import me.gnat008.MobArenaBuyableClasses.ownership.FlatFileOwnershipBackend;
+import me.gnat008.MobArenaBuyableClasses.ownership.JournalOwnershipBackend;
+import me.gnat008.MobArenaBuyableClasses.ownership.OwnershipBackend;
+import me.gnat008.MobArenaBuyableClasses.ownership.OwnershipPreloader;
+import me.gnat008.MobArenaBuyableClasses.ownership.OwnershipStore;
+import me.gnat008.MobArenaBuyableClasses.ownership.PurchaseJournal;
+import me.gnat008.MobArenaBuyableClasses.ownership.SQLiteOwnershipBackend;
+import me.gnat008.MobArenaBuyableClasses.permissions.PermissionCache;
+import me.gnat008.MobArenaBuyableClasses.pricing.PriceEngine;
+import me.gnat008.MobArenaBuyableClasses.purchase.PurchaseProcessor;
+import me.gnat008.MobArenaBuyableClasses.purchase.PurchaseService;
+import me.gnat008.MobArenaBuyableClasses.util.YAMLChange;
+import me.gnat008.MobArenaBuyableClasses.zones.SelectionImporter;
+import me.gnat008.MobArenaBuyableClasses.zones.ZoneManager;
+import me.gnat008.MobArenaBuyableClasses.zones.ZoneTracker;
 import org.bukkit.ChatColor;
+import org.bukkit.command.PluginCommand;
 import org.bukkit.entity.Player;
 import org.bukkit.plugin.PluginDescriptionFile;
 import org.bukkit.plugin.PluginManager;
 import org.bukkit.plugin.java.JavaPlugin;
+import org.bukkit.scheduler.BukkitTask;
 
+import javax.management.JMException;
 import java.io.*;
+import java.util.concurrent.Executor;
 import java.util.jar.JarFile;
-import java.util.logging.Logger;
 import java.util.zip.ZipEntry;
 
 /**
@@ -20,11 +57,31 @@ import java.util.zip.ZipEntry;
 public class MABuyableClasses extends JavaPlugin {
 
     private static MABuyableClasses plugin;
-    private static Logger log = Bukkit.getLogger();
+    private static final Log log = Logs.get(Logs.CORE);
+
+    private static final String INFO_PREFIX = ChatColor.GREEN + "[MABuyableClasses] ";
+    private static final String WARNING_PREFIX = ChatColor.RED + "[MABuyableClasses] ";
 
     private boolean foundMA = false;
 
+    private final MetricsRegistry metrics = new MetricsRegistry();
+    private MetricsMBean metricsBean;
+    private BukkitTask metricsDumpTask;
+    private BukkitTask messengerTask;
+
     private final ConfigurationManager configuration;
+    private ConfigurationWatcher watcher;
+    private OwnershipStore ownershipStore;
+    private OwnershipPreloader ownershipPreloader;
+    private final PermissionCache permissionCache = new PermissionCache();
+    private PriceEngine priceEngine;
+    private EconomyExecutor economyExecutor;
+    private PurchaseService purchaseService;
+    private Messenger messenger;
+    private ZoneManager zoneManager;
+    private ZoneTracker zoneTracker;
+    private ClassMenu classMenu;
+    private Log audit;
 
     private PluginManager pm;
 
@@ -40,28 +97,423 @@ public class MABuyableClasses extends JavaPlugin {
         info = getDescription();
         plugin = this;
         pm = getServer().getPluginManager();
+
+        configuration.load();
+        setupLogging();
+
+        setupOwnership();
+        priceEngine = new PriceEngine(configuration, permissionCache);
+        setupMessages();
+        setupPurchases();
+        zoneManager = new ZoneManager(this);
+        zoneManager.load();
+        setupListeners();
+        setupMetrics();
+        setupCommands();
+
+        watcher = new ConfigurationWatcher(getDataFolder(), 500);
+        configuration.watch(watcher);
+        watchMessages();
+        zoneManager.watch(watcher);
+
+        try {
+            watcher.start();
+        } catch (IOException e) {
+            log.warn("Unable to watch the data folder, edits will need a restart: {}", e.getMessage());
+        }
     }
 
     @Override
     public void onDisable() {
         // TODO: onDisable stuff
+        if (watcher != null) {
+            watcher.stop();
+        }
+
+        if (metricsDumpTask != null) {
+            metricsDumpTask.cancel();
+        }
+
+        if (metricsBean != null) {
+            metricsBean.unregister();
+        }
+
+        // Let queued purchases finish before ownership is flushed.
+        if (economyExecutor != null) {
+            economyExecutor.close();
+        }
+
+        if (zoneManager != null) {
+            zoneManager.close();
+        }
+
+        if (ownershipStore != null) {
+            ownershipStore.close();
+        }
+
+        if (messengerTask != null) {
+            messengerTask.cancel();
+        }
+
+        if (messenger != null) {
+            messenger.clear();
+        }
+
+        // Last, so everything above can still log.
+        Logs.stop(5000);
+    }
+
+    // Moves logging onto its background thread once the configuration is
+    // known. Anything logged before this is written directly.
+    private void setupLogging() {
+        final PluginSettings settings = configuration.getSettings();
+        applyLogLevels(settings);
+        Logs.start(settings.logBufferSize);
+
+        if (settings.auditEnabled) {
+            audit = Logs.get("audit", new RotatingFileSink(new File(getDataFolder(), "purchases.log"),
+                    settings.auditMaxFileKb * 1024L, settings.auditMaxFiles));
+        }
+
+        configuration.addChangeListener("logging", new ConfigurationChangeListener() {
+            @Override
+            public void onChange(YAMLChange change) {
+                applyLogLevels(configuration.getSettings());
+            }
+        });
+    }
+
+    private void applyLogLevels(PluginSettings settings) {
+        for (String invalid : Logs.configure(settings.logLevel, settings.logLevels)) {
+            log.warn("Ignoring invalid log level '{}'; expected component=level.", invalid);
+        }
+    }
+
+    private void setupOwnership() {
+        PluginSettings settings = configuration.getSettings();
+
+        ownershipStore = new OwnershipStore(createOwnershipBackend(), settings.preloadMaxBatch, settings.preloadBudget);
+        ownershipPreloader = new OwnershipPreloader(this, ownershipStore, (settings.preloadWindow + 49) / 50,
+                settings.preloadMaxBatch);
+    }
+
+    private void setupMessages() {
+        PluginSettings settings = configuration.getSettings();
+
+        messenger = new Messenger(loadMessages(), settings.messagesDedupWindow, settings.messagesBurst,
+                settings.messagesPerSecond, metrics);
+        messengerTask = getServer().getScheduler().runTaskTimer(this, new Runnable() {
+            @Override
+            public void run() {
+                messenger.tick();
+            }
+        }, 1, 1);
+    }
+
+    private void watchMessages() {
+        watcher.watch(getMessagesFile().getName(), new Runnable() {
+            @Override
+            public void run() {
+                // Built off the main thread; the messenger only swaps it in.
+                // A file that no longer parses keeps the current messages.
+                try {
+                    messenger.setCatalog(MessageCatalog.load(getMessagesFile()));
+                    log.info("Reloaded {}.", getMessagesFile().getName());
+                } catch (IOException e) {
+                    log.warn("Unable to reload {}, keeping the current messages: {}", getMessagesFile().getName(), e.getMessage());
+                }
+            }
+        });
+    }
+
+    private MessageCatalog loadMessages() {
+        try {
+            return MessageCatalog.load(getMessagesFile());
+        } catch (IOException e) {
+            log.warn("Unable to load {}, using the built-in messages: {}", getMessagesFile().getName(), e.getMessage());
+            return MessageCatalog.defaults();
+        }
+    }
+
+    private File getMessagesFile() {
+        return new File(getDataFolder(), "messages_" + configuration.getSettings().messagesLocale + ".yml");
+    }
+
+    private void setupPurchases() {
+        PluginSettings settings = configuration.getSettings();
+
+        EconomyBackend economy = null;
+        if (settings.economyBackend == PluginSettings.EconomyBackendType.FAKE) {
+            economy = new FakeEconomyBackend(settings.fakeStartingBalance, settings.fakeLatency);
+            log.warn("Using the built-in fake economy; balances are not saved.");
+        }
+
+        economyExecutor = new EconomyExecutor(settings.economyThreads, settings.economyTimeout,
+                settings.economyMaxBatch, settings.economyMaxPending, new Executor() {
+            @Override
+            public void execute(Runnable task) {
+                try {
+                    getServer().getScheduler().runTask(MABuyableClasses.this, task);
+                } catch (RuntimeException e) {
+                    // Disabled; nobody is left to hear the result.
+                }
+            }
+        });
+
+        purchaseService = new PurchaseService(new PurchaseProcessor(ownershipStore, economy),
+                priceEngine, economyExecutor, economy, messenger, audit, metrics);
+    }
+
+    // Registers the counters components keep themselves, then starts the
+    // periodic dump and JMX export if enabled.
+    private void setupMetrics() {
+        PluginSettings settings = configuration.getSettings();
+
+        metrics.functionCounter("mabc_permission_cache_hits_total", "Permission checks answered from the cache.", new FunctionMetric.Source() {
+            @Override
+            public double get() {
+                return permissionCache.getHits();
+            }
+        });
+        metrics.functionCounter("mabc_permission_cache_misses_total", "Permission checks that asked the permission plugin.", new FunctionMetric.Source() {
+            @Override
+            public double get() {
+                return permissionCache.getMisses();
+            }
+        });
+        metrics.functionCounter("mabc_permission_cache_failures_total", "Permission lookups that failed.", new FunctionMetric.Source() {
+            @Override
+            public double get() {
+                return permissionCache.getFailures();
+            }
+        });
+        metrics.functionCounter("mabc_permission_cache_miss_seconds_total", "Time spent asking the permission plugin.", new FunctionMetric.Source() {
+            @Override
+            public double get() {
+                return permissionCache.getMissNanos() / 1e9;
+            }
+        });
+        metrics.gauge("mabc_permission_cache_hit_ratio", "Share of permission checks answered from the cache.", new FunctionMetric.Source() {
+            @Override
+            public double get() {
+                long hits = permissionCache.getHits();
+                long total = hits + permissionCache.getMisses();
+                return total > 0 ? (double) hits / total : 0;
+            }
+        });
+
+        metrics.gauge("mabc_ownership_loaded_players", "Players whose class ownership is in memory.", new FunctionMetric.Source() {
+            @Override
+            public double get() {
+                return ownershipStore.getLoadedCount();
+            }
+        });
+        metrics.gauge("mabc_ownership_queue_depth", "Ownership reads and writes waiting to run.", new FunctionMetric.Source() {
+            @Override
+            public double get() {
+                return ownershipStore.getQueueDepth();
+            }
+        });
+        metrics.functionCounter("mabc_ownership_failures_total", "Ownership reads and writes that failed.", new FunctionMetric.Source() {
+            @Override
+            public double get() {
+                return ownershipStore.getFailureCount();
+            }
+        });
+        metrics.functionCounter("mabc_ownership_batches_total", "Batch reads of ownership for several players.", new FunctionMetric.Source() {
+            @Override
+            public double get() {
+                return ownershipStore.getBatchCount();
+            }
+        });
+        metrics.functionCounter("mabc_ownership_batched_players_total", "Players loaded by batch reads.", new FunctionMetric.Source() {
+            @Override
+            public double get() {
+                return ownershipStore.getBatchedPlayerCount();
+            }
+        });
+        metrics.functionCounter("mabc_ownership_batches_over_budget_total", "Batch reads that took longer than the latency budget.", new FunctionMetric.Source() {
+            @Override
+            public double get() {
+                return ownershipStore.getOverBudgetCount();
+            }
+        });
+        metrics.gauge("mabc_ownership_batch_size", "Players the next batch read may include.", new FunctionMetric.Source() {
+            @Override
+            public double get() {
+                return ownershipStore.getBatchSize();
+            }
+        });
+        metrics.gauge("mabc_ownership_preload_pending", "Players waiting to be loaded with the next batch.", new FunctionMetric.Source() {
+            @Override
+            public double get() {
+                return ownershipPreloader.getPendingCount();
+            }
+        });
+
+        if (ownershipStore.getBackend() instanceof JournalOwnershipBackend) {
+            final PurchaseJournal journal = ((JournalOwnershipBackend) ownershipStore.getBackend()).getJournal();
+
+            metrics.functionCounter("mabc_journal_batches_total", "Group commits of the purchase journal.", new FunctionMetric.Source() {
+                @Override
+                public double get() {
+                    return journal.getBatchCount();
+                }
+            });
+            metrics.functionCounter("mabc_journal_records_total", "Records written to the purchase journal.", new FunctionMetric.Source() {
+                @Override
+                public double get() {
+                    return journal.getRecordCount();
+                }
+            });
+            metrics.gauge("mabc_journal_queue_depth", "Records waiting to be written to the purchase journal.", new FunctionMetric.Source() {
+                @Override
+                public double get() {
+                    return journal.getQueueDepth();
+                }
+            });
+        }
+
+        metrics.functionCounter("mabc_economy_requests_total", "Requests submitted to the economy executor.", new FunctionMetric.Source() {
+            @Override
+            public double get() {
+                return economyExecutor.getSubmittedCount();
+            }
+        });
+        metrics.functionCounter("mabc_economy_batches_total", "Batches drained by economy workers.", new FunctionMetric.Source() {
+            @Override
+            public double get() {
+                return economyExecutor.getBatchCount();
+            }
+        });
+        metrics.functionCounter("mabc_economy_timeouts_total", "Economy requests that timed out.", new FunctionMetric.Source() {
+            @Override
+            public double get() {
+                return economyExecutor.getTimeoutCount();
+            }
+        });
+        metrics.functionCounter("mabc_economy_late_completions_total", "Economy requests still running when their timeout passed.", new FunctionMetric.Source() {
+            @Override
+            public double get() {
+                return economyExecutor.getLateCompletionCount();
+            }
+        });
+        metrics.functionCounter("mabc_economy_rejections_total", "Economy requests rejected because a queue was full.", new FunctionMetric.Source() {
+            @Override
+            public double get() {
+                return economyExecutor.getRejectionCount();
+            }
+        });
+        metrics.gauge("mabc_economy_queue_depth", "Economy requests waiting for a worker.", new FunctionMetric.Source() {
+            @Override
+            public double get() {
+                return economyExecutor.getPendingCount();
+            }
+        });
+
+        metrics.gauge("mabc_zone_regions", "Purchase signs and zones in the spatial index.", new FunctionMetric.Source() {
+            @Override
+            public double get() {
+                return zoneManager.getIndex().size();
+            }
+        });
+        metrics.gauge("mabc_zone_tracked_players", "Players whose purchase zone is being tracked.", new FunctionMetric.Source() {
+            @Override
+            public double get() {
+                return zoneTracker.size();
+            }
+        });
+        metrics.gauge("mabc_menu_templates", "Class menu templates rendered and cached.", new FunctionMetric.Source() {
+            @Override
+            public double get() {
+                return classMenu.getTemplateCount();
+            }
+        });
+
+        final LogPipeline logging = Logs.getPipeline();
+        if (logging != null) {
+            metrics.functionCounter("mabc_log_events_total", "Log events written.", new FunctionMetric.Source() {
+                @Override
+                public double get() {
+                    return logging.getWrittenCount();
+                }
+            });
+            metrics.functionCounter("mabc_log_dropped_total", "Log events dropped because the log buffer was full.", new FunctionMetric.Source() {
+                @Override
+                public double get() {
+                    return logging.getDroppedCount();
+                }
+            });
+            metrics.gauge("mabc_log_queue_depth", "Log events waiting to be written.", new FunctionMetric.Source() {
+                @Override
+                public double get() {
+                    return logging.getQueueDepth();
+                }
+            });
+        }
+
+        if (settings.metricsDumpInterval > 0) {
+            long ticks = settings.metricsDumpInterval * 20L;
+            metricsDumpTask = getServer().getScheduler().runTaskTimerAsynchronously(this,
+                    new MetricsDump(metrics, new File(getDataFolder(), "metrics.prom")), ticks, ticks);
+        }
+
+        if (settings.metricsJmx) {
+            metricsBean = new MetricsMBean(metrics);
+
+            try {
+                metricsBean.register();
+            } catch (JMException e) {
+                metricsBean = null;
+                log.warn("Unable to expose metrics over JMX: {}", e.getMessage());
+            }
+        }
+    }
+
+    private void setupCommands() {
+        PluginCommand command = getCommand("mabc");
+        if (command != null) {
+            command.setExecutor(new AdminCommand(this, SelectionImporter.create(pm.getPlugin("WorldEdit"))));
+        } else {
+            log.warn("The mabc command is not declared in plugin.yml; it will not be available.");
+        }
     }
 
     private void setupListeners() {
+        pm.registerEvents(new PlayerListener(this), this);
+        zoneTracker = new ZoneTracker(zoneManager.getIndex(), metrics);
+        pm.registerEvents(new ZoneListener(this, zoneManager.getIndex(), zoneTracker), this);
+        classMenu = new ClassMenu(this, metrics);
+        pm.registerEvents(new MenuListener(classMenu), this);
+    }
 
+    private OwnershipBackend createOwnershipBackend() {
+        PluginSettings settings = configuration.getSettings();
+
+        switch (settings.ownershipBackend) {
+            case SQLITE:
+                return new SQLiteOwnershipBackend(new File(getDataFolder(), "ownership.db"));
+            case JOURNAL:
+                return new JournalOwnershipBackend(new File(getDataFolder(), "ownership.yml"),
+                        new File(getDataFolder(), "purchases.journal"),
+                        settings.journalMaxBatch, settings.journalMaxLatency, settings.journalCompactAfter);
+            default:
+                return new FlatFileOwnershipBackend(new File(getDataFolder(), "players"));
+        }
     }
 
     /**
-     * Prints a message to the console via the Minecraft logger.
+     * Prints a message to the console through the plugin's core log. Code
+     * in the plugin should use the {@link Log} of its component instead.
      *
      * @param msg  The message to be sent to the console.
      * @param warn If the message is the warning level.
      */
     public static void printToConsole(String msg, boolean warn) {
         if (warn) {
-            log.warning("[" + info.getName() + "] " + msg);
+            log.warn(msg);
         } else {
-            log.info("[" + info.getName() + "] " + msg);
+            log.info(msg);
         }
     }
 
@@ -73,17 +525,7 @@ public class MABuyableClasses extends JavaPlugin {
      * @param warn   If the message is a warning; RED if true, GREEN if false.
      */
     public static void printToPlayer(Player player, String msg, boolean warn) {
-        String printer = "";
-
-        if (warn) {
-            printer += ChatColor.RED + "";
-        } else {
-            printer += ChatColor.GREEN + "";
-        }
-
-        printer += "[MABuyableClasses] " + msg;
-
-        player.sendMessage(printer);
+        player.sendMessage((warn ? WARNING_PREFIX : INFO_PREFIX).concat(msg));
     }
 
     public boolean foundMA() {
@@ -98,13 +540,58 @@ public class MABuyableClasses extends JavaPlugin {
      * @return If the player has the permission node.
      */
     public boolean hasPermission(Player p, String node) {
-        return p.hasPermission("mabuyableclasses." + node);
+        return permissionCache.hasPermission(p, node);
     }
 
     public ConfigurationManager getConfiguration() {
         return configuration;
     }
 
+    public OwnershipStore getOwnershipStore() {
+        return ownershipStore;
+    }
+
+    /**
+     * @return The preloader to hand players joining an arena lobby to, so
+     * their ownership is loaded in one batch before they pick a class.
+     */
+    public OwnershipPreloader getOwnershipPreloader() {
+        return ownershipPreloader;
+    }
+
+    public PurchaseService getPurchaseService() {
+        return purchaseService;
+    }
+
+    public ZoneManager getZoneManager() {
+        return zoneManager;
+    }
+
+    /**
+     * @return The class menu, for opening it from arena lobbies.
+     */
+    public ClassMenu getClassMenu() {
+        return classMenu;
+    }
+
+    /**
+     * @return The messenger for sending catalog messages to players, with
+     * deduplication and rate limiting. Use it rather than
+     * {@link #printToPlayer(Player, String, boolean)} for anything a player
+     * can trigger repeatedly.
+     */
+    public Messenger getMessenger() {
+        return messenger;
+    }
+
+    public MetricsRegistry getMetrics() {
+        return metrics;
+    }
+
+    public ConfigurationWatcher getWatcher() {
+        return watcher;
+    }
+
     public static MABuyableClasses getInstance() {
         return plugin;
     }
@@ -113,15 +600,19 @@ public class MABuyableClasses extends JavaPlugin {
      * Get an array of groups that the player is in.
      *
      * @param p The player.
-     * @return A String array of groups, or an empty array.
+     * @return A String array of groups, the last known groups if they cannot
+     * be resolved, or an empty array. The array must not be modified.
      */
     public String[] getGroups(Player p) {
-        try {
-            return PermissionsResolverManager.getInstance().getGroups(p);
-        } catch (Throwable t) {
-            t.printStackTrace();
-            return new String[0];
-        }
+        return permissionCache.getGroups(p);
+    }
+
+    public PriceEngine getPriceEngine() {
+        return priceEngine;
+    }
+
+    public PermissionCache getPermissionCache() {
+        return permissionCache;
     }
 
     public void createDefaultConfiguration(File actual, String defaultName) {
@@ -145,7 +636,7 @@ public class MABuyableClasses extends JavaPlugin {
 
             input = file.getInputStream(copy);
         } catch (IOException e) {
-            log.severe("Unable to read default configuration: " + defaultName);
+            log.error("Unable to read default configuration: {}", defaultName);
         }
 
         if (input != null) {
@@ -159,9 +650,9 @@ public class MABuyableClasses extends JavaPlugin {
                     output.write(buf, 0, length);
                 }
 
-                printToConsole("Default configuration written: " + actual.getAbsolutePath(), false);
+                log.info("Default configuration written: {}", actual.getAbsolutePath());
             } catch (IOException e) {
-                e.printStackTrace();
+                log.error("Unable to write default configuration {}", actual.getAbsolutePath(), e);
             } finally {
                 try {
                     input.close();
@@ -0,0 +1,157 @@
+package me.gnat008.MobArenaBuyableClasses.commands;
+
+import me.gnat008.MobArenaBuyableClasses.MABuyableClasses;
+import me.gnat008.MobArenaBuyableClasses.exceptions.SelectionImportException;
+import me.gnat008.MobArenaBuyableClasses.metrics.Metric;
+import me.gnat008.MobArenaBuyableClasses.metrics.MetricsRegistry;
+import me.gnat008.MobArenaBuyableClasses.permissions.Permissions;
+import me.gnat008.MobArenaBuyableClasses.zones.PurchaseRegion;
+import me.gnat008.MobArenaBuyableClasses.zones.SelectionImporter;
+import org.bukkit.ChatColor;
+import org.bukkit.command.Command;
+import org.bukkit.command.CommandExecutor;
+import org.bukkit.command.CommandSender;
+import org.bukkit.entity.Player;
+
+import java.util.Collection;
+
+/**
+ * Handles /mabc, the administration command.
+ * <p/>
+ * /mabc metrics [prefix] - Shows the current metrics, optionally only those
+ * whose name starts with the prefix (the "mabc_" part may be left out).
+ * <br/>
+ * /mabc zone create &lt;name&gt; &lt;class&gt; - Makes the sender's WorldEdit
+ * selection a purchase zone for a class.
+ * <br/>
+ * /mabc zone remove &lt;name&gt; - Removes a purchase zone.
+ * <br/>
+ * /mabc menu - Opens the class menu.
+ */
+public class AdminCommand implements CommandExecutor {
+
+    private static final String METRIC_PREFIX = "mabc_";
+
+    private final MABuyableClasses plugin;
+    private final MetricsRegistry metrics;
+    private final SelectionImporter importer;
+
+    /**
+     * @param plugin   The plugin.
+     * @param importer Makes zones of WorldEdit selections, or null if
+     *                 WorldEdit is not installed.
+     */
+    public AdminCommand(MABuyableClasses plugin, SelectionImporter importer) {
+        this.plugin = plugin;
+        this.metrics = plugin.getMetrics();
+        this.importer = importer;
+    }
+
+    @Override
+    public boolean onCommand(CommandSender sender, Command command, String label, String[] args) {
+        if (args.length == 0) {
+            sender.sendMessage(ChatColor.YELLOW + "/" + label + " metrics [prefix]" + ChatColor.GRAY + " - Show plugin metrics.");
+            sender.sendMessage(ChatColor.YELLOW + "/" + label + " zone create <name> <class>" + ChatColor.GRAY + " - Make your selection a purchase zone.");
+            sender.sendMessage(ChatColor.YELLOW + "/" + label + " zone remove <name>" + ChatColor.GRAY + " - Remove a purchase zone.");
+            sender.sendMessage(ChatColor.YELLOW + "/" + label + " menu" + ChatColor.GRAY + " - Open the class menu.");
+            return true;
+        }
+
+        if (args[0].equalsIgnoreCase("menu")) {
+            if (!(sender instanceof Player)) {
+                sender.sendMessage(ChatColor.RED + "Only players can open the class menu.");
+            } else if (!sender.hasPermission(Permissions.BUY)) {
+                sender.sendMessage(ChatColor.RED + "You don't have permission to do that.");
+            } else {
+                plugin.getClassMenu().open((Player) sender);
+            }
+
+            return true;
+        }
+
+        if (args[0].equalsIgnoreCase("metrics")) {
+            if (!sender.hasPermission(Permissions.ADMIN)) {
+                sender.sendMessage(ChatColor.RED + "You don't have permission to do that.");
+                return true;
+            }
+
+            showMetrics(sender, args.length > 1 ? args[1] : "");
+            return true;
+        }
+
+        if (args[0].equalsIgnoreCase("zone")) {
+            if (!sender.hasPermission(Permissions.ADMIN)) {
+                sender.sendMessage(ChatColor.RED + "You don't have permission to do that.");
+                return true;
+            }
+
+            if (!plugin.getZoneManager().isEditable()) {
+                sender.sendMessage(ChatColor.RED + "zones.yml could not be read; fix it before changing zones.");
+                return true;
+            }
+
+            if (args.length == 4 && args[1].equalsIgnoreCase("create")) {
+                createZone(sender, args[2], args[3]);
+                return true;
+            } else if (args.length == 3 && args[1].equalsIgnoreCase("remove")) {
+                removeZone(sender, args[2]);
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    private void createZone(CommandSender sender, String name, String classId) {
+        if (!(sender instanceof Player)) {
+            sender.sendMessage(ChatColor.RED + "Only players have a selection to make a zone of.");
+            return;
+        } else if (importer == null) {
+            sender.sendMessage(ChatColor.RED + "WorldEdit is needed to make zones.");
+            return;
+        } else if (name.indexOf('.') >= 0) {
+            sender.sendMessage(ChatColor.RED + "Zone names cannot contain '.'.");
+            return;
+        } else if (plugin.getPriceEngine().getDefinition(classId) == null) {
+            sender.sendMessage(ChatColor.RED + "There is no class called " + classId + ".");
+            return;
+        }
+
+        PurchaseRegion zone;
+        try {
+            zone = importer.importSelection((Player) sender, name, classId);
+        } catch (SelectionImportException e) {
+            sender.sendMessage(ChatColor.RED + e.getMessage());
+            return;
+        }
+
+        plugin.getZoneManager().addZone(zone);
+        sender.sendMessage(ChatColor.GREEN + "Zone " + name + " now sells " + classId + " ("
+                + (zone.isPolygon() ? "polygon" : "cuboid") + ", " + zone.getVolume() + " blocks).");
+    }
+
+    private void removeZone(CommandSender sender, String name) {
+        if (plugin.getZoneManager().removeZone(name)) {
+            sender.sendMessage(ChatColor.GREEN + "Zone " + name + " removed.");
+        } else {
+            sender.sendMessage(ChatColor.RED + "There is no zone called " + name + ".");
+        }
+    }
+
+    private void showMetrics(CommandSender sender, String prefix) {
+        if (!prefix.startsWith(METRIC_PREFIX)) {
+            prefix = METRIC_PREFIX + prefix;
+        }
+
+        Collection<Metric> matching = metrics.getMetrics(prefix);
+        if (matching.isEmpty()) {
+            sender.sendMessage(ChatColor.RED + "No metrics match " + prefix + ".");
+            return;
+        }
+
+        for (Metric metric : matching) {
+            sender.sendMessage(ChatColor.GRAY + metric.getName().substring(METRIC_PREFIX.length())
+                    + metric.getLabels() + ": " + ChatColor.WHITE + metric.describe());
+        }
+    }
+}
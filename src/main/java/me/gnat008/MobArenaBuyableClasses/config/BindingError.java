@@ -0,0 +1,35 @@
+package me.gnat008.MobArenaBuyableClasses.config;
+
+/**
+ * A configuration value that could not be bound, and so was left at its
+ * default.
+ */
+public final class BindingError {
+
+    private final String path;
+    private final String message;
+
+    public BindingError(String path, String message) {
+        this.path = path;
+        this.message = message;
+    }
+
+    /**
+     * @return The dotted path of the value.
+     */
+    public String getPath() {
+        return path;
+    }
+
+    /**
+     * @return What was wrong with the value.
+     */
+    public String getMessage() {
+        return message;
+    }
+
+    @Override
+    public String toString() {
+        return path + ": " + message;
+    }
+}
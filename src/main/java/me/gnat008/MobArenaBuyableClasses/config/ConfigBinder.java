@@ -0,0 +1,362 @@
+package me.gnat008.MobArenaBuyableClasses.config;
+
+import me.gnat008.MobArenaBuyableClasses.util.YAMLNode;
+import me.gnat008.MobArenaBuyableClasses.util.YAMLPath;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Binds configuration values onto the {@link Setting} fields of a plain
+ * settings class. The mapping is compiled once per class into method
+ * handles and value converters, so binding is a walk over a fixed list with
+ * no reflection, and code reading the settings afterwards just reads
+ * fields.
+ * <p/>
+ * Supported field types are String, int, long, double, boolean, enums and
+ * List&lt;String&gt;. A missing value leaves the field at its default and,
+ * if the node writes defaults, adds the default to the node. A value of the
+ * wrong type or out of range also leaves the default, and is reported as a
+ * {@link BindingError}.
+ * <p/>
+ * Defaults should be assigned in the constructor rather than at the field's
+ * declaration: the compiler inlines final fields initialized with
+ * constants, so reads of such a field would never see the bound value.
+ *
+ * @param <T> The settings class.
+ */
+public final class ConfigBinder<T> {
+
+    private static final ConcurrentMap<Class<?>, ConfigBinder<?>> binders = new ConcurrentHashMap<Class<?>, ConfigBinder<?>>();
+
+    private static final MethodType CONSTRUCTOR_TYPE = MethodType.methodType(Object.class);
+    private static final MethodType GETTER_TYPE = MethodType.methodType(Object.class, Object.class);
+    private static final MethodType SETTER_TYPE = MethodType.methodType(void.class, Object.class, Object.class);
+
+    private final Class<T> type;
+    private final MethodHandle constructor;
+    private final List<Binding> bindings;
+
+    private ConfigBinder(Class<T> type) {
+        this.type = type;
+
+        MethodHandles.Lookup lookup = MethodHandles.lookup();
+        List<Binding> bindings = new ArrayList<Binding>();
+
+        try {
+            Constructor<T> ctor = type.getDeclaredConstructor();
+            ctor.setAccessible(true);
+            constructor = lookup.unreflectConstructor(ctor).asType(CONSTRUCTOR_TYPE);
+
+            for (Field field : type.getDeclaredFields()) {
+                Setting setting = field.getAnnotation(Setting.class);
+                if (setting == null || Modifier.isStatic(field.getModifiers())) {
+                    continue;
+                }
+
+                field.setAccessible(true);
+                bindings.add(new Binding(YAMLPath.compile(setting.value()), converter(field, setting),
+                        lookup.unreflectGetter(field).asType(GETTER_TYPE),
+                        lookup.unreflectSetter(field).asType(SETTER_TYPE)));
+            }
+        } catch (NoSuchMethodException e) {
+            throw new IllegalArgumentException(type.getName() + " has no no-argument constructor");
+        } catch (IllegalAccessException e) {
+            throw new IllegalArgumentException("Cannot bind " + type.getName() + ": " + e.getMessage());
+        }
+
+        this.bindings = Collections.unmodifiableList(bindings);
+    }
+
+    /**
+     * Returns the compiled binder of a settings class, compiling it on first
+     * use.
+     *
+     * @param type The settings class.
+     * @return The binder.
+     * @throws IllegalArgumentException If the class has a setting of an
+     *                                  unsupported type, or cannot be
+     *                                  constructed.
+     */
+    @SuppressWarnings("unchecked")
+    public static <T> ConfigBinder<T> of(Class<T> type) {
+        ConfigBinder<?> binder = binders.get(type);
+        if (binder == null) {
+            binder = new ConfigBinder<T>(type);
+
+            ConfigBinder<?> existing = binders.putIfAbsent(type, binder);
+            if (existing != null) {
+                binder = existing;
+            }
+        }
+
+        return (ConfigBinder<T>) binder;
+    }
+
+    /**
+     * Creates a settings object from a node.
+     *
+     * @param node   The node to read, and to write defaults to if it writes
+     *               defaults.
+     * @param errors Receives an error for each value that was left at its
+     *               default because it was invalid.
+     * @return The settings.
+     */
+    public T bind(YAMLNode node, List<BindingError> errors) {
+        Object target;
+
+        try {
+            target = constructor.invokeExact();
+        } catch (Throwable t) {
+            throw new IllegalStateException("Unable to construct " + type.getName(), t);
+        }
+
+        for (Binding binding : bindings) {
+            Object raw = node.getProperty(binding.path);
+
+            if (raw == null) {
+                if (node.writeDefaults()) {
+                    Object def = binding.get(target);
+                    if (def != null) {
+                        node.setProperty(binding.path, binding.converter.represent(def));
+                    }
+                }
+
+                continue;
+            }
+
+            try {
+                binding.set(target, binding.converter.convert(raw));
+            } catch (BindException e) {
+                Object def = binding.get(target);
+                errors.add(new BindingError(binding.path.getPath(), e.getMessage() + "; using "
+                        + (def != null ? binding.converter.represent(def) : "nothing")));
+            }
+        }
+
+        return type.cast(target);
+    }
+
+    /**
+     * @return The settings class.
+     */
+    public Class<T> getType() {
+        return type;
+    }
+
+    private static Converter converter(Field field, final Setting setting) {
+        Class<?> type = field.getType();
+
+        if (type == String.class) {
+            return new Converter() {
+                @Override
+                Object convert(Object raw) throws BindException {
+                    if (raw instanceof Map || raw instanceof List) {
+                        throw new BindException("expected a single value");
+                    }
+
+                    return raw.toString();
+                }
+            };
+        } else if (type == int.class || type == Integer.class) {
+            return new Converter() {
+                @Override
+                Object convert(Object raw) throws BindException {
+                    return (int) checkRange(whole(raw), setting, Integer.MIN_VALUE, Integer.MAX_VALUE);
+                }
+            };
+        } else if (type == long.class || type == Long.class) {
+            return new Converter() {
+                @Override
+                Object convert(Object raw) throws BindException {
+                    return (long) checkRange(whole(raw), setting, Long.MIN_VALUE, Long.MAX_VALUE);
+                }
+            };
+        } else if (type == double.class || type == Double.class) {
+            return new Converter() {
+                @Override
+                Object convert(Object raw) throws BindException {
+                    if (!(raw instanceof Number)) {
+                        throw new BindException("expected a number, got \"" + raw + "\"");
+                    }
+
+                    return checkRange(((Number) raw).doubleValue(), setting, -Double.MAX_VALUE, Double.MAX_VALUE);
+                }
+            };
+        } else if (type == boolean.class || type == Boolean.class) {
+            return new Converter() {
+                @Override
+                Object convert(Object raw) throws BindException {
+                    if (!(raw instanceof Boolean)) {
+                        throw new BindException("expected true or false, got \"" + raw + "\"");
+                    }
+
+                    return raw;
+                }
+            };
+        } else if (type.isEnum()) {
+            return enumConverter(type.asSubclass(Enum.class));
+        } else if (type == List.class && isListOf(field.getGenericType(), String.class)) {
+            return new Converter() {
+                @Override
+                Object convert(Object raw) throws BindException {
+                    if (!(raw instanceof List)) {
+                        throw new BindException("expected a list");
+                    }
+
+                    List<String> list = new ArrayList<String>();
+                    for (Object o : (List<?>) raw) {
+                        if (o != null) {
+                            list.add(o.toString());
+                        }
+                    }
+
+                    return Collections.unmodifiableList(list);
+                }
+
+                @Override
+                Object represent(Object value) {
+                    return new ArrayList<Object>((List<?>) value);
+                }
+            };
+        }
+
+        throw new IllegalArgumentException("Unsupported setting type " + field.getGenericType()
+                + " for " + field.getDeclaringClass().getName() + "." + field.getName());
+    }
+
+    @SuppressWarnings("rawtypes")
+    private static Converter enumConverter(final Class<? extends Enum> type) {
+        final Enum[] constants = type.getEnumConstants();
+
+        return new Converter() {
+            @Override
+            Object convert(Object raw) throws BindException {
+                String name = raw.toString().replace('-', '_');
+                for (Enum constant : constants) {
+                    if (constant.name().equalsIgnoreCase(name)) {
+                        return constant;
+                    }
+                }
+
+                StringBuilder allowed = new StringBuilder();
+                for (Enum constant : constants) {
+                    if (allowed.length() > 0) {
+                        allowed.append(", ");
+                    }
+
+                    allowed.append(represent(constant));
+                }
+
+                throw new BindException("expected one of " + allowed + ", got \"" + raw + "\"");
+            }
+
+            @Override
+            Object represent(Object value) {
+                return ((Enum) value).name().toLowerCase().replace('_', '-');
+            }
+        };
+    }
+
+    private static boolean isListOf(Type type, Class<?> element) {
+        return type instanceof ParameterizedType
+                && ((ParameterizedType) type).getActualTypeArguments()[0] == element;
+    }
+
+    private static long whole(Object raw) throws BindException {
+        if (!(raw instanceof Number)) {
+            throw new BindException("expected a whole number, got \"" + raw + "\"");
+        }
+
+        Number number = (Number) raw;
+        if ((raw instanceof Double || raw instanceof Float) && number.doubleValue() != Math.rint(number.doubleValue())) {
+            throw new BindException("expected a whole number, got " + raw);
+        }
+
+        return number.longValue();
+    }
+
+    private static long checkRange(long value, Setting setting, long lowest, long highest) throws BindException {
+        checkRange((double) value, setting, lowest, highest);
+        return value;
+    }
+
+    private static double checkRange(double value, Setting setting, double lowest, double highest) throws BindException {
+        double min = Math.max(setting.min(), lowest);
+        double max = Math.min(setting.max(), highest);
+
+        if (value < min) {
+            throw new BindException("must be at least " + format(min) + ", got " + format(value));
+        } else if (value > max) {
+            throw new BindException("must be at most " + format(max) + ", got " + format(value));
+        }
+
+        return value;
+    }
+
+    private static String format(double value) {
+        return value == Math.rint(value) && Math.abs(value) < 1e15 ? Long.toString((long) value) : Double.toString(value);
+    }
+
+    // Turns a raw YAML value into a field value, and back for defaults.
+    private static abstract class Converter {
+
+        abstract Object convert(Object raw) throws BindException;
+
+        Object represent(Object value) {
+            return value;
+        }
+    }
+
+    private static final class Binding {
+
+        private final YAMLPath path;
+        private final Converter converter;
+        private final MethodHandle getter;
+        private final MethodHandle setter;
+
+        private Binding(YAMLPath path, Converter converter, MethodHandle getter, MethodHandle setter) {
+            this.path = path;
+            this.converter = converter;
+            this.getter = getter;
+            this.setter = setter;
+        }
+
+        private Object get(Object target) {
+            try {
+                return (Object) getter.invokeExact(target);
+            } catch (Throwable t) {
+                throw new IllegalStateException("Unable to read " + path, t);
+            }
+        }
+
+        private void set(Object target, Object value) {
+            try {
+                setter.invokeExact(target, value);
+            } catch (Throwable t) {
+                throw new IllegalStateException("Unable to set " + path, t);
+            }
+        }
+    }
+
+    private static class BindException extends Exception {
+
+        private static final long serialVersionUID = 1L;
+
+        private BindException(String message) {
+            super(message);
+        }
+    }
+}
@@ -0,0 +1,20 @@
+package me.gnat008.MobArenaBuyableClasses.config;
+
+import me.gnat008.MobArenaBuyableClasses.util.YAMLChange;
+
+/**
+ * Receives the individual changes applied by a configuration reload.
+ * Listeners are always called on the main thread, after the new
+ * configuration has been swapped in.
+ */
+public interface ConfigurationChangeListener {
+
+    /**
+     * Called once for each added, removed or changed path under the prefix
+     * the listener was registered with, and for each change to a section
+     * that contains the prefix, such as the whole section being removed.
+     *
+     * @param change The change that was applied.
+     */
+    void onChange(YAMLChange change);
+}
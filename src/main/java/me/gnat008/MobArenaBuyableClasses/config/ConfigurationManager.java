@@ -1,16 +1,39 @@
 package me.gnat008.MobArenaBuyableClasses.config;
 
 import me.gnat008.MobArenaBuyableClasses.MABuyableClasses;
+import me.gnat008.MobArenaBuyableClasses.exceptions.YAMLProcessorException;
+import me.gnat008.MobArenaBuyableClasses.logging.Log;
+import me.gnat008.MobArenaBuyableClasses.logging.Logs;
+import me.gnat008.MobArenaBuyableClasses.metrics.Counter;
+import me.gnat008.MobArenaBuyableClasses.metrics.Histogram;
+import me.gnat008.MobArenaBuyableClasses.metrics.MetricsRegistry;
+import me.gnat008.MobArenaBuyableClasses.util.YAMLChange;
+import me.gnat008.MobArenaBuyableClasses.util.YAMLDiff;
+import me.gnat008.MobArenaBuyableClasses.util.YAMLFormat;
 import me.gnat008.MobArenaBuyableClasses.util.YAMLProcessor;
+import org.bukkit.scheduler.BukkitScheduler;
+import org.yaml.snakeyaml.error.YAMLException;
 
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiConsumer;
 
 /**
  * Created by Gnat008 on 5/12/2014.
  */
 public class ConfigurationManager {
 
+    private static final Log log = Logs.get("config");
+
     private final String CONFIG_HEADER = "# InfiniteBlock's main configuration file\r\n" +
             "#\r\n" +
             "# About editing this file:\r\n" +
@@ -26,16 +49,308 @@ public class ConfigurationManager {
             "# - Lines starting with # are comments and so they are ignored.\r\n" +
             "#\r\n";
 
+    private static final String CONFIG_FILE = "config.yml";
+
     private MABuyableClasses plugin;
-    private YAMLProcessor config;
+    private volatile YAMLProcessor config;
 
-    public Map<String, String> hostKeys = new HashMap<String, String>();
+    private volatile LoadTimings lastLoadTimings;
+
+    // Reloads are numbered as they start; one is only swapped in if no
+    // later one has been already, so an older file never replaces a newer
+    // one. The applied generation is only touched on the main thread.
+    private final AtomicLong reloadGenerations = new AtomicLong();
+    private long appliedGeneration;
 
-    // Configuration values start:
+    private final Histogram loadTime;
+    private final Histogram saveTime;
+    private final Counter loadFailures;
+    private final Counter saveFailures;
+
+    private final List<ListenerRegistration> listeners = new CopyOnWriteArrayList<ListenerRegistration>();
+
+    public Map<String, String> hostKeys = new HashMap<String, String>();
 
-    // Configuration values end.
+    private volatile PluginSettings settings = new PluginSettings();
 
     public ConfigurationManager(MABuyableClasses plugin) {
         this.plugin = plugin;
+
+        MetricsRegistry metrics = plugin.getMetrics();
+        this.loadTime = metrics.histogram("mabc_config_load_seconds", "Time to load or reload config.yml.");
+        this.saveTime = metrics.histogram("mabc_config_save_seconds", "Time to save config.yml.");
+        this.loadFailures = metrics.counter("mabc_config_failures_total", "Failed config.yml operations.", "operation", "load");
+        this.saveFailures = metrics.counter("mabc_config_failures_total", "Failed config.yml operations.", "operation", "save");
+    }
+
+    /**
+     * Loads the configuration synchronously, writing the default file first
+     * if none exists. Used on startup, before any players are online. The
+     * file is saved back with any missing defaults filled in, but only if
+     * it was read successfully or did not exist; a file that could not be
+     * read or parsed is left for the admin to fix.
+     */
+    public void load() {
+        File file = getConfigFile();
+        plugin.createDefaultConfiguration(file, CONFIG_FILE);
+
+        YAMLProcessor processor = newProcessor(file);
+        long start = System.nanoTime();
+        long read = start;
+        boolean existed = file.exists();
+        boolean parsed = false;
+        byte[] data = null;
+
+        try {
+            data = processor.readBytes();
+            read = System.nanoTime();
+            processor.replaceRoot(processor.parse(data));
+            parsed = true;
+        } catch (IOException e) {
+            loadFailures.increment();
+            log.warn("Unable to load {}, using the defaults: {}", CONFIG_FILE, e.getMessage());
+            data = null;
+        } catch (YAMLProcessorException e) {
+            loadFailures.increment();
+            log.warn("Unable to load {}, using the defaults: {}", CONFIG_FILE, e.getMessage());
+            data = null;
+        } catch (YAMLException e) {
+            loadFailures.increment();
+            log.warn("Unable to parse {}, using the defaults: {}", CONFIG_FILE, e.getMessage());
+            data = null;
+        }
+
+        PluginSettings bound = bind(processor, data);
+        processor.publishSnapshot();
+        long bindEnd = System.nanoTime();
+
+        settings = bound;
+        config = processor;
+        long swapEnd = System.nanoTime();
+        loadTime.observeNanos(swapEnd - start);
+
+        long saveNanos = 0;
+        if (parsed || !existed) {
+            if (processor.save()) {
+                saveNanos = System.nanoTime() - swapEnd;
+                saveTime.observeNanos(saveNanos);
+            } else {
+                saveFailures.increment();
+                log.warn("Unable to save {} with its default values.", CONFIG_FILE);
+            }
+        }
+
+        // A failed read counts as all parse time.
+        lastLoadTimings = new LoadTimings(read - start, bindEnd - read, swapEnd - bindEnd, saveNanos);
+    }
+
+    /**
+     * Reloads the configuration without blocking the main thread. The file
+     * is read, parsed and validated on an async task; only diffing the
+     * finished tree and swapping it into this manager happens on the main
+     * thread. If the load fails the current configuration is kept and the
+     * returned future completes exceptionally. Otherwise the new tree is
+     * bound to a new {@link PluginSettings} and diffed against the current
+     * one, and registered change listeners are told about each changed path
+     * after the swap. A reload that finishes after a later one has been
+     * swapped in is dropped, and its future fails with a
+     * {@link CancellationException}.
+     *
+     * @return A future completed on the main thread once the new
+     * configuration is in place, with the timings of each phase.
+     */
+    public CompletableFuture<LoadTimings> reloadAsync() {
+        final CompletableFuture<LoadTimings> future = new CompletableFuture<LoadTimings>();
+        final BukkitScheduler scheduler = plugin.getServer().getScheduler();
+        final long generation = reloadGenerations.incrementAndGet();
+
+        // A fresh processor is private to the loading task until it is
+        // swapped in, so its parser and tree are never shared mid-load.
+        final YAMLProcessor processor = newProcessor(getConfigFile());
+
+        scheduler.runTaskAsynchronously(plugin, new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    long start = System.nanoTime();
+                    byte[] data = processor.readBytes();
+                    long read = System.nanoTime();
+                    processor.replaceRoot(processor.parse(data));
+                    final PluginSettings bound = bind(processor, data);
+                    processor.publishSnapshot();
+                    long parsed = System.nanoTime();
+
+                    final long readNanos = read - start;
+                    final long parseNanos = parsed - read;
+
+                    scheduler.runTask(plugin, new Runnable() {
+                        @Override
+                        public void run() {
+                            if (generation < appliedGeneration) {
+                                future.completeExceptionally(new CancellationException(
+                                        "A later reload of " + CONFIG_FILE + " was applied first"));
+                                return;
+                            }
+
+                            // Diffed here, against the tree actually being
+                            // replaced, since the live tree is only safe to
+                            // read on the main thread.
+                            long start = System.nanoTime();
+                            List<YAMLChange> changes = YAMLDiff.diff(config.getMap(), processor.getMap());
+                            appliedGeneration = generation;
+                            config = processor;
+                            settings = bound;
+                            fireChanges(changes);
+                            LoadTimings timings = new LoadTimings(readNanos, parseNanos, System.nanoTime() - start);
+
+                            lastLoadTimings = timings;
+                            loadTime.observeNanos(readNanos + parseNanos + timings.getSwapNanos());
+                            future.complete(timings);
+                        }
+                    });
+                } catch (final Throwable t) {
+                    loadFailures.increment();
+                    completeOnMainThread(future, t);
+                }
+            }
+        });
+
+        return future;
+    }
+
+    // Fails a reload's future on the main thread, like its success would
+    // be delivered, or directly if the plugin is disabled.
+    private void completeOnMainThread(final CompletableFuture<LoadTimings> future, final Throwable t) {
+        try {
+            plugin.getServer().getScheduler().runTask(plugin, new Runnable() {
+                @Override
+                public void run() {
+                    future.completeExceptionally(t);
+                }
+            });
+        } catch (RuntimeException e) {
+            future.completeExceptionally(t);
+        }
+    }
+
+    /**
+     * Reloads the configuration whenever the watcher sees config.yml change.
+     *
+     * @param watcher The watcher of the plugin data folder.
+     */
+    public void watch(ConfigurationWatcher watcher) {
+        watcher.watch(CONFIG_FILE, new Runnable() {
+            @Override
+            public void run() {
+                reloadAsync().whenComplete(new BiConsumer<LoadTimings, Throwable>() {
+                    @Override
+                    public void accept(LoadTimings timings, Throwable t) {
+                        if (t instanceof CancellationException) {
+                            log.debug("Dropped a reload of {}: {}", CONFIG_FILE, t.getMessage());
+                        } else if (t != null) {
+                            log.warn("Unable to reload {}, keeping the current configuration: {}", CONFIG_FILE, t.toString());
+                        } else {
+                            log.info("Reloaded {} ({})", CONFIG_FILE, timings);
+                        }
+                    }
+                });
+            }
+        });
+    }
+
+    /**
+     * Registers a listener for the changes a reload applies at or below a
+     * path. Pass an empty prefix to hear about every change.
+     *
+     * @param prefix   The dotted path to listen under.
+     * @param listener The listener.
+     */
+    public void addChangeListener(String prefix, ConfigurationChangeListener listener) {
+        listeners.add(new ListenerRegistration(prefix, listener));
+    }
+
+    public void removeChangeListener(ConfigurationChangeListener listener) {
+        for (ListenerRegistration registration : listeners) {
+            if (registration.listener == listener) {
+                listeners.remove(registration);
+            }
+        }
+    }
+
+    private void fireChanges(List<YAMLChange> changes) {
+        for (YAMLChange change : changes) {
+            for (ListenerRegistration registration : listeners) {
+                if (!change.isUnder(registration.prefix)) {
+                    continue;
+                }
+
+                try {
+                    registration.listener.onChange(change);
+                } catch (RuntimeException e) {
+                    log.error("Error handling configuration change {}", change, e);
+                }
+            }
+        }
+    }
+
+    public YAMLProcessor getConfig() {
+        return config;
+    }
+
+    /**
+     * @return The typed values of the current configuration.
+     */
+    public PluginSettings getSettings() {
+        return settings;
+    }
+
+    /**
+     * @return The phase timings of the most recent load or reload, or null
+     * if nothing has been loaded yet.
+     */
+    public LoadTimings getLastLoadTimings() {
+        return lastLoadTimings;
+    }
+
+    public File getConfigFile() {
+        return new File(plugin.getDataFolder(), CONFIG_FILE);
+    }
+
+    // Binds the typed values of a loaded tree, filling in defaults for any
+    // that are missing, and reports invalid values with their line in the
+    // raw contents the tree was parsed from, if known.
+    private PluginSettings bind(YAMLProcessor processor, byte[] data) {
+        List<BindingError> errors = new ArrayList<BindingError>();
+        PluginSettings bound = ConfigBinder.of(PluginSettings.class).bind(processor, errors);
+
+        if (!errors.isEmpty()) {
+            Map<String, Integer> lines = data != null ? processor.getLineNumbers(data) : Collections.<String, Integer>emptyMap();
+
+            for (BindingError error : errors) {
+                Integer line = lines.get(error.getPath());
+                log.warn("{}{}: {}", CONFIG_FILE, line != null ? " line " + line : "", error);
+            }
+        }
+
+        return bound;
+    }
+
+    private YAMLProcessor newProcessor(File file) {
+        YAMLProcessor processor = new YAMLProcessor(file, true, YAMLFormat.EXTENDED);
+        processor.setHeader(CONFIG_HEADER);
+        processor.setLazyViews(true);
+        processor.setBinaryCache(true);
+        return processor;
+    }
+
+    private static class ListenerRegistration {
+
+        private final String prefix;
+        private final ConfigurationChangeListener listener;
+
+        private ListenerRegistration(String prefix, ConfigurationChangeListener listener) {
+            this.prefix = prefix;
+            this.listener = listener;
+        }
     }
 }
@@ -0,0 +1,166 @@
+package me.gnat008.MobArenaBuyableClasses.config;
+
+import me.gnat008.MobArenaBuyableClasses.logging.Log;
+import me.gnat008.MobArenaBuyableClasses.logging.Logs;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.*;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Watches the plugin data folder for edits and runs the handler registered
+ * for each changed file. Editors often write a file several times in a row,
+ * so a handler only runs once its file has been quiet for the debounce
+ * delay. Handlers run on the watcher thread and must hand any real work
+ * off themselves.
+ */
+public class ConfigurationWatcher implements Runnable {
+
+    private static final Log log = Logs.get("config");
+
+    private final File folder;
+    private final long debounceMillis;
+
+    private final Map<String, Runnable> handlers = new ConcurrentHashMap<String, Runnable>();
+
+    private WatchService watchService;
+    private Thread thread;
+
+    public ConfigurationWatcher(File folder, long debounceMillis) {
+        this.folder = folder;
+        this.debounceMillis = debounceMillis;
+    }
+
+    /**
+     * Registers the handler to run when a file in the watched folder changes.
+     *
+     * @param fileName The name of the file, relative to the folder.
+     * @param handler  The handler to run.
+     */
+    public void watch(String fileName, Runnable handler) {
+        handlers.put(fileName, handler);
+    }
+
+    public void unwatch(String fileName) {
+        handlers.remove(fileName);
+    }
+
+    /**
+     * Starts watching on a background daemon thread.
+     *
+     * @throws IOException If the folder cannot be watched.
+     */
+    public synchronized void start() throws IOException {
+        if (thread != null) {
+            return;
+        }
+
+        watchService = FileSystems.getDefault().newWatchService();
+        folder.toPath().register(watchService, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+
+        thread = new Thread(this, "MABuyableClasses-ConfigWatcher");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Stops watching. Edits that are still waiting out the debounce delay
+     * are dropped.
+     */
+    public synchronized void stop() {
+        if (thread == null) {
+            return;
+        }
+
+        thread.interrupt();
+        thread = null;
+
+        try {
+            watchService.close();
+        } catch (IOException ignore) {
+
+        }
+    }
+
+    @Override
+    public void run() {
+        // File name -> time at which its handler may run.
+        Map<String, Long> pending = new HashMap<String, Long>();
+
+        try {
+            while (!Thread.currentThread().isInterrupted()) {
+                WatchKey key;
+
+                if (pending.isEmpty()) {
+                    key = watchService.take();
+                } else {
+                    long wait = nextDeadline(pending) - System.currentTimeMillis();
+                    key = watchService.poll(Math.max(wait, 0), TimeUnit.MILLISECONDS);
+                }
+
+                if (key != null) {
+                    for (WatchEvent<?> event : key.pollEvents()) {
+                        if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                            continue;
+                        }
+
+                        String name = ((Path) event.context()).getFileName().toString();
+                        if (handlers.containsKey(name)) {
+                            pending.put(name, System.currentTimeMillis() + debounceMillis);
+                        }
+                    }
+
+                    if (!key.reset()) {
+                        log.warn("Data folder is no longer accessible; stopped watching for changes.");
+                        return;
+                    }
+                }
+
+                fireDue(pending);
+            }
+        } catch (InterruptedException ignore) {
+
+        } catch (ClosedWatchServiceException ignore) {
+
+        }
+    }
+
+    private void fireDue(Map<String, Long> pending) {
+        long now = System.currentTimeMillis();
+        Iterator<Map.Entry<String, Long>> it = pending.entrySet().iterator();
+
+        while (it.hasNext()) {
+            Map.Entry<String, Long> entry = it.next();
+            if (entry.getValue() > now) {
+                continue;
+            }
+
+            it.remove();
+
+            Runnable handler = handlers.get(entry.getKey());
+            if (handler == null) {
+                continue;
+            }
+
+            try {
+                handler.run();
+            } catch (RuntimeException e) {
+                log.error("Error handling change to {}", entry.getKey(), e);
+            }
+        }
+    }
+
+    private static long nextDeadline(Map<String, Long> pending) {
+        long next = Long.MAX_VALUE;
+        for (long deadline : pending.values()) {
+            next = Math.min(next, deadline);
+        }
+
+        return next;
+    }
+}
@@ -0,0 +1,63 @@
+package me.gnat008.MobArenaBuyableClasses.config;
+
+/**
+ * Phase timings of a single configuration load, in nanoseconds. On a
+ * reload only the swap phase runs on the main thread; only the startup load
+ * saves the file back.
+ */
+public final class LoadTimings {
+
+    private final long readNanos;
+    private final long parseNanos;
+    private final long swapNanos;
+    private final long saveNanos;
+
+    public LoadTimings(long readNanos, long parseNanos, long swapNanos) {
+        this(readNanos, parseNanos, swapNanos, 0);
+    }
+
+    public LoadTimings(long readNanos, long parseNanos, long swapNanos, long saveNanos) {
+        this.readNanos = readNanos;
+        this.parseNanos = parseNanos;
+        this.swapNanos = swapNanos;
+        this.saveNanos = saveNanos;
+    }
+
+    /**
+     * @return Time spent reading the file from disk.
+     */
+    public long getReadNanos() {
+        return readNanos;
+    }
+
+    /**
+     * @return Time spent parsing and validating the document, including
+     * building its read-only snapshot.
+     */
+    public long getParseNanos() {
+        return parseNanos;
+    }
+
+    /**
+     * @return Time spent on the main thread diffing and swapping the new tree
+     * in, including telling change listeners about it.
+     */
+    public long getSwapNanos() {
+        return swapNanos;
+    }
+
+    /**
+     * @return Time spent saving the file back with its defaults filled in,
+     * or 0 if it was not saved.
+     */
+    public long getSaveNanos() {
+        return saveNanos;
+    }
+
+    @Override
+    public String toString() {
+        String phases = String.format("read %.2fms, parse %.2fms, swap %.3fms",
+                readNanos / 1e6, parseNanos / 1e6, swapNanos / 1e6);
+        return saveNanos > 0 ? phases + String.format(", save %.2fms", saveNanos / 1e6) : phases;
+    }
+}
@@ -0,0 +1,135 @@
+package me.gnat008.MobArenaBuyableClasses.config;
+
+import me.gnat008.MobArenaBuyableClasses.logging.LogLevel;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The typed values of config.yml, bound by {@link ConfigBinder}. Defaults
+ * are set in the constructor; see {@link ConfigBinder} for why.
+ */
+public final class PluginSettings {
+
+    /**
+     * Where class ownership is stored.
+     */
+    public enum OwnershipBackendType {
+        YAML, SQLITE, JOURNAL
+    }
+
+    /**
+     * What classes priced in money are paid with.
+     */
+    public enum EconomyBackendType {
+        NONE, FAKE
+    }
+
+    @Setting("ownership.backend")
+    public final OwnershipBackendType ownershipBackend;
+
+    @Setting(value = "ownership.journal.max-batch", min = 1, max = 65536)
+    public final int journalMaxBatch;
+
+    @Setting(value = "ownership.journal.max-latency-ms", min = 0, max = 10000)
+    public final int journalMaxLatency;
+
+    @Setting(value = "ownership.journal.compact-after", min = 1, max = 10000000)
+    public final int journalCompactAfter;
+
+    @Setting(value = "ownership.preload.window-ms", min = 0, max = 5000)
+    public final int preloadWindow;
+
+    @Setting(value = "ownership.preload.max-batch", min = 1, max = 4096)
+    public final int preloadMaxBatch;
+
+    @Setting(value = "ownership.preload.budget-ms", min = 1, max = 60000)
+    public final int preloadBudget;
+
+    @Setting("economy.backend")
+    public final EconomyBackendType economyBackend;
+
+    @Setting(value = "economy.threads", min = 1, max = 32)
+    public final int economyThreads;
+
+    @Setting(value = "economy.timeout-ms", min = 50, max = 60000)
+    public final int economyTimeout;
+
+    @Setting(value = "economy.max-batch", min = 1, max = 4096)
+    public final int economyMaxBatch;
+
+    @Setting(value = "economy.max-pending", min = 1, max = 65536)
+    public final int economyMaxPending;
+
+    @Setting(value = "economy.fake.starting-balance", min = 0)
+    public final double fakeStartingBalance;
+
+    @Setting(value = "economy.fake.latency-ms", min = 0, max = 10000)
+    public final int fakeLatency;
+
+    @Setting(value = "metrics.dump-interval-seconds", min = 0, max = 86400)
+    public final int metricsDumpInterval;
+
+    @Setting("metrics.jmx")
+    public final boolean metricsJmx;
+
+    @Setting("messages.locale")
+    public final String messagesLocale;
+
+    @Setting(value = "messages.dedup-window-ms", min = 0, max = 600000)
+    public final long messagesDedupWindow;
+
+    @Setting(value = "messages.burst", min = 1, max = 100)
+    public final int messagesBurst;
+
+    @Setting(value = "messages.per-second", min = 0.01, max = 100)
+    public final double messagesPerSecond;
+
+    @Setting("logging.level")
+    public final LogLevel logLevel;
+
+    // Entries of the form "component=level".
+    @Setting("logging.levels")
+    public final List<String> logLevels;
+
+    @Setting(value = "logging.buffer-size", min = 64, max = 1048576)
+    public final int logBufferSize;
+
+    @Setting("logging.audit.enabled")
+    public final boolean auditEnabled;
+
+    @Setting(value = "logging.audit.max-file-kb", min = 1, max = 1048576)
+    public final int auditMaxFileKb;
+
+    @Setting(value = "logging.audit.max-files", min = 1, max = 100)
+    public final int auditMaxFiles;
+
+    public PluginSettings() {
+        this.ownershipBackend = OwnershipBackendType.YAML;
+        this.journalMaxBatch = 256;
+        this.journalMaxLatency = 50;
+        this.journalCompactAfter = 10000;
+        this.preloadWindow = 250;
+        this.preloadMaxBatch = 64;
+        this.preloadBudget = 100;
+        this.economyBackend = EconomyBackendType.NONE;
+        this.economyThreads = 2;
+        this.economyTimeout = 2000;
+        this.economyMaxBatch = 64;
+        this.economyMaxPending = 1024;
+        this.fakeStartingBalance = 1000;
+        this.fakeLatency = 0;
+        this.metricsDumpInterval = 60;
+        this.metricsJmx = true;
+        this.messagesLocale = "en";
+        this.messagesDedupWindow = 3000;
+        this.messagesBurst = 5;
+        this.messagesPerSecond = 1;
+        this.logLevel = LogLevel.INFO;
+        this.logLevels = Collections.emptyList();
+        this.logBufferSize = 8192;
+        this.auditEnabled = true;
+        this.auditMaxFileKb = 5120;
+        this.auditMaxFiles = 5;
+    }
+}
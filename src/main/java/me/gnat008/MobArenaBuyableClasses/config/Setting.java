@@ -0,0 +1,31 @@
+package me.gnat008.MobArenaBuyableClasses.config;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks a field of a settings class as bound to a configuration value by
+ * {@link ConfigBinder}. The field may be final; its default is whatever the
+ * settings class's no-argument constructor leaves in it.
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.FIELD)
+public @interface Setting {
+
+    /**
+     * @return The dotted path of the value.
+     */
+    String value();
+
+    /**
+     * @return The smallest allowed value, for numeric fields.
+     */
+    double min() default Double.NEGATIVE_INFINITY;
+
+    /**
+     * @return The largest allowed value, for numeric fields.
+     */
+    double max() default Double.POSITIVE_INFINITY;
+}
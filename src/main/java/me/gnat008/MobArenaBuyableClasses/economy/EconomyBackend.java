@@ -0,0 +1,34 @@
+package me.gnat008.MobArenaBuyableClasses.economy;
+
+import java.util.UUID;
+
+/**
+ * A source of money that classes can be paid from. Implementations must be
+ * safe to call from any thread, and withdraw must check and debit the
+ * balance atomically.
+ */
+public interface EconomyBackend {
+
+    /**
+     * @param player The player's UUID.
+     * @return The player's balance.
+     */
+    double getBalance(UUID player);
+
+    /**
+     * Takes money from a player if they have enough.
+     *
+     * @param player The player's UUID.
+     * @param amount The amount to take.
+     * @return False if the balance was too low; nothing is taken then.
+     */
+    boolean withdraw(UUID player, double amount);
+
+    /**
+     * Gives money to a player, for example to refund a failed purchase.
+     *
+     * @param player The player's UUID.
+     * @param amount The amount to give.
+     */
+    void deposit(UUID player, double amount);
+}
@@ -0,0 +1,379 @@
+package me.gnat008.MobArenaBuyableClasses.economy;
+
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Runs economy work, such as balance checks and debits, off the main
+ * thread. Work is queued per backend and drained in batches by a bounded
+ * pool of workers, which hand each other the queue between batches so
+ * several backends share the pool fairly. Results are handed back on the
+ * main thread.
+ * <p/>
+ * Each request has a timeout. A request still queued when it expires is
+ * dropped without running, and its caller is told it timed out. One
+ * already running is allowed to finish and its caller gets the real
+ * outcome, however late: it may already have moved money, so telling the
+ * caller it timed out would be a lie.
+ * <p/>
+ * Work for a {@link MainThreadBackend} runs on the main thread directly.
+ */
+public class EconomyExecutor {
+
+    /**
+     * A piece of work against a backend.
+     *
+     * @param <T> The result type.
+     */
+    public interface Task<T> {
+
+        T run(EconomyBackend backend);
+    }
+
+    private final int threads;
+    private final ThreadPoolExecutor workers;
+    private final ScheduledThreadPoolExecutor timer;
+    private final Executor mainThread;
+
+    private final long timeoutMillis;
+    private final int maxBatch;
+    private final int maxPending;
+
+    private final ConcurrentMap<EconomyBackend, Lane> lanes = new ConcurrentHashMap<EconomyBackend, Lane>();
+
+    private final LongAdder submitted = new LongAdder();
+    private final LongAdder batches = new LongAdder();
+    private final LongAdder timeouts = new LongAdder();
+    private final LongAdder lateCompletions = new LongAdder();
+    private final LongAdder rejections = new LongAdder();
+
+    /**
+     * @param threads       The number of workers.
+     * @param timeoutMillis How long a caller waits for a result.
+     * @param maxBatch      The most requests a worker drains from one
+     *                      backend's queue before letting other backends
+     *                      have it.
+     * @param maxPending    The most requests queued for one backend; more
+     *                      are rejected.
+     * @param mainThread    Runs result callbacks on the main thread.
+     */
+    public EconomyExecutor(int threads, long timeoutMillis, int maxBatch, int maxPending, Executor mainThread) {
+        this.threads = threads;
+        this.timeoutMillis = timeoutMillis;
+        this.maxBatch = maxBatch;
+        this.maxPending = maxPending;
+        this.mainThread = mainThread;
+
+        final AtomicInteger count = new AtomicInteger();
+        ThreadFactory factory = new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable r) {
+                Thread thread = new Thread(r, "MABuyableClasses-Economy-" + count.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            }
+        };
+
+        // Only lanes are queued here, at most one entry per worker each.
+        this.workers = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<Runnable>(), factory);
+
+        this.timer = new ScheduledThreadPoolExecutor(1, new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable r) {
+                Thread thread = new Thread(r, "MABuyableClasses-Economy-Timer");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+
+        // Almost every timeout is cancelled; don't keep them queued until
+        // they would have fired.
+        this.timer.setRemoveOnCancelPolicy(true);
+    }
+
+    /**
+     * Queues work against a backend.
+     *
+     * @param backend The backend.
+     * @param task    The work.
+     * @return A future completed on the main thread with the result, or
+     * exceptionally with a {@link TimeoutException} if it waited in the
+     * queue too long to be started, a
+     * {@link RejectedExecutionException} if the backend's queue was full or
+     * this executor is closed, or whatever the work threw.
+     */
+    public <T> CompletableFuture<T> submit(EconomyBackend backend, Task<T> task) {
+        Request<T> request = new Request<T>(task);
+        submitted.increment();
+
+        if (backend instanceof MainThreadBackend) {
+            request.runOnMainThread(backend);
+            return request.future;
+        }
+
+        if (workers.isShutdown()) {
+            rejections.increment();
+            request.deliver(null, new RejectedExecutionException("The economy executor is closed"));
+            return request.future;
+        }
+
+        Lane lane = lanes.get(backend);
+        if (lane == null) {
+            lane = new Lane(backend);
+
+            Lane existing = lanes.putIfAbsent(backend, lane);
+            if (existing != null) {
+                lane = existing;
+            }
+        }
+
+        lane.offer(request);
+        return request.future;
+    }
+
+    /**
+     * Stops taking work and waits briefly for queued work to finish.
+     */
+    public void close() {
+        workers.shutdown();
+
+        try {
+            if (!workers.awaitTermination(5, TimeUnit.SECONDS)) {
+                workers.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            workers.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+
+        timer.shutdownNow();
+    }
+
+    /**
+     * @return The number of requests submitted.
+     */
+    public long getSubmittedCount() {
+        return submitted.sum();
+    }
+
+    /**
+     * @return The number of batches drained by workers.
+     */
+    public long getBatchCount() {
+        return batches.sum();
+    }
+
+    /**
+     * @return The number of requests whose caller was told they timed out.
+     */
+    public long getTimeoutCount() {
+        return timeouts.sum();
+    }
+
+    /**
+     * @return The number of requests still running when their timeout
+     * passed.
+     */
+    public long getLateCompletionCount() {
+        return lateCompletions.sum();
+    }
+
+    /**
+     * @return The number of requests rejected because a queue was full or
+     * the executor was closed.
+     */
+    public long getRejectionCount() {
+        return rejections.sum();
+    }
+
+    /**
+     * @return The number of requests queued for workers, across backends.
+     */
+    public int getPendingCount() {
+        int pending = 0;
+        for (Lane lane : lanes.values()) {
+            pending += lane.pending.get();
+        }
+
+        return pending;
+    }
+
+    // The queue of one backend, drained by up to every worker at once.
+    private final class Lane implements Runnable {
+
+        private final EconomyBackend backend;
+        private final ConcurrentLinkedQueue<Request<?>> queue = new ConcurrentLinkedQueue<Request<?>>();
+        private final AtomicInteger pending = new AtomicInteger();
+        private final AtomicInteger draining = new AtomicInteger();
+
+        private Lane(EconomyBackend backend) {
+            this.backend = backend;
+        }
+
+        private void offer(Request<?> request) {
+            if (pending.incrementAndGet() > maxPending) {
+                pending.decrementAndGet();
+                rejections.increment();
+                request.deliver(null, new RejectedExecutionException("Too many economy requests queued"));
+                return;
+            }
+
+            queue.add(request);
+            request.startTimer();
+            schedule();
+        }
+
+        private void schedule() {
+            int current;
+            do {
+                current = draining.get();
+                if (current >= threads) {
+                    // A worker re-checks the queue after each batch.
+                    return;
+                }
+            } while (!draining.compareAndSet(current, current + 1));
+
+            try {
+                workers.execute(this);
+            } catch (RejectedExecutionException e) {
+                draining.decrementAndGet();
+
+                Request<?> request;
+                while ((request = queue.poll()) != null) {
+                    pending.decrementAndGet();
+                    rejections.increment();
+                    request.deliver(null, e);
+                }
+            }
+        }
+
+        @Override
+        public void run() {
+            batches.increment();
+
+            Request<?> request;
+            int drained = 0;
+
+            while (drained < maxBatch && (request = queue.poll()) != null) {
+                pending.decrementAndGet();
+                request.run(backend);
+                drained++;
+            }
+
+            draining.decrementAndGet();
+
+            // Requeue behind other backends rather than hog the worker.
+            if (!queue.isEmpty()) {
+                schedule();
+            }
+        }
+    }
+
+    private final class Request<T> {
+
+        private final Task<T> task;
+        private final CompletableFuture<T> future = new CompletableFuture<T>();
+
+        // Set by whichever of the worker and the timer gets there first.
+        private final AtomicBoolean started = new AtomicBoolean();
+        private final AtomicBoolean delivered = new AtomicBoolean();
+
+        // Set by the timer if the work was still running at the deadline.
+        private volatile boolean overran;
+
+        private volatile ScheduledFuture<?> timeout;
+
+        private Request(Task<T> task) {
+            this.task = task;
+        }
+
+        private void startTimer() {
+            try {
+                timeout = timer.schedule(new Runnable() {
+                    @Override
+                    public void run() {
+                        expire();
+                    }
+                }, timeoutMillis, TimeUnit.MILLISECONDS);
+            } catch (RejectedExecutionException e) {
+                // Closing; the request still runs or is rejected by the pool.
+            }
+        }
+
+        private void expire() {
+            if (started.compareAndSet(false, true)) {
+                timeouts.increment();
+                deliver(null, new TimeoutException("Economy request timed out in the queue"));
+            } else {
+                // Running; its real outcome is delivered when it finishes.
+                overran = true;
+            }
+        }
+
+        private void run(EconomyBackend backend) {
+            if (!started.compareAndSet(false, true)) {
+                return;
+            }
+
+            T result = null;
+            Throwable failure = null;
+
+            try {
+                result = task.run(backend);
+            } catch (Throwable t) {
+                failure = t;
+            }
+
+            ScheduledFuture<?> timeout = this.timeout;
+            if (timeout != null) {
+                timeout.cancel(false);
+            }
+
+            if (overran) {
+                lateCompletions.increment();
+            }
+
+            deliver(result, failure);
+        }
+
+        private void runOnMainThread(final EconomyBackend backend) {
+            mainThread.execute(new Runnable() {
+                @Override
+                public void run() {
+                    started.set(true);
+                    delivered.set(true);
+
+                    try {
+                        future.complete(task.run(backend));
+                    } catch (Throwable t) {
+                        future.completeExceptionally(t);
+                    }
+                }
+            });
+        }
+
+        // Hands the outcome to the main thread, unless it was already
+        // handed over. Returns false if it was.
+        private boolean deliver(final T result, final Throwable failure) {
+            if (!delivered.compareAndSet(false, true)) {
+                return false;
+            }
+
+            mainThread.execute(new Runnable() {
+                @Override
+                public void run() {
+                    if (failure != null) {
+                        future.completeExceptionally(failure);
+                    } else {
+                        future.complete(result);
+                    }
+                }
+            });
+
+            return true;
+        }
+    }
+}
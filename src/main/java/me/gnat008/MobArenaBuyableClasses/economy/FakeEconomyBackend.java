@@ -0,0 +1,90 @@
+package me.gnat008.MobArenaBuyableClasses.economy;
+
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * An in-process economy, for servers without one and for testing the
+ * purchase path offline. Every player starts with the same balance, and
+ * balances are lost on restart. An artificial latency can be added to each
+ * call to stand in for a slow remote economy.
+ */
+public class FakeEconomyBackend implements EconomyBackend {
+
+    private final ConcurrentMap<UUID, double[]> balances = new ConcurrentHashMap<UUID, double[]>();
+
+    private final double startingBalance;
+    private final long latencyNanos;
+
+    public FakeEconomyBackend(double startingBalance, long latencyMillis) {
+        this.startingBalance = startingBalance;
+        this.latencyNanos = TimeUnit.MILLISECONDS.toNanos(latencyMillis);
+    }
+
+    @Override
+    public double getBalance(UUID player) {
+        delay();
+
+        double[] balance = account(player);
+        synchronized (balance) {
+            return balance[0];
+        }
+    }
+
+    @Override
+    public boolean withdraw(UUID player, double amount) {
+        delay();
+
+        double[] balance = account(player);
+        synchronized (balance) {
+            if (balance[0] < amount) {
+                return false;
+            }
+
+            balance[0] -= amount;
+            return true;
+        }
+    }
+
+    @Override
+    public void deposit(UUID player, double amount) {
+        delay();
+
+        double[] balance = account(player);
+        synchronized (balance) {
+            balance[0] += amount;
+        }
+    }
+
+    private double[] account(UUID player) {
+        double[] balance = balances.get(player);
+        if (balance == null) {
+            balance = new double[]{startingBalance};
+
+            double[] existing = balances.putIfAbsent(player, balance);
+            if (existing != null) {
+                balance = existing;
+            }
+        }
+
+        return balance;
+    }
+
+    private void delay() {
+        if (latencyNanos > 0) {
+            long deadline = System.nanoTime() + latencyNanos;
+            long remaining;
+
+            while ((remaining = deadline - System.nanoTime()) > 0) {
+                try {
+                    TimeUnit.NANOSECONDS.sleep(remaining);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,81 @@
+package me.gnat008.MobArenaBuyableClasses.economy;
+
+import org.bukkit.Bukkit;
+import org.bukkit.Material;
+import org.bukkit.entity.Player;
+import org.bukkit.inventory.ItemStack;
+import org.bukkit.inventory.PlayerInventory;
+
+import java.util.UUID;
+
+/**
+ * Pays for classes in items of one material, taken from the player's
+ * inventory. Amounts are rounded up to whole items. Offline players have
+ * nothing to pay with. Only usable on the main thread.
+ */
+public class ItemCurrencyBackend implements EconomyBackend, MainThreadBackend {
+
+    private final Material material;
+
+    public ItemCurrencyBackend(Material material) {
+        this.material = material;
+    }
+
+    @Override
+    public double getBalance(UUID player) {
+        Player p = Bukkit.getPlayer(player);
+        if (p == null) {
+            return 0;
+        }
+
+        int count = 0;
+        for (ItemStack stack : p.getInventory().getContents()) {
+            if (stack != null && stack.getType() == material) {
+                count += stack.getAmount();
+            }
+        }
+
+        return count;
+    }
+
+    @Override
+    public boolean withdraw(UUID player, double amount) {
+        Player p = Bukkit.getPlayer(player);
+        if (p == null) {
+            return false;
+        }
+
+        int items = toItems(amount);
+        PlayerInventory inventory = p.getInventory();
+        if (!inventory.containsAtLeast(new ItemStack(material), items)) {
+            return false;
+        }
+
+        inventory.removeItem(new ItemStack(material, items));
+        return true;
+    }
+
+    @Override
+    public void deposit(UUID player, double amount) {
+        Player p = Bukkit.getPlayer(player);
+        if (p == null) {
+            return;
+        }
+
+        // Whatever doesn't fit is dropped at the player's feet.
+        for (ItemStack left : p.getInventory().addItem(new ItemStack(material, toItems(amount))).values()) {
+            p.getWorld().dropItemNaturally(p.getLocation(), left);
+        }
+    }
+
+    /**
+     * @return The material paid with.
+     */
+    public Material getMaterial() {
+        return material;
+    }
+
+    private static int toItems(double amount) {
+        return (int) Math.ceil(amount);
+    }
+}
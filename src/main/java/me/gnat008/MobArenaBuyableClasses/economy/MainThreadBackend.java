@@ -0,0 +1,10 @@
+package me.gnat008.MobArenaBuyableClasses.economy;
+
+/**
+ * Marks an {@link EconomyBackend} that touches game state, such as player
+ * inventories, and so may only be called on the main thread. The
+ * {@link EconomyExecutor} runs work for these backends there instead of on
+ * its workers.
+ */
+public interface MainThreadBackend {
+}
@@ -0,0 +1,14 @@
+package me.gnat008.MobArenaBuyableClasses.exceptions;
+
+public class SelectionImportException extends Exception {
+
+    private static final long serialVersionUID = 4075331180362520715L;
+
+    public SelectionImportException() {
+        super();
+    }
+
+    public SelectionImportException(String msg) {
+        super(msg);
+    }
+}
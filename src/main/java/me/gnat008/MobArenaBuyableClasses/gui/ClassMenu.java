@@ -0,0 +1,253 @@
+package me.gnat008.MobArenaBuyableClasses.gui;
+
+import me.gnat008.MobArenaBuyableClasses.MABuyableClasses;
+import me.gnat008.MobArenaBuyableClasses.config.ConfigurationChangeListener;
+import me.gnat008.MobArenaBuyableClasses.economy.EconomyBackend;
+import me.gnat008.MobArenaBuyableClasses.economy.EconomyExecutor;
+import me.gnat008.MobArenaBuyableClasses.economy.MainThreadBackend;
+import me.gnat008.MobArenaBuyableClasses.logging.Log;
+import me.gnat008.MobArenaBuyableClasses.logging.Logs;
+import me.gnat008.MobArenaBuyableClasses.messages.MessageCatalog;
+import me.gnat008.MobArenaBuyableClasses.metrics.Counter;
+import me.gnat008.MobArenaBuyableClasses.metrics.MetricsRegistry;
+import me.gnat008.MobArenaBuyableClasses.ownership.OwnershipStore;
+import me.gnat008.MobArenaBuyableClasses.pricing.PriceTable;
+import me.gnat008.MobArenaBuyableClasses.purchase.PurchaseResult;
+import me.gnat008.MobArenaBuyableClasses.util.YAMLChange;
+import org.bukkit.entity.Player;
+import org.bukkit.inventory.Inventory;
+
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.BiConsumer;
+
+/**
+ * The class selection menu shown in arena lobbies. Clicking a class in it
+ * buys the class.
+ * <p/>
+ * Building the items of a menu is the expensive part, and they only depend
+ * on the classes shown and what the player pays for them, so a
+ * {@link MenuTemplate} is rendered once per class set and price groups and
+ * shared by everyone who sees the same menu. Opening a menu then only
+ * picks, per slot, whether the player owns the class and can afford it;
+ * balances that have to be asked for off the main thread patch their
+ * slots in when they arrive. Templates are dropped whenever the classes,
+ * prices or messages change.
+ * <p/>
+ * Main thread only.
+ */
+public class ClassMenu implements ConfigurationChangeListener {
+
+    private static final Log log = Logs.get("menu");
+
+    /**
+     * The name of the set of every buyable class.
+     */
+    public static final String ALL = "all";
+
+    private final MABuyableClasses plugin;
+    private final Map<String, MenuTemplate> templates = new HashMap<String, MenuTemplate>();
+
+    // What the cached templates were rendered from.
+    private PriceTable table;
+    private MessageCatalog catalog;
+
+    private final Counter cachedOpens;
+    private final Counter renderedOpens;
+    private final Counter patchedSlots;
+
+    public ClassMenu(MABuyableClasses plugin, MetricsRegistry metrics) {
+        this.plugin = plugin;
+        plugin.getConfiguration().addChangeListener("classes", this);
+
+        String help = "Class menus opened, by whether their template was cached.";
+        this.cachedOpens = metrics.counter("mabc_menu_opens_total", help, "template", "cached");
+        this.renderedOpens = metrics.counter("mabc_menu_opens_total", help, "template", "rendered");
+        this.patchedSlots = metrics.counter("mabc_menu_slot_updates_total",
+                "Slots of open class menus replaced after a balance or ownership change.");
+    }
+
+    @Override
+    public void onChange(YAMLChange change) {
+        invalidate();
+    }
+
+    /**
+     * Opens the menu of every buyable class for a player.
+     *
+     * @param player The player.
+     * @return The menu.
+     */
+    public MenuSession open(Player player) {
+        return open(player, ALL, null);
+    }
+
+    /**
+     * Opens a menu of some classes for a player, such as those an arena
+     * allows.
+     *
+     * @param player   The player.
+     * @param setName  A name for the set of classes. Menus with the same
+     *                 name share templates, so it must always be used for
+     *                 the same classes.
+     * @param classIds The classes, in order, or null for every buyable
+     *                 class. Classes that are not buyable are left out.
+     * @return The menu.
+     */
+    public MenuSession open(Player player, String setName, List<String> classIds) {
+        UUID id = player.getUniqueId();
+        OwnershipStore ownership = plugin.getOwnershipStore();
+
+        MenuSession session = new MenuSession(getTemplate(player, setName, classIds), id);
+        MenuTemplate template = session.getTemplate();
+
+        Inventory inventory = plugin.getServer().createInventory(session, template.getSize(), template.getTitle());
+        session.setInventory(inventory);
+
+        checkBalances(player, session);
+        inventory.setContents(session.render(ownership));
+        player.openInventory(inventory);
+
+        if (!ownership.isLoaded(id)) {
+            refreshWhen(ownership.load(id), player, session);
+        }
+
+        return session;
+    }
+
+    /**
+     * Handles a click in a player's menu.
+     *
+     * @param player  The player.
+     * @param session Their menu.
+     * @param slot    The slot clicked.
+     */
+    public void click(final Player player, final MenuSession session, int slot) {
+        String classId = session.getTemplate().getClassId(slot);
+        if (classId == null) {
+            return;
+        }
+
+        plugin.getPurchaseService().purchase(player, classId).whenComplete(new BiConsumer<PurchaseResult, Throwable>() {
+            @Override
+            public void accept(PurchaseResult result, Throwable t) {
+                // The purchase may have changed balances as well as
+                // ownership; slots keep the old balance until the new one
+                // arrives.
+                if (session.isOpenBy(player)) {
+                    checkBalances(player, session);
+                    patchedSlots.add(session.update(plugin.getOwnershipStore()));
+                }
+            }
+        });
+    }
+
+    /**
+     * Drops every cached template. Open menus keep theirs.
+     */
+    public void invalidate() {
+        templates.clear();
+        table = null;
+        catalog = null;
+    }
+
+    /**
+     * @return The number of cached templates.
+     */
+    public int getTemplateCount() {
+        return templates.size();
+    }
+
+    private MenuTemplate getTemplate(Player player, String setName, List<String> classIds) {
+        PriceTable table = plugin.getPriceEngine().getTable();
+        MessageCatalog catalog = plugin.getMessenger().getCatalog();
+
+        // Prices and messages are reloaded by swapping them, so a template
+        // is stale exactly when these are no longer what it was built from.
+        if (table != this.table || catalog != this.catalog) {
+            templates.clear();
+            this.table = table;
+            this.catalog = catalog;
+        }
+
+        int[] groups = plugin.getPriceEngine().getPriceGroups(player, table);
+        String key = setName + "|" + (groups != null ? Arrays.toString(groups) : "free");
+
+        MenuTemplate template = templates.get(key);
+        if (template != null) {
+            cachedOpens.increment();
+            return template;
+        }
+
+        template = MenuTemplate.render(table, classIds, groups, catalog, plugin.getPurchaseService());
+        templates.put(key, template);
+        renderedOpens.increment();
+        log.debug("Rendered class menu {}", key);
+        return template;
+    }
+
+    // Reads the balances the menu's prices are compared with. Balances of
+    // backends that must run on the main thread are read directly; the rest
+    // are asked for in the background and patched in when they arrive.
+    private void checkBalances(final Player player, final MenuSession session) {
+        MenuTemplate template = session.getTemplate();
+        final UUID id = player.getUniqueId();
+
+        Set<EconomyBackend> backends = Collections.newSetFromMap(new IdentityHashMap<EconomyBackend, Boolean>());
+        for (int slot = 0; slot < template.getSize(); slot++) {
+            if (template.getClassId(slot) != null && template.getPrice(slot) > 0 && template.getBackend(slot) != null) {
+                backends.add(template.getBackend(slot));
+            }
+        }
+
+        for (final EconomyBackend backend : backends) {
+            if (backend instanceof MainThreadBackend) {
+                session.setBalance(backend, backend.getBalance(id));
+                continue;
+            }
+
+            plugin.getPurchaseService().getExecutor().submit(backend, new EconomyExecutor.Task<Double>() {
+                @Override
+                public Double run(EconomyBackend backend) {
+                    return backend.getBalance(id);
+                }
+            }).whenComplete(new BiConsumer<Double, Throwable>() {
+                @Override
+                public void accept(Double balance, Throwable t) {
+                    if (t != null) {
+                        // The slots stay as checking; clicking still tries.
+                        log.debug("Unable to check the balance of {} for the class menu: {}", id, t.toString());
+                        return;
+                    }
+
+                    if (session.isOpenBy(player)) {
+                        session.setBalance(backend, balance);
+                        patchedSlots.add(session.update(plugin.getOwnershipStore()));
+                    }
+                }
+            });
+        }
+    }
+
+    // Patches in a player's owned classes once they are loaded. Loads
+    // finish on the ownership thread.
+    private void refreshWhen(CompletableFuture<Set<String>> load, final Player player, final MenuSession session) {
+        load.thenRun(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    plugin.getServer().getScheduler().runTask(plugin, new Runnable() {
+                        @Override
+                        public void run() {
+                            if (session.isOpenBy(player)) {
+                                patchedSlots.add(session.update(plugin.getOwnershipStore()));
+                            }
+                        }
+                    });
+                } catch (RuntimeException e) {
+                    // Disabled; the menu is gone.
+                }
+            }
+        });
+    }
+}
@@ -0,0 +1,125 @@
+package me.gnat008.MobArenaBuyableClasses.gui;
+
+import me.gnat008.MobArenaBuyableClasses.economy.EconomyBackend;
+import me.gnat008.MobArenaBuyableClasses.ownership.OwnershipStore;
+import org.bukkit.entity.HumanEntity;
+import org.bukkit.inventory.Inventory;
+import org.bukkit.inventory.InventoryHolder;
+import org.bukkit.inventory.ItemStack;
+
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * One player's open class menu. It holds the menu's inventory, so clicks
+ * in it can be recognised, and the state each slot shows, so an update
+ * only touches the slots whose state changed. Main thread only.
+ */
+public final class MenuSession implements InventoryHolder {
+
+    private final MenuTemplate template;
+    private final UUID player;
+    private final int[] states;
+
+    // Balances known so far, by backend; a missing one is still coming.
+    private final Map<EconomyBackend, Double> balances = new IdentityHashMap<EconomyBackend, Double>(4);
+
+    private Inventory inventory;
+
+    MenuSession(MenuTemplate template, UUID player) {
+        this.template = template;
+        this.player = player;
+        this.states = new int[template.getSize()];
+    }
+
+    @Override
+    public Inventory getInventory() {
+        return inventory;
+    }
+
+    void setInventory(Inventory inventory) {
+        this.inventory = inventory;
+    }
+
+    MenuTemplate getTemplate() {
+        return template;
+    }
+
+    /**
+     * @return If this menu is still what a player has open.
+     */
+    boolean isOpenBy(HumanEntity viewer) {
+        return viewer.getOpenInventory() != null && viewer.getOpenInventory().getTopInventory().getHolder() == this;
+    }
+
+    void setBalance(EconomyBackend backend, double balance) {
+        balances.put(backend, balance);
+    }
+
+    /**
+     * Fills the menu's first contents from the template, for the player's
+     * ownership and the balances known so far.
+     *
+     * @return The contents.
+     */
+    ItemStack[] render(OwnershipStore ownership) {
+        ItemStack[] contents = new ItemStack[template.getSize()];
+
+        for (int slot = 0; slot < contents.length; slot++) {
+            String classId = template.getClassId(slot);
+            if (classId != null) {
+                states[slot] = state(slot, ownership.owns(player, classId));
+                contents[slot] = template.getItem(slot, states[slot]);
+            }
+        }
+
+        return contents;
+    }
+
+    /**
+     * Re-checks ownership and balances, replacing only the items of slots
+     * whose state changed.
+     *
+     * @return The number of slots replaced.
+     */
+    int update(OwnershipStore ownership) {
+        int changed = 0;
+
+        for (int slot = 0; slot < states.length; slot++) {
+            String classId = template.getClassId(slot);
+            if (classId == null) {
+                continue;
+            }
+
+            int state = state(slot, ownership.owns(player, classId));
+            if (state != states[slot]) {
+                states[slot] = state;
+                inventory.setItem(slot, template.getItem(slot, state));
+                changed++;
+            }
+        }
+
+        return changed;
+    }
+
+    private int state(int slot, boolean owned) {
+        double price = template.getPrice(slot);
+        EconomyBackend backend = template.getBackend(slot);
+
+        if (owned) {
+            return MenuTemplate.OWNED;
+        } else if (price == 0) {
+            return MenuTemplate.AFFORDABLE;
+        } else if (backend == null) {
+            return MenuTemplate.UNAFFORDABLE;
+        }
+
+        Double balance = balances.get(backend);
+        if (balance == null) {
+            return MenuTemplate.CHECKING;
+        }
+
+        return balance >= price ? MenuTemplate.AFFORDABLE : MenuTemplate.UNAFFORDABLE;
+    }
+}
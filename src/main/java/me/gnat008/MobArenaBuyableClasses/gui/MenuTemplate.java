@@ -0,0 +1,184 @@
+package me.gnat008.MobArenaBuyableClasses.gui;
+
+import me.gnat008.MobArenaBuyableClasses.economy.EconomyBackend;
+import me.gnat008.MobArenaBuyableClasses.messages.Message;
+import me.gnat008.MobArenaBuyableClasses.messages.MessageCatalog;
+import me.gnat008.MobArenaBuyableClasses.pricing.ClassDefinition;
+import me.gnat008.MobArenaBuyableClasses.pricing.PriceTable;
+import me.gnat008.MobArenaBuyableClasses.purchase.PurchaseService;
+import org.bukkit.ChatColor;
+import org.bukkit.inventory.ItemStack;
+import org.bukkit.inventory.meta.ItemMeta;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The class menu for one set of classes and one set of price groups,
+ * rendered once. Every slot has an item for each state it can be shown
+ * in, with the name, description and price already filled in, so opening
+ * the menu for a player only picks items. Bukkit copies items into an
+ * inventory, so the same items are shared by every open menu. Immutable.
+ */
+final class MenuTemplate {
+
+    static final int CHECKING = 0;
+    static final int OWNED = 1;
+    static final int AFFORDABLE = 2;
+    static final int UNAFFORDABLE = 3;
+
+    private static final int STATES = 4;
+    private static final int MAX_SIZE = 54;
+    private static final int MAX_TITLE = 32;
+
+    private final String title;
+    private final int size;
+    private final String[] classIds;
+    private final double[] prices;
+    private final EconomyBackend[] backends;
+    private final ItemStack[][] items;
+
+    private MenuTemplate(String title, int size, String[] classIds, double[] prices, EconomyBackend[] backends,
+                         ItemStack[][] items) {
+        this.title = title;
+        this.size = size;
+        this.classIds = classIds;
+        this.prices = prices;
+        this.backends = backends;
+        this.items = items;
+    }
+
+    /**
+     * Renders a menu. Must be called on the main thread.
+     *
+     * @param table     The price table.
+     * @param classIds  The classes to show, in order, or null for every
+     *                  class in the table. Unknown classes are left out.
+     * @param groups    The price groups, as from
+     *                  {@link me.gnat008.MobArenaBuyableClasses.pricing.PriceEngine#getPriceGroups},
+     *                  or null if every class is free.
+     * @param catalog   The texts.
+     * @param purchases The service whose backends classes are paid with.
+     * @return The template.
+     */
+    static MenuTemplate render(PriceTable table, List<String> classIds, int[] groups, MessageCatalog catalog,
+                               PurchaseService purchases) {
+        List<Integer> shown = new ArrayList<Integer>();
+        if (classIds == null) {
+            for (int c = 0; c < table.getClassCount() && shown.size() < MAX_SIZE; c++) {
+                shown.add(c);
+            }
+        } else {
+            for (String classId : classIds) {
+                int c = table.classIndex(classId);
+                if (c != PriceTable.NO_CLASS && shown.size() < MAX_SIZE) {
+                    shown.add(c);
+                }
+            }
+        }
+
+        int size = Math.max(9, (shown.size() + 8) / 9 * 9);
+        String[] ids = new String[size];
+        double[] prices = new double[size];
+        EconomyBackend[] backends = new EconomyBackend[size];
+        ItemStack[][] items = new ItemStack[STATES][size];
+
+        String checking = catalog.get(Message.MENU_CHECKING).format();
+        String owned = catalog.get(Message.MENU_OWNED).format();
+        String affordable = catalog.get(Message.MENU_AFFORDABLE).format();
+        String unaffordable = catalog.get(Message.MENU_UNAFFORDABLE).format();
+
+        for (int slot = 0; slot < shown.size(); slot++) {
+            int c = shown.get(slot);
+            ClassDefinition definition = table.definition(c);
+            double price = groups != null ? table.price(c, groups) : 0;
+
+            ids[slot] = definition.getId();
+            prices[slot] = price;
+            backends[slot] = purchases.getBackend(definition);
+
+            String name = catalog.get(Message.MENU_CLASS).format(definition.getId());
+            List<String> lore = new ArrayList<String>();
+            for (String line : definition.getDescription()) {
+                lore.add(ChatColor.translateAlternateColorCodes('&', line));
+            }
+
+            lore.add(priceLine(catalog, definition, price));
+
+            items[CHECKING][slot] = item(definition, name, lore, checking);
+            items[OWNED][slot] = item(definition, name, lore, owned);
+            items[AFFORDABLE][slot] = item(definition, name, lore, affordable);
+            items[UNAFFORDABLE][slot] = item(definition, name, lore, unaffordable);
+        }
+
+        // Longer titles make the client drop the window.
+        String title = catalog.get(Message.MENU_TITLE).format();
+        if (title.length() > MAX_TITLE) {
+            title = title.substring(0, MAX_TITLE);
+        }
+
+        return new MenuTemplate(title, size, ids, prices, backends, items);
+    }
+
+    String getTitle() {
+        return title;
+    }
+
+    int getSize() {
+        return size;
+    }
+
+    /**
+     * @return The class in a slot, or null if the slot is empty.
+     */
+    String getClassId(int slot) {
+        return slot >= 0 && slot < size ? classIds[slot] : null;
+    }
+
+    double getPrice(int slot) {
+        return prices[slot];
+    }
+
+    /**
+     * @return The backend the class in a slot is paid with, or null if
+     * there is none.
+     */
+    EconomyBackend getBackend(int slot) {
+        return backends[slot];
+    }
+
+    /**
+     * @return The item a slot shows in a state, or null if the slot is
+     * empty.
+     */
+    ItemStack getItem(int slot, int state) {
+        return items[state][slot];
+    }
+
+    private static String priceLine(MessageCatalog catalog, ClassDefinition definition, double price) {
+        if (price == 0) {
+            return catalog.get(Message.MENU_FREE).format();
+        } else if (definition.isPaidInItems()) {
+            String item = definition.getCurrencyItem().name().toLowerCase().replace('_', ' ');
+            return catalog.get(Message.MENU_PRICE_ITEMS).format(Math.ceil(price), item);
+        }
+
+        return catalog.get(Message.MENU_PRICE).format(price);
+    }
+
+    private static ItemStack item(ClassDefinition definition, String name, List<String> lore, String status) {
+        List<String> lines = new ArrayList<String>(lore.size() + 1);
+        lines.addAll(lore);
+        lines.add(status);
+
+        ItemStack item = new ItemStack(definition.getIcon());
+        ItemMeta meta = item.getItemMeta();
+        if (meta != null) {
+            meta.setDisplayName(name);
+            meta.setLore(lines);
+            item.setItemMeta(meta);
+        }
+
+        return item;
+    }
+}
@@ -0,0 +1,47 @@
+package me.gnat008.MobArenaBuyableClasses.listeners;
+
+import me.gnat008.MobArenaBuyableClasses.gui.ClassMenu;
+import me.gnat008.MobArenaBuyableClasses.gui.MenuSession;
+import org.bukkit.entity.Player;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.Listener;
+import org.bukkit.event.inventory.InventoryClickEvent;
+import org.bukkit.event.inventory.InventoryDragEvent;
+
+/**
+ * Turns clicks in a class menu into purchases, and keeps items from being
+ * taken out of or put into it.
+ */
+public class MenuListener implements Listener {
+
+    private final ClassMenu menu;
+
+    public MenuListener(ClassMenu menu) {
+        this.menu = menu;
+    }
+
+    @EventHandler(priority = EventPriority.HIGH)
+    public void onInventoryClick(InventoryClickEvent event) {
+        if (!(event.getView().getTopInventory().getHolder() instanceof MenuSession)) {
+            return;
+        }
+
+        // Cancel clicks in the player's own inventory too, so shift-clicks
+        // cannot move items into the menu.
+        event.setCancelled(true);
+
+        MenuSession session = (MenuSession) event.getView().getTopInventory().getHolder();
+        if (event.getWhoClicked() instanceof Player && event.getRawSlot() >= 0
+                && event.getRawSlot() < event.getView().getTopInventory().getSize()) {
+            menu.click((Player) event.getWhoClicked(), session, event.getRawSlot());
+        }
+    }
+
+    @EventHandler(priority = EventPriority.HIGH)
+    public void onInventoryDrag(InventoryDragEvent event) {
+        if (event.getView().getTopInventory().getHolder() instanceof MenuSession) {
+            event.setCancelled(true);
+        }
+    }
+}
@@ -0,0 +1,41 @@
+package me.gnat008.MobArenaBuyableClasses.listeners;
+
+import me.gnat008.MobArenaBuyableClasses.MABuyableClasses;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.Listener;
+import org.bukkit.event.player.PlayerChangedWorldEvent;
+import org.bukkit.event.player.PlayerJoinEvent;
+import org.bukkit.event.player.PlayerQuitEvent;
+
+/**
+ * Keeps per-player state in step with players joining and leaving.
+ */
+public class PlayerListener implements Listener {
+
+    private final MABuyableClasses plugin;
+
+    public PlayerListener(MABuyableClasses plugin) {
+        this.plugin = plugin;
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onPlayerJoin(PlayerJoinEvent event) {
+        plugin.getPermissionCache().invalidate(event.getPlayer().getUniqueId());
+        // Batched with everyone else joining around the same time.
+        plugin.getOwnershipPreloader().request(event.getPlayer().getUniqueId());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onPlayerQuit(PlayerQuitEvent event) {
+        plugin.getPermissionCache().remove(event.getPlayer().getUniqueId());
+        plugin.getOwnershipPreloader().cancel(event.getPlayer().getUniqueId());
+        plugin.getOwnershipStore().unload(event.getPlayer().getUniqueId());
+        plugin.getMessenger().remove(event.getPlayer().getUniqueId());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onPlayerChangedWorld(PlayerChangedWorldEvent event) {
+        plugin.getPermissionCache().invalidate(event.getPlayer().getUniqueId());
+    }
+}
@@ -0,0 +1,79 @@
+package me.gnat008.MobArenaBuyableClasses.listeners;
+
+import me.gnat008.MobArenaBuyableClasses.MABuyableClasses;
+import me.gnat008.MobArenaBuyableClasses.zones.PurchaseRegion;
+import me.gnat008.MobArenaBuyableClasses.zones.ZoneIndex;
+import me.gnat008.MobArenaBuyableClasses.zones.ZoneTracker;
+import org.bukkit.Location;
+import org.bukkit.Material;
+import org.bukkit.block.Block;
+import org.bukkit.entity.Player;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.Listener;
+import org.bukkit.event.block.Action;
+import org.bukkit.event.player.PlayerInteractEvent;
+import org.bukkit.event.player.PlayerMoveEvent;
+import org.bukkit.event.player.PlayerQuitEvent;
+import org.bukkit.event.player.PlayerTeleportEvent;
+
+/**
+ * Buys a class when a player clicks its purchase sign or walks into its
+ * purchase zone.
+ */
+public class ZoneListener implements Listener {
+
+    private final MABuyableClasses plugin;
+    private final ZoneIndex index;
+    private final ZoneTracker tracker;
+
+    public ZoneListener(MABuyableClasses plugin, ZoneIndex index, ZoneTracker tracker) {
+        this.plugin = plugin;
+        this.index = index;
+        this.tracker = tracker;
+    }
+
+    @EventHandler(priority = EventPriority.HIGH, ignoreCancelled = true)
+    public void onPlayerInteract(PlayerInteractEvent event) {
+        if (event.getAction() != Action.RIGHT_CLICK_BLOCK) {
+            return;
+        }
+
+        Block block = event.getClickedBlock();
+        if (block.getType() != Material.WALL_SIGN && block.getType() != Material.SIGN_POST) {
+            return;
+        }
+
+        PurchaseRegion sign = index.getSignAt(block.getWorld().getName(), block.getX(), block.getY(), block.getZ());
+        if (sign != null) {
+            event.setCancelled(true);
+            plugin.getPurchaseService().purchase(event.getPlayer(), sign.getClassId());
+        }
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onPlayerMove(PlayerMoveEvent event) {
+        moved(event.getPlayer(), event.getFrom(), event.getTo());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onPlayerTeleport(PlayerTeleportEvent event) {
+        moved(event.getPlayer(), event.getFrom(), event.getTo());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onPlayerQuit(PlayerQuitEvent event) {
+        tracker.remove(event.getPlayer().getUniqueId());
+    }
+
+    private void moved(Player player, Location from, Location to) {
+        if (to == null) {
+            return;
+        }
+
+        PurchaseRegion entered = tracker.move(player.getUniqueId(), from, to);
+        if (entered != null) {
+            plugin.getPurchaseService().purchase(player, entered.getClassId());
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package me.gnat008.MobArenaBuyableClasses.logging;
+
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Writes log events to the server console, prefixed with the plugin name
+ * and, for anything but the core of the plugin, the component that logged
+ * them. The server only prints INFO and above, so debug and trace messages
+ * are printed at INFO with a marker.
+ */
+public class ConsoleSink implements LogSink {
+
+    private static final String PREFIX = "[MABuyableClasses] ";
+
+    private final Logger logger;
+    private final StringBuilder buffer = new StringBuilder(256);
+
+    public ConsoleSink(Logger logger) {
+        this.logger = logger;
+    }
+
+    @Override
+    public synchronized void write(LogEvent event) {
+        buffer.setLength(0);
+        buffer.append(PREFIX);
+
+        if (event.getLevel().compareTo(LogLevel.INFO) < 0) {
+            buffer.append('[').append(event.getLevel().name().toLowerCase()).append("] ");
+        }
+
+        if (!event.getComponent().equals(Logs.CORE)) {
+            buffer.append('[').append(event.getComponent()).append("] ");
+        }
+
+        event.render(buffer);
+        logger.log(javaLevel(event.getLevel()), buffer.toString(), event.getThrown());
+    }
+
+    /**
+     * Writes a plain message, bypassing the pipeline. Used to report
+     * problems with logging itself.
+     *
+     * @param level   The level.
+     * @param message The message.
+     */
+    public void write(LogLevel level, String message) {
+        logger.log(javaLevel(level), PREFIX + message);
+    }
+
+    @Override
+    public void flush() {
+    }
+
+    @Override
+    public void close() {
+    }
+
+    private static Level javaLevel(LogLevel level) {
+        return level.compareTo(LogLevel.INFO) < 0 ? Level.INFO : level.getJavaLevel();
+    }
+}
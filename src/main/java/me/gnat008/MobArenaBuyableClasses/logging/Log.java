@@ -0,0 +1,191 @@
+package me.gnat008.MobArenaBuyableClasses.logging;
+
+import java.util.function.Supplier;
+
+/**
+ * The log of one component of the plugin. Logging hands the format and
+ * arguments to the {@link LogPipeline} and returns; the message is built
+ * and written on the logging thread, so arguments must not be changed
+ * after they are logged. Formats use "{}" for each argument, and an
+ * exception passed as the last argument is logged with its stack trace.
+ * Messages below the component's level cost a single field read.
+ * <p/>
+ * Get one from {@link Logs}.
+ */
+public final class Log {
+
+    private final String name;
+    private final LogSink sink;
+
+    private volatile LogLevel level = LogLevel.INFO;
+
+    Log(String name, LogSink sink) {
+        this.name = name;
+        this.sink = sink;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * @return The sink this log writes to, or null for the console.
+     */
+    LogSink getSink() {
+        return sink;
+    }
+
+    public LogLevel getLevel() {
+        return level;
+    }
+
+    void setLevel(LogLevel level) {
+        this.level = level;
+    }
+
+    /**
+     * @param level A level.
+     * @return If messages at the level would be logged.
+     */
+    public boolean isEnabled(LogLevel level) {
+        return level.compareTo(this.level) >= 0 && level != LogLevel.OFF;
+    }
+
+    public void trace(String message) {
+        log(LogLevel.TRACE, message, 0, null, null, null, null);
+    }
+
+    public void trace(String format, Object arg0) {
+        log(LogLevel.TRACE, format, 1, arg0, null, null, null);
+    }
+
+    public void trace(String format, Object arg0, Object arg1) {
+        log(LogLevel.TRACE, format, 2, arg0, arg1, null, null);
+    }
+
+    public void trace(String format, Object arg0, Object arg1, Object arg2) {
+        log(LogLevel.TRACE, format, 3, arg0, arg1, arg2, null);
+    }
+
+    public void trace(Supplier<String> message) {
+        log(LogLevel.TRACE, message);
+    }
+
+    public void debug(String message) {
+        log(LogLevel.DEBUG, message, 0, null, null, null, null);
+    }
+
+    public void debug(String format, Object arg0) {
+        log(LogLevel.DEBUG, format, 1, arg0, null, null, null);
+    }
+
+    public void debug(String format, Object arg0, Object arg1) {
+        log(LogLevel.DEBUG, format, 2, arg0, arg1, null, null);
+    }
+
+    public void debug(String format, Object arg0, Object arg1, Object arg2) {
+        log(LogLevel.DEBUG, format, 3, arg0, arg1, arg2, null);
+    }
+
+    public void debug(Supplier<String> message) {
+        log(LogLevel.DEBUG, message);
+    }
+
+    public void info(String message) {
+        log(LogLevel.INFO, message, 0, null, null, null, null);
+    }
+
+    public void info(String format, Object arg0) {
+        log(LogLevel.INFO, format, 1, arg0, null, null, null);
+    }
+
+    public void info(String format, Object arg0, Object arg1) {
+        log(LogLevel.INFO, format, 2, arg0, arg1, null, null);
+    }
+
+    public void info(String format, Object arg0, Object arg1, Object arg2) {
+        log(LogLevel.INFO, format, 3, arg0, arg1, arg2, null);
+    }
+
+    public void warn(String message) {
+        log(LogLevel.WARNING, message, 0, null, null, null, null);
+    }
+
+    public void warn(String format, Object arg0) {
+        log(LogLevel.WARNING, format, 1, arg0, null, null, null);
+    }
+
+    public void warn(String format, Object arg0, Object arg1) {
+        log(LogLevel.WARNING, format, 2, arg0, arg1, null, null);
+    }
+
+    public void warn(String format, Object arg0, Object arg1, Object arg2) {
+        log(LogLevel.WARNING, format, 3, arg0, arg1, arg2, null);
+    }
+
+    public void error(String message) {
+        log(LogLevel.ERROR, message, 0, null, null, null, null);
+    }
+
+    public void error(String format, Object arg0) {
+        log(LogLevel.ERROR, format, 1, arg0, null, null, null);
+    }
+
+    public void error(String format, Object arg0, Object arg1) {
+        log(LogLevel.ERROR, format, 2, arg0, arg1, null, null);
+    }
+
+    public void error(String format, Object arg0, Object arg1, Object arg2) {
+        log(LogLevel.ERROR, format, 3, arg0, arg1, arg2, null);
+    }
+
+    /**
+     * Logs a message with up to four arguments.
+     *
+     * @param level  The level.
+     * @param format The message format.
+     * @param args   The arguments; an exception last is logged with its
+     *               stack trace.
+     */
+    public void log(LogLevel level, String format, Object... args) {
+        if (!isEnabled(level)) {
+            return;
+        }
+
+        int argc = Math.min(args.length, LogEvent.MAX_ARGUMENTS);
+        log(level, format, argc, argc > 0 ? args[0] : null, argc > 1 ? args[1] : null,
+                argc > 2 ? args[2] : null, argc > 3 ? args[3] : null);
+    }
+
+    /**
+     * Logs a message computed only if the level is enabled. The supplier is
+     * called on the logging thread, so it must only read state that is safe
+     * to read from another thread.
+     *
+     * @param level   The level.
+     * @param message Supplies the message.
+     */
+    public void log(LogLevel level, Supplier<String> message) {
+        if (isEnabled(level)) {
+            Logs.publish(this, level, null, message, 0, null, null, null, null, null);
+        }
+    }
+
+    private void log(LogLevel level, String format, int argc, Object a0, Object a1, Object a2, Object a3) {
+        if (!isEnabled(level)) {
+            return;
+        }
+
+        // A trailing exception is logged as such rather than formatted.
+        Throwable thrown = null;
+        if (argc > 0) {
+            Object last = argc == 1 ? a0 : argc == 2 ? a1 : argc == 3 ? a2 : a3;
+            if (last instanceof Throwable) {
+                thrown = (Throwable) last;
+                argc--;
+            }
+        }
+
+        Logs.publish(this, level, format, null, argc, a0, a1, a2, a3, thrown);
+    }
+}
@@ -0,0 +1,108 @@
+package me.gnat008.MobArenaBuyableClasses.logging;
+
+import java.util.function.Supplier;
+
+/**
+ * One slot of the logging ring buffer. Slots are allocated once and
+ * refilled for every event, so logging allocates nothing beyond boxing the
+ * arguments passed. The message is only rendered, from its format and
+ * arguments, on the logging thread.
+ */
+public final class LogEvent {
+
+    static final int MAX_ARGUMENTS = 4;
+
+    // The sequence number of the event held, published last.
+    volatile long sequence;
+
+    Log log;
+    LogLevel level;
+    long time;
+
+    String format;
+    Supplier<String> supplier;
+    final Object[] args = new Object[MAX_ARGUMENTS];
+    int argc;
+    Throwable thrown;
+
+    LogEvent(long sequence) {
+        this.sequence = sequence;
+    }
+
+    void set(Log log, LogLevel level, String format, Supplier<String> supplier, int argc,
+             Object a0, Object a1, Object a2, Object a3, Throwable thrown) {
+        this.log = log;
+        this.level = level;
+        this.time = System.currentTimeMillis();
+        this.format = format;
+        this.supplier = supplier;
+        this.argc = argc;
+        args[0] = a0;
+        args[1] = a1;
+        args[2] = a2;
+        args[3] = a3;
+        this.thrown = thrown;
+    }
+
+    void clear() {
+        log = null;
+        format = null;
+        supplier = null;
+        args[0] = args[1] = args[2] = args[3] = null;
+        thrown = null;
+    }
+
+    /**
+     * @return The name of the component that logged the event.
+     */
+    public String getComponent() {
+        return log.getName();
+    }
+
+    public LogLevel getLevel() {
+        return level;
+    }
+
+    /**
+     * @return When the event was logged, in milliseconds since the epoch.
+     */
+    public long getTime() {
+        return time;
+    }
+
+    /**
+     * @return The exception logged with the event, or null.
+     */
+    public Throwable getThrown() {
+        return thrown;
+    }
+
+    /**
+     * Appends the message to a buffer, replacing each "{}" in its format
+     * with the next argument. A supplied message is computed here.
+     *
+     * @param buffer The buffer.
+     */
+    public void render(StringBuilder buffer) {
+        if (supplier != null) {
+            try {
+                buffer.append(supplier.get());
+            } catch (RuntimeException e) {
+                buffer.append("<message failed: ").append(e).append('>');
+            }
+
+            return;
+        }
+
+        int arg = 0;
+        int start = 0;
+        int at;
+
+        while ((at = format.indexOf("{}", start)) >= 0 && arg < argc) {
+            buffer.append(format, start, at).append(args[arg++]);
+            start = at + 2;
+        }
+
+        buffer.append(format, start, format.length());
+    }
+}
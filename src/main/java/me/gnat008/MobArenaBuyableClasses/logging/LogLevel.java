@@ -0,0 +1,46 @@
+package me.gnat008.MobArenaBuyableClasses.logging;
+
+import java.util.logging.Level;
+
+/**
+ * The levels the plugin logs at, from most to least verbose. A component
+ * set to a level logs messages at that level and above; OFF logs nothing.
+ */
+public enum LogLevel {
+
+    TRACE(Level.FINEST),
+    DEBUG(Level.FINE),
+    INFO(Level.INFO),
+    WARNING(Level.WARNING),
+    ERROR(Level.SEVERE),
+    OFF(Level.OFF);
+
+    private final Level level;
+
+    private LogLevel(Level level) {
+        this.level = level;
+    }
+
+    /**
+     * @return The matching java.util.logging level.
+     */
+    public Level getJavaLevel() {
+        return level;
+    }
+
+    /**
+     * Looks up a level by name, ignoring case.
+     *
+     * @param name The name.
+     * @return The level, or null if there is none by that name.
+     */
+    public static LogLevel fromName(String name) {
+        for (LogLevel level : values()) {
+            if (level.name().equalsIgnoreCase(name.trim())) {
+                return level;
+            }
+        }
+
+        return null;
+    }
+}
@@ -0,0 +1,255 @@
+package me.gnat008.MobArenaBuyableClasses.logging;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Supplier;
+
+/**
+ * Moves log events from the threads that log them to a background thread
+ * that renders and writes them. Events are claimed in a fixed ring of
+ * reusable slots with a single compare-and-set, so logging never takes a
+ * lock or waits on I/O. When the ring is full the event is dropped and
+ * counted, rather than making the caller wait; the logging thread reports
+ * how many were dropped.
+ * <p/>
+ * The logging thread drains everything published, writes it, then flushes
+ * each sink it wrote to once, so a burst of events costs one flush.
+ */
+public class LogPipeline implements Runnable {
+
+    private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+
+    private final LogEvent[] slots;
+    private final int mask;
+    private final ConsoleSink console;
+
+    // The next sequence to claim, and the next one the logging thread reads.
+    private final AtomicLong next = new AtomicLong();
+    private volatile long consumed;
+
+    private volatile boolean running = true;
+    private volatile boolean sleeping;
+    private final Thread thread;
+
+    private final LongAdder dropped = new LongAdder();
+    private volatile long written;
+    private long reportedDrops;
+
+    private final List<LogSink> batchSinks = new ArrayList<LogSink>();
+    private final Set<LogSink> failedSinks = Collections.newSetFromMap(new IdentityHashMap<LogSink, Boolean>());
+
+    /**
+     * @param capacity The number of slots, rounded up to a power of two.
+     * @param console  Where events of logs without their own sink go.
+     */
+    public LogPipeline(int capacity, ConsoleSink console) {
+        int size = Integer.highestOneBit(Math.max(capacity, 2) - 1) << 1;
+
+        this.slots = new LogEvent[size];
+        this.mask = size - 1;
+        this.console = console;
+
+        // A slot is free for sequence s once it holds s - size.
+        for (int i = 0; i < size; i++) {
+            slots[i] = new LogEvent(i - size);
+        }
+
+        this.thread = new Thread(this, "MABuyableClasses-Logging");
+        this.thread.setDaemon(true);
+    }
+
+    public void start() {
+        thread.start();
+    }
+
+    /**
+     * Hands an event to the logging thread.
+     *
+     * @return False if the pipeline is stopped and the caller should write
+     * the event itself. A full ring drops the event and returns true.
+     */
+    boolean publish(Log log, LogLevel level, String format, Supplier<String> supplier, int argc,
+                    Object a0, Object a1, Object a2, Object a3, Throwable thrown) {
+        if (!running) {
+            return false;
+        }
+
+        long sequence;
+        do {
+            sequence = next.get();
+            if (sequence - consumed >= slots.length) {
+                dropped.increment();
+                return true;
+            }
+        } while (!next.compareAndSet(sequence, sequence + 1));
+
+        LogEvent event = slots[(int) (sequence & mask)];
+        event.set(log, level, format, supplier, argc, a0, a1, a2, a3, thrown);
+        event.sequence = sequence;
+
+        if (sleeping) {
+            sleeping = false;
+            LockSupport.unpark(thread);
+        }
+
+        return true;
+    }
+
+    /**
+     * Stops taking events and waits for the logging thread to write those
+     * already published, then closes the sinks it wrote to.
+     *
+     * @param timeoutMillis How long to wait.
+     */
+    public void close(long timeoutMillis) {
+        running = false;
+        LockSupport.unpark(thread);
+
+        try {
+            thread.join(timeoutMillis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * @return The number of events written.
+     */
+    public long getWrittenCount() {
+        return written;
+    }
+
+    /**
+     * @return The number of events dropped because the ring was full.
+     */
+    public long getDroppedCount() {
+        return dropped.sum();
+    }
+
+    /**
+     * @return The number of events waiting to be written.
+     */
+    public int getQueueDepth() {
+        return (int) Math.max(0, next.get() - consumed);
+    }
+
+    @Override
+    public void run() {
+        List<LogSink> used = new ArrayList<LogSink>();
+
+        while (true) {
+            int count = drain();
+
+            if (count > 0) {
+                flushBatch(used);
+                reportDrops();
+                continue;
+            }
+
+            if (!running) {
+                // Anything claimed before the stop is still written.
+                if (next.get() == consumed) {
+                    break;
+                }
+
+                Thread.yield();
+                continue;
+            }
+
+            // Publishers check this flag after publishing, so either they
+            // see it and wake us, or we see their event below.
+            sleeping = true;
+            if (slots[(int) (consumed & mask)].sequence != consumed) {
+                LockSupport.parkNanos(this, IDLE_PARK_NANOS);
+            }
+
+            sleeping = false;
+        }
+
+        reportDrops();
+        for (LogSink sink : used) {
+            sink.close();
+        }
+    }
+
+    private int drain() {
+        int count = 0;
+        long sequence = consumed;
+
+        while (true) {
+            LogEvent event = slots[(int) (sequence & mask)];
+            if (event.sequence != sequence) {
+                break;
+            }
+
+            write(event);
+            event.clear();
+
+            // Frees the slot for sequence + slots.length.
+            consumed = ++sequence;
+            count++;
+        }
+
+        written += count;
+        return count;
+    }
+
+    private void write(LogEvent event) {
+        LogSink sink = event.log.getSink();
+        if (sink == null) {
+            sink = console;
+        }
+
+        try {
+            sink.write(event);
+        } catch (IOException e) {
+            failed(sink, e);
+        } catch (RuntimeException e) {
+            failed(sink, e);
+        }
+
+        if (!batchSinks.contains(sink)) {
+            batchSinks.add(sink);
+        }
+    }
+
+    private void flushBatch(List<LogSink> used) {
+        for (LogSink sink : batchSinks) {
+            try {
+                sink.flush();
+            } catch (IOException e) {
+                failed(sink, e);
+            }
+
+            if (!used.contains(sink)) {
+                used.add(sink);
+            }
+        }
+
+        batchSinks.clear();
+    }
+
+    // Reports the first failure of each sink only, so a full disk doesn't
+    // flood the console.
+    private void failed(LogSink sink, Exception e) {
+        if (failedSinks.add(sink)) {
+            console.write(LogLevel.ERROR, "Unable to write to log " + sink + ": " + e);
+        }
+    }
+
+    private void reportDrops() {
+        long drops = dropped.sum();
+        if (drops > reportedDrops) {
+            console.write(LogLevel.WARNING, "Dropped " + (drops - reportedDrops) + " log messages; the log buffer was full.");
+            reportedDrops = drops;
+        }
+    }
+}
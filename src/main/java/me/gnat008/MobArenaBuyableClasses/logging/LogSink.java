@@ -0,0 +1,31 @@
+package me.gnat008.MobArenaBuyableClasses.logging;
+
+import java.io.IOException;
+
+/**
+ * Where log events end up. Sinks are only called from the logging thread,
+ * or, before the pipeline has started or after it has stopped, from
+ * whichever thread logs, one at a time.
+ */
+public interface LogSink {
+
+    /**
+     * Writes one event. The event is reused once this returns.
+     *
+     * @param event The event.
+     * @throws IOException If it could not be written.
+     */
+    void write(LogEvent event) throws IOException;
+
+    /**
+     * Flushes anything buffered, after a batch of events was written.
+     *
+     * @throws IOException If it could not be flushed.
+     */
+    void flush() throws IOException;
+
+    /**
+     * Releases the sink, once nothing more will be logged to it.
+     */
+    void close();
+}
@@ -0,0 +1,172 @@
+package me.gnat008.MobArenaBuyableClasses.logging;
+
+import org.bukkit.Bukkit;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Supplier;
+import java.util.logging.Logger;
+
+/**
+ * Hands out the {@link Log} of each component and owns the running
+ * {@link LogPipeline}. Until the pipeline is started, and after it is
+ * stopped, events are written straight away by the thread that logs them.
+ */
+public final class Logs {
+
+    /**
+     * The component of messages about the plugin as a whole, printed
+     * without a component tag.
+     */
+    public static final String CORE = "core";
+
+    private static final ConcurrentMap<String, Log> logs = new ConcurrentHashMap<String, Log>();
+    private static final ConsoleSink console = new ConsoleSink(consoleLogger());
+
+    private static volatile LogPipeline pipeline;
+
+    private static volatile LogLevel defaultLevel = LogLevel.INFO;
+    private static volatile Map<String, LogLevel> levels = Collections.emptyMap();
+
+    // Used to write events directly while no pipeline runs.
+    private static final LogEvent direct = new LogEvent(0);
+
+    private Logs() {
+    }
+
+    /**
+     * Gets the log of a component, which writes to the console.
+     *
+     * @param name The component's name.
+     * @return The log.
+     */
+    public static Log get(String name) {
+        return get(name, null);
+    }
+
+    /**
+     * Gets the log of a component with its own sink, such as a separate
+     * file. The sink is fixed by whoever gets the log first.
+     *
+     * @param name The component's name.
+     * @param sink The sink, or null for the console.
+     * @return The log.
+     */
+    public static Log get(String name, LogSink sink) {
+        Log log = logs.get(name);
+        if (log == null) {
+            log = new Log(name, sink);
+            log.setLevel(levelOf(name));
+
+            Log existing = logs.putIfAbsent(name, log);
+            if (existing != null) {
+                log = existing;
+            }
+        }
+
+        return log;
+    }
+
+    /**
+     * Sets the level of every component.
+     *
+     * @param level     The level of components not listed.
+     * @param overrides Levels of single components, as "component=level".
+     * @return The overrides that could not be understood.
+     */
+    public static List<String> configure(LogLevel level, List<String> overrides) {
+        Map<String, LogLevel> parsed = new HashMap<String, LogLevel>();
+        List<String> invalid = new ArrayList<String>();
+
+        for (String override : overrides) {
+            int split = override.indexOf('=');
+            LogLevel parsedLevel = split > 0 ? LogLevel.fromName(override.substring(split + 1)) : null;
+
+            if (parsedLevel == null) {
+                invalid.add(override);
+            } else {
+                parsed.put(override.substring(0, split).trim().toLowerCase(), parsedLevel);
+            }
+        }
+
+        defaultLevel = level;
+        levels = parsed;
+
+        for (Log log : logs.values()) {
+            log.setLevel(levelOf(log.getName()));
+        }
+
+        return invalid;
+    }
+
+    /**
+     * Starts writing events on a background thread.
+     *
+     * @param capacity How many events may wait to be written before more
+     *                 are dropped.
+     * @return The pipeline.
+     */
+    public static synchronized LogPipeline start(int capacity) {
+        if (pipeline == null) {
+            LogPipeline started = new LogPipeline(capacity, console);
+            started.start();
+            pipeline = started;
+        }
+
+        return pipeline;
+    }
+
+    /**
+     * Writes what is still waiting and stops the background thread.
+     *
+     * @param timeoutMillis How long to wait for the writes.
+     */
+    public static synchronized void stop(long timeoutMillis) {
+        LogPipeline stopping = pipeline;
+        if (stopping != null) {
+            pipeline = null;
+            stopping.close(timeoutMillis);
+        }
+    }
+
+    /**
+     * @return The running pipeline, or null.
+     */
+    public static LogPipeline getPipeline() {
+        return pipeline;
+    }
+
+    static void publish(Log log, LogLevel level, String format, Supplier<String> supplier, int argc,
+                        Object a0, Object a1, Object a2, Object a3, Throwable thrown) {
+        LogPipeline current = pipeline;
+        if (current != null && current.publish(log, level, format, supplier, argc, a0, a1, a2, a3, thrown)) {
+            return;
+        }
+
+        LogSink sink = log.getSink() != null ? log.getSink() : console;
+
+        synchronized (direct) {
+            direct.set(log, level, format, supplier, argc, a0, a1, a2, a3, thrown);
+
+            try {
+                sink.write(direct);
+                sink.flush();
+            } catch (Exception e) {
+                console.write(LogLevel.ERROR, "Unable to write to log " + sink + ": " + e);
+            } finally {
+                direct.clear();
+            }
+        }
+    }
+
+    private static LogLevel levelOf(String name) {
+        LogLevel level = levels.get(name);
+        return level != null ? level : defaultLevel;
+    }
+
+    private static Logger consoleLogger() {
+        Logger logger = Bukkit.getServer() != null ? Bukkit.getLogger() : null;
+        return logger != null ? logger : Logger.getLogger("Minecraft");
+    }
+}
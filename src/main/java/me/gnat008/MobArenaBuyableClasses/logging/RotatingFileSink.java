@@ -0,0 +1,123 @@
+package me.gnat008.MobArenaBuyableClasses.logging;
+
+import java.io.*;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.time.Instant;
+import java.time.format.DateTimeFormatter;
+
+/**
+ * Appends log events to a file, one line each, starting with the time in
+ * UTC. When the file would grow past its size limit it is renamed to
+ * "&lt;name&gt;.1", older files move up one number, and the oldest beyond
+ * the limit is deleted.
+ */
+public class RotatingFileSink implements LogSink {
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+    private static final byte[] LINE_BREAK = System.getProperty("line.separator").getBytes(UTF_8);
+
+    private final File file;
+    private final long maxBytes;
+    private final int maxFiles;
+
+    private final StringBuilder buffer = new StringBuilder(256);
+
+    private OutputStream output;
+    private long size;
+
+    /**
+     * @param file     The file to write.
+     * @param maxBytes How big the file may grow before it is rotated.
+     * @param maxFiles How many rotated files to keep.
+     */
+    public RotatingFileSink(File file, long maxBytes, int maxFiles) {
+        this.file = file;
+        this.maxBytes = maxBytes;
+        this.maxFiles = maxFiles;
+    }
+
+    @Override
+    public synchronized void write(LogEvent event) throws IOException {
+        buffer.setLength(0);
+        DateTimeFormatter.ISO_INSTANT.formatTo(Instant.ofEpochMilli(event.getTime()), buffer);
+        buffer.append(' ');
+        event.render(buffer);
+
+        if (event.getThrown() != null) {
+            StringWriter trace = new StringWriter();
+            event.getThrown().printStackTrace(new PrintWriter(trace));
+            buffer.append(System.getProperty("line.separator")).append(trace.toString().trim());
+        }
+
+        byte[] line = buffer.toString().getBytes(UTF_8);
+        long length = line.length + LINE_BREAK.length;
+
+        if (output == null) {
+            open();
+        } else if (size > 0 && size + length > maxBytes) {
+            rotate();
+        }
+
+        output.write(line);
+        output.write(LINE_BREAK);
+        size += length;
+    }
+
+    @Override
+    public synchronized void flush() throws IOException {
+        if (output != null) {
+            output.flush();
+        }
+    }
+
+    @Override
+    public synchronized void close() {
+        if (output == null) {
+            return;
+        }
+
+        try {
+            output.close();
+        } catch (IOException e) {
+
+        } finally {
+            output = null;
+        }
+    }
+
+    public File getFile() {
+        return file;
+    }
+
+    @Override
+    public String toString() {
+        return file.getName();
+    }
+
+    private void open() throws IOException {
+        File parent = file.getAbsoluteFile().getParentFile();
+        if (parent != null && !parent.exists()) {
+            parent.mkdirs();
+        }
+
+        output = new BufferedOutputStream(new FileOutputStream(file, true), 8192);
+        size = file.length();
+    }
+
+    private void rotate() throws IOException {
+        close();
+
+        new File(file.getPath() + "." + maxFiles).delete();
+        for (int i = maxFiles - 1; i >= 1; i--) {
+            File older = new File(file.getPath() + "." + i);
+            if (older.exists()) {
+                Files.move(older.toPath(), new File(file.getPath() + "." + (i + 1)).toPath(), StandardCopyOption.REPLACE_EXISTING);
+            }
+        }
+
+        Files.move(file.toPath(), new File(file.getPath() + ".1").toPath(), StandardCopyOption.REPLACE_EXISTING);
+        open();
+    }
+}
@@ -0,0 +1,121 @@
+package me.gnat008.MobArenaBuyableClasses.messages;
+
+import me.gnat008.MobArenaBuyableClasses.purchase.PurchaseResult;
+
+/**
+ * The messages the plugin sends to players. Each has a path in the
+ * messages file, the text used when the file does not set one, and the
+ * names of the placeholders its text may use, in the order their values
+ * are passed when sending. Labels, such as the texts of the class menu,
+ * are shown without a prefix.
+ */
+public enum Message {
+
+    CLASS_UNLOCKED("purchase.unlocked", false, "You unlocked &e{class}&a for &e{price}&a.", "class", "price"),
+    CLASS_UNLOCKED_FREE("purchase.unlocked-free", false, "You unlocked &e{class}&a.", "class"),
+    ALREADY_OWNED("purchase.already-owned", true, "You already own &e{class}&c.", "class"),
+    INSUFFICIENT_FUNDS("purchase.insufficient-funds", true, "You can't afford &e{class}&c; it costs &e{price}&c.", "class", "price"),
+    NOT_LOADED("purchase.not-loaded", true, "Your classes are still loading, try again in a moment."),
+    NOT_BUYABLE("purchase.not-buyable", true, "&e{class}&c can't be bought.", "class"),
+    NO_ECONOMY("purchase.no-economy", true, "There is no economy to pay for &e{class}&c with.", "class"),
+    TIMED_OUT("purchase.timed-out", true, "The economy took too long to answer; you were not charged for &e{class}&c.", "class"),
+    BUSY("purchase.busy", true, "Too many purchases are in progress, try again in a moment."),
+    NO_PERMISSION("command.no-permission", true, "You don't have permission to do that."),
+
+    MENU_TITLE("menu.title", "Buy a class"),
+    MENU_CLASS("menu.class", "&e{class}", "class"),
+    MENU_PRICE("menu.price", "&7Price: &e{price}", "price"),
+    MENU_PRICE_ITEMS("menu.price-items", "&7Price: &e{price} {item}", "price", "item"),
+    MENU_FREE("menu.free", "&7Price: &afree"),
+    MENU_CHECKING("menu.checking", "&7Checking your balance..."),
+    MENU_OWNED("menu.owned", "&aOwned"),
+    MENU_AFFORDABLE("menu.affordable", "&aClick to buy"),
+    MENU_UNAFFORDABLE("menu.unaffordable", "&cYou can't afford this");
+
+    private final String path;
+    private final boolean warning;
+    private final boolean label;
+    private final String defaultText;
+    private final String[] placeholders;
+
+    private Message(String path, boolean warning, String defaultText, String... placeholders) {
+        this.path = path;
+        this.warning = warning;
+        this.label = false;
+        this.defaultText = defaultText;
+        this.placeholders = placeholders;
+    }
+
+    private Message(String path, String defaultText, String... placeholders) {
+        this.path = path;
+        this.warning = false;
+        this.label = true;
+        this.defaultText = defaultText;
+        this.placeholders = placeholders;
+    }
+
+    /**
+     * @return The path of the message's text in the messages file.
+     */
+    public String getPath() {
+        return path;
+    }
+
+    /**
+     * @return If the message is shown with the warning prefix.
+     */
+    public boolean isWarning() {
+        return warning;
+    }
+
+    /**
+     * @return If the message is a label, shown without a prefix.
+     */
+    public boolean isLabel() {
+        return label;
+    }
+
+    public String getDefaultText() {
+        return defaultText;
+    }
+
+    /**
+     * @return The number of values the message is sent with.
+     */
+    public int getArgumentCount() {
+        return placeholders.length;
+    }
+
+    String[] getPlaceholders() {
+        return placeholders;
+    }
+
+    /**
+     * Gets the message telling a player the outcome of a purchase. Free
+     * classes get their own message, as the price would only read "0".
+     *
+     * @param result The outcome.
+     * @param free   If the class cost nothing.
+     * @return The message, taking the class and its price as values.
+     */
+    public static Message forResult(PurchaseResult result, boolean free) {
+        switch (result) {
+            case SUCCESS:
+                return free ? CLASS_UNLOCKED_FREE : CLASS_UNLOCKED;
+            case ALREADY_OWNED:
+                return ALREADY_OWNED;
+            case INSUFFICIENT_FUNDS:
+                return INSUFFICIENT_FUNDS;
+            case NOT_LOADED:
+                return NOT_LOADED;
+            case NO_ECONOMY:
+                return NO_ECONOMY;
+            case TIMED_OUT:
+                return TIMED_OUT;
+            case BUSY:
+                return BUSY;
+            default:
+                return NOT_BUYABLE;
+        }
+    }
+}
@@ -0,0 +1,114 @@
+package me.gnat008.MobArenaBuyableClasses.messages;
+
+import me.gnat008.MobArenaBuyableClasses.exceptions.YAMLProcessorException;
+import me.gnat008.MobArenaBuyableClasses.util.YAMLFormat;
+import me.gnat008.MobArenaBuyableClasses.util.YAMLNode;
+import me.gnat008.MobArenaBuyableClasses.util.YAMLProcessor;
+import org.bukkit.ChatColor;
+import org.yaml.snakeyaml.error.YAMLException;
+
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * The compiled templates of every {@link Message} in one language. A
+ * catalog is immutable once loaded; a reload builds a new one.
+ */
+public final class MessageCatalog {
+
+    private static final String DEFAULT_INFO_PREFIX = "&a[MABuyableClasses] ";
+    private static final String DEFAULT_WARNING_PREFIX = "&c[MABuyableClasses] ";
+
+    private final MessageTemplate[] templates;
+
+    private MessageCatalog(MessageTemplate[] templates) {
+        this.templates = templates;
+    }
+
+    /**
+     * @return A catalog of the built-in texts.
+     */
+    public static MessageCatalog defaults() {
+        return compile(YAMLProcessor.getEmptyNode(false));
+    }
+
+    /**
+     * Loads a catalog from a messages file, adding the built-in text of any
+     * message the file is missing and saving it if it changed. A file that
+     * cannot be read or parsed is never saved over; use {@link #defaults()}
+     * instead.
+     *
+     * @param file The messages file, which need not exist yet.
+     * @return The catalog.
+     * @throws IOException If the file exists but cannot be read or parsed.
+     */
+    public static MessageCatalog load(File file) throws IOException {
+        YAMLProcessor processor = new YAMLProcessor(file, true, YAMLFormat.EXTENDED);
+        if (file.exists()) {
+            try {
+                processor.replaceRoot(processor.parse(processor.readBytes()));
+            } catch (YAMLProcessorException e) {
+                throw new IOException(e.getMessage(), e);
+            } catch (YAMLException e) {
+                throw new IOException(e.getMessage(), e);
+            }
+        }
+
+        boolean complete = isComplete(processor);
+        MessageCatalog catalog = compile(processor);
+
+        // Defaults were written for anything missing.
+        if (!complete) {
+            processor.save();
+        }
+
+        return catalog;
+    }
+
+    /**
+     * Gets the compiled template of a message.
+     *
+     * @param message The message.
+     * @return The template.
+     */
+    public MessageTemplate get(Message message) {
+        return templates[message.ordinal()];
+    }
+
+    private static MessageCatalog compile(YAMLNode node) {
+        String info = ChatColor.translateAlternateColorCodes('&', getString(node, "prefix.info", DEFAULT_INFO_PREFIX));
+        String warning = ChatColor.translateAlternateColorCodes('&', getString(node, "prefix.warning", DEFAULT_WARNING_PREFIX));
+
+        Message[] messages = Message.values();
+        MessageTemplate[] templates = new MessageTemplate[messages.length];
+
+        for (Message message : messages) {
+            String text = getString(node, "messages." + message.getPath(), message.getDefaultText());
+            templates[message.ordinal()] = MessageTemplate.compile(message.isLabel() ? "" : message.isWarning() ? warning : info,
+                    text, message.getPlaceholders());
+        }
+
+        return new MessageCatalog(templates);
+    }
+
+    // Gets a string, falling back to the default whether or not the node
+    // writes defaults.
+    private static String getString(YAMLNode node, String path, String def) {
+        String value = node.getString(path, def);
+        return value != null ? value : def;
+    }
+
+    private static boolean isComplete(YAMLNode node) {
+        if (node.getString("prefix.info") == null || node.getString("prefix.warning") == null) {
+            return false;
+        }
+
+        for (Message message : Message.values()) {
+            if (node.getString("messages." + message.getPath()) == null) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+}
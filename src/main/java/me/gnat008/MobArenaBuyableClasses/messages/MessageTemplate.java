@@ -0,0 +1,138 @@
+package me.gnat008.MobArenaBuyableClasses.messages;
+
+import org.bukkit.ChatColor;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A message text compiled once into the literal runs between its
+ * placeholders, with colour codes already translated and the chat prefix
+ * already prepended. Rendering appends the runs and values to a buffer the
+ * caller owns, so nothing is parsed or concatenated per message. A text
+ * without placeholders is kept as a finished string.
+ */
+public final class MessageTemplate {
+
+    private final String[] literals;
+    private final int[] arguments;
+    private final String constant;
+
+    private MessageTemplate(String[] literals, int[] arguments) {
+        this.literals = literals;
+        this.arguments = arguments;
+        this.constant = arguments.length == 0 ? literals[0] : null;
+    }
+
+    /**
+     * Compiles a message text. Placeholders are written as {name}, and are
+     * replaced by the value at the name's position in the placeholder list.
+     * Braces around any other name are left as they are. Colour codes are
+     * written with '&amp;'.
+     *
+     * @param prefix       The already translated text put before the
+     *                     message.
+     * @param text         The message text.
+     * @param placeholders The placeholder names, in argument order.
+     * @return The template.
+     */
+    public static MessageTemplate compile(String prefix, String text, String... placeholders) {
+        String translated = ChatColor.translateAlternateColorCodes('&', text);
+
+        List<String> literals = new ArrayList<String>();
+        List<Integer> arguments = new ArrayList<Integer>();
+        StringBuilder literal = new StringBuilder(prefix);
+
+        int i = 0;
+        while (i < translated.length()) {
+            char c = translated.charAt(i);
+            int close = c == '{' ? translated.indexOf('}', i + 1) : -1;
+            int index = close > 0 ? indexOf(placeholders, translated.substring(i + 1, close)) : -1;
+
+            if (index < 0) {
+                literal.append(c);
+                i++;
+                continue;
+            }
+
+            literals.add(literal.toString());
+            arguments.add(index);
+            literal.setLength(0);
+            i = close + 1;
+        }
+
+        literals.add(literal.toString());
+
+        int[] args = new int[arguments.size()];
+        for (int j = 0; j < args.length; j++) {
+            args[j] = arguments.get(j);
+        }
+
+        return new MessageTemplate(literals.toArray(new String[literals.size()]), args);
+    }
+
+    /**
+     * @return The finished text if the template has no placeholders,
+     * otherwise null.
+     */
+    public String getConstant() {
+        return constant;
+    }
+
+    /**
+     * Appends the message to a buffer.
+     *
+     * @param buffer The buffer.
+     * @param args   The values of the placeholders, in order. Whole doubles
+     *               are written without a fraction.
+     */
+    public void render(StringBuilder buffer, Object[] args) {
+        buffer.append(literals[0]);
+
+        for (int i = 0; i < arguments.length; i++) {
+            appendValue(buffer, args[arguments[i]]);
+            buffer.append(literals[i + 1]);
+        }
+    }
+
+    /**
+     * Renders the message to a string.
+     *
+     * @param args The values of the placeholders, in order.
+     * @return The message.
+     */
+    public String format(Object... args) {
+        if (constant != null) {
+            return constant;
+        }
+
+        StringBuilder buffer = new StringBuilder();
+        render(buffer, args);
+        return buffer.toString();
+    }
+
+    private static void appendValue(StringBuilder buffer, Object value) {
+        if (value instanceof String) {
+            buffer.append((String) value);
+            return;
+        } else if (value instanceof Double || value instanceof Float) {
+            double d = ((Number) value).doubleValue();
+            if (d == Math.rint(d) && Math.abs(d) < 1e15) {
+                buffer.append((long) d);
+                return;
+            }
+        }
+
+        buffer.append(value);
+    }
+
+    private static int indexOf(String[] names, String name) {
+        for (int i = 0; i < names.length; i++) {
+            if (names[i].equals(name)) {
+                return i;
+            }
+        }
+
+        return -1;
+    }
+}
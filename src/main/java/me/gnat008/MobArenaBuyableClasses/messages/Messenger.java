@@ -0,0 +1,239 @@
+package me.gnat008.MobArenaBuyableClasses.messages;
+
+import me.gnat008.MobArenaBuyableClasses.metrics.Counter;
+import me.gnat008.MobArenaBuyableClasses.metrics.MetricsRegistry;
+import me.gnat008.MobArenaBuyableClasses.purchase.PurchaseResult;
+import org.bukkit.entity.Player;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Sends catalog messages to players, dropping a message that repeats the
+ * last one a player was sent within the deduplication window, and any
+ * message past a player's rate limit. Messages are rendered into a shared
+ * buffer and compared against the last one sent before a string is made,
+ * so a dropped message costs no allocation, and a sent one costs only its
+ * final string. A message over the rate limit is dropped before it is even
+ * rendered, and a purchase result before its price is boxed.
+ * <p/>
+ * Time is read once per server tick through {@link #tick()} rather than
+ * per message, so windows and rates are only as precise as a tick.
+ * <p/>
+ * Must only be used on the main thread. The catalog may be swapped from
+ * any thread.
+ */
+public class Messenger {
+
+    private static final int MAX_ARGUMENTS = 4;
+
+    private volatile MessageCatalog catalog;
+
+    private final long dedupWindowNanos;
+    private final double burst;
+    private final double tokensPerNano;
+
+    private final Map<UUID, Recipient> recipients = new HashMap<UUID, Recipient>();
+    private final StringBuilder buffer = new StringBuilder(128);
+    private final Object[] args = new Object[MAX_ARGUMENTS];
+
+    private long now = System.nanoTime();
+
+    private final Counter sent;
+    private final Counter duplicates;
+    private final Counter rateLimited;
+
+    /**
+     * @param catalog           The messages to send.
+     * @param dedupWindowMillis How long a repeat of a player's last message
+     *                          is dropped for; 0 sends every repeat.
+     * @param burst             The most messages a player can be sent at
+     *                          once.
+     * @param perSecond         The steady number of messages a player can
+     *                          be sent each second.
+     * @param metrics           The registry to count messages in.
+     */
+    public Messenger(MessageCatalog catalog, long dedupWindowMillis, int burst, double perSecond, MetricsRegistry metrics) {
+        this.catalog = catalog;
+        this.dedupWindowNanos = TimeUnit.MILLISECONDS.toNanos(dedupWindowMillis);
+        this.burst = burst;
+        this.tokensPerNano = perSecond / TimeUnit.SECONDS.toNanos(1);
+
+        String help = "Player messages by outcome.";
+        this.sent = metrics.counter("mabc_messages_total", help, "outcome", "sent");
+        this.duplicates = metrics.counter("mabc_messages_total", help, "outcome", "duplicate");
+        this.rateLimited = metrics.counter("mabc_messages_total", help, "outcome", "rate_limited");
+    }
+
+    public boolean send(Player player, Message message) {
+        return dispatch(player, message, 0);
+    }
+
+    public boolean send(Player player, Message message, Object arg0) {
+        args[0] = arg0;
+        return dispatch(player, message, 1);
+    }
+
+    public boolean send(Player player, Message message, Object arg0, Object arg1) {
+        args[0] = arg0;
+        args[1] = arg1;
+        return dispatch(player, message, 2);
+    }
+
+    /**
+     * Sends a message, unless it is a repeat or the player is over their
+     * rate limit.
+     *
+     * @param player  The player.
+     * @param message The message.
+     * @param values  The values of its placeholders, in order. At most four
+     *                are used.
+     * @return If the message was sent.
+     */
+    public boolean send(Player player, Message message, Object... values) {
+        int count = Math.min(values.length, MAX_ARGUMENTS);
+        System.arraycopy(values, 0, args, 0, count);
+        return dispatch(player, message, count);
+    }
+
+    /**
+     * Tells a player the outcome of a purchase.
+     *
+     * @param player  The player.
+     * @param result  The outcome.
+     * @param classId The class.
+     * @param price   What the class costs the player.
+     * @return If the message was sent.
+     */
+    public boolean sendResult(Player player, PurchaseResult result, String classId, double price) {
+        Recipient recipient = admit(player);
+        if (recipient == null) {
+            return false;
+        }
+
+        args[0] = classId;
+        args[1] = price;
+        return dispatch(player, recipient, Message.forResult(result, price == 0), 2);
+    }
+
+    /**
+     * Advances the messenger's clock. Call once per server tick.
+     */
+    public void tick() {
+        now = System.nanoTime();
+    }
+
+    /**
+     * Forgets a player's last message and rate limit, when they leave.
+     *
+     * @param player The player's UUID.
+     */
+    public void remove(UUID player) {
+        recipients.remove(player);
+    }
+
+    public void clear() {
+        recipients.clear();
+    }
+
+    /**
+     * Swaps in a new set of messages, such as after the messages file was
+     * edited.
+     *
+     * @param catalog The messages.
+     */
+    public void setCatalog(MessageCatalog catalog) {
+        this.catalog = catalog;
+    }
+
+    public MessageCatalog getCatalog() {
+        return catalog;
+    }
+
+    // Returns the player's recipient, or null if they are over their rate
+    // limit.
+    private Recipient admit(Player player) {
+        UUID id = player.getUniqueId();
+        Recipient recipient = recipients.get(id);
+        if (recipient == null) {
+            recipient = new Recipient(burst, now);
+            recipients.put(id, recipient);
+        }
+
+        if (!recipient.refill(now)) {
+            rateLimited.increment();
+            return null;
+        }
+
+        return recipient;
+    }
+
+    private boolean dispatch(Player player, Message message, int count) {
+        return dispatch(player, admit(player), message, count);
+    }
+
+    private boolean dispatch(Player player, Recipient recipient, Message message, int count) {
+        try {
+            if (recipient == null) {
+                return false;
+            }
+
+            MessageTemplate template = catalog.get(message);
+            String constant = template.getConstant();
+
+            CharSequence text = constant;
+            if (constant == null) {
+                buffer.setLength(0);
+                template.render(buffer, args);
+                text = buffer;
+            }
+
+            if (recipient.last != null && now - recipient.lastNanos < dedupWindowNanos && recipient.last.contentEquals(text)) {
+                duplicates.increment();
+                return false;
+            }
+
+            String finished = constant != null ? constant : buffer.toString();
+            player.sendMessage(finished);
+
+            recipient.tokens--;
+            recipient.last = finished;
+            recipient.lastNanos = now;
+            sent.increment();
+            return true;
+        } finally {
+            // Don't hold on to the values past this call.
+            for (int i = 0; i < count; i++) {
+                args[i] = null;
+            }
+        }
+    }
+
+    // The last message sent to a player and their token bucket.
+    private final class Recipient {
+
+        private String last;
+        private long lastNanos;
+
+        private double tokens;
+        private long refilledNanos;
+
+        private Recipient(double tokens, long now) {
+            this.tokens = tokens;
+            this.refilledNanos = now;
+        }
+
+        // Adds the tokens earned since the last refill; returns false if
+        // there is still not a whole one to spend.
+        private boolean refill(long now) {
+            if (now != refilledNanos) {
+                tokens = Math.min(burst, tokens + (now - refilledNanos) * tokensPerNano);
+                refilledNanos = now;
+            }
+
+            return tokens >= 1;
+        }
+    }
+}
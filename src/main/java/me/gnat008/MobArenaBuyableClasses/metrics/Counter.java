@@ -0,0 +1,49 @@
+package me.gnat008.MobArenaBuyableClasses.metrics;
+
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A count that only goes up. Increments are lock-free and contend very
+ * little, so a counter can sit on any hot path.
+ */
+public final class Counter extends Metric {
+
+    private final LongAdder count = new LongAdder();
+
+    Counter(String name, String labels, String help) {
+        super(name, labels, help);
+    }
+
+    public void increment() {
+        count.increment();
+    }
+
+    public void add(long amount) {
+        count.add(amount);
+    }
+
+    public long get() {
+        return count.sum();
+    }
+
+    @Override
+    public String getType() {
+        return "counter";
+    }
+
+    @Override
+    void writeSamples(StringBuilder out) {
+        out.append(getName()).append(getLabels()).append(' ').append(get()).append('\n');
+    }
+
+    @Override
+    void readValues(Map<String, Number> out) {
+        out.put(getName() + getLabels(), get());
+    }
+
+    @Override
+    public String describe() {
+        return Long.toString(get());
+    }
+}
@@ -0,0 +1,57 @@
+package me.gnat008.MobArenaBuyableClasses.metrics;
+
+import java.util.Map;
+
+/**
+ * A counter or gauge whose value is read from elsewhere when the metrics
+ * are collected, such as the counters a component already keeps or the
+ * depth of a queue.
+ */
+public final class FunctionMetric extends Metric {
+
+    /**
+     * Supplies the current value. Called from whichever thread collects the
+     * metrics, so it must be thread-safe.
+     */
+    public interface Source {
+
+        double get();
+    }
+
+    private final boolean counter;
+    private final Source source;
+
+    FunctionMetric(String name, String labels, String help, boolean counter, Source source) {
+        super(name, labels, help);
+        this.counter = counter;
+        this.source = source;
+    }
+
+    public double get() {
+        try {
+            return source.get();
+        } catch (RuntimeException e) {
+            return Double.NaN;
+        }
+    }
+
+    @Override
+    public String getType() {
+        return counter ? "counter" : "gauge";
+    }
+
+    @Override
+    void writeSamples(StringBuilder out) {
+        out.append(getName()).append(getLabels()).append(' ').append(formatValue(get())).append('\n');
+    }
+
+    @Override
+    void readValues(Map<String, Number> out) {
+        out.put(getName() + getLabels(), get());
+    }
+
+    @Override
+    public String describe() {
+        return formatValue(get());
+    }
+}
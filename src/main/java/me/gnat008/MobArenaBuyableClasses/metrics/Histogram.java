@@ -0,0 +1,162 @@
+package me.gnat008.MobArenaBuyableClasses.metrics;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A distribution of durations over fixed buckets, from 50 microseconds to
+ * 10 seconds. Recording finds the bucket with a short scan and bumps two
+ * lock-free adders, so nothing is allocated and nothing blocks. Exported in
+ * seconds.
+ */
+public final class Histogram extends Metric {
+
+    private static final double[] BOUNDS = {
+            0.00005, 0.0001, 0.00025, 0.0005, 0.001, 0.0025, 0.005, 0.01,
+            0.025, 0.05, 0.1, 0.25, 0.5, 1, 2.5, 5, 10
+    };
+
+    private static final long[] BOUND_NANOS = new long[BOUNDS.length];
+
+    static {
+        for (int i = 0; i < BOUNDS.length; i++) {
+            BOUND_NANOS[i] = (long) (BOUNDS[i] * TimeUnit.SECONDS.toNanos(1));
+        }
+    }
+
+    // One more than the bounds, for everything above the last.
+    private final LongAdder[] buckets = new LongAdder[BOUNDS.length + 1];
+    private final LongAdder sumNanos = new LongAdder();
+
+    Histogram(String name, String labels, String help) {
+        super(name, labels, help);
+
+        for (int i = 0; i < buckets.length; i++) {
+            buckets[i] = new LongAdder();
+        }
+    }
+
+    /**
+     * Records a duration.
+     *
+     * @param nanos The duration in nanoseconds.
+     */
+    public void observeNanos(long nanos) {
+        int bucket = 0;
+        while (bucket < BOUND_NANOS.length && nanos > BOUND_NANOS[bucket]) {
+            bucket++;
+        }
+
+        buckets[bucket].increment();
+        sumNanos.add(nanos);
+    }
+
+    /**
+     * Records the time since a start taken from System.nanoTime().
+     *
+     * @param startNanos The start.
+     */
+    public void observeSince(long startNanos) {
+        observeNanos(System.nanoTime() - startNanos);
+    }
+
+    public long getCount() {
+        long count = 0;
+        for (LongAdder bucket : buckets) {
+            count += bucket.sum();
+        }
+
+        return count;
+    }
+
+    /**
+     * @return The total of all durations, in seconds.
+     */
+    public double getSum() {
+        return sumNanos.sum() / 1e9;
+    }
+
+    /**
+     * Estimates a quantile as the upper bound of the bucket it falls in.
+     *
+     * @param q The quantile, from 0 to 1.
+     * @return The estimate in seconds, infinity if it falls above the last
+     * bucket, or 0 if nothing was recorded.
+     */
+    public double quantile(double q) {
+        long[] counts = new long[buckets.length];
+        long total = 0;
+
+        for (int i = 0; i < buckets.length; i++) {
+            counts[i] = buckets[i].sum();
+            total += counts[i];
+        }
+
+        if (total == 0) {
+            return 0;
+        }
+
+        long rank = (long) Math.ceil(q * total);
+        long seen = 0;
+
+        for (int i = 0; i < BOUNDS.length; i++) {
+            seen += counts[i];
+            if (seen >= rank) {
+                return BOUNDS[i];
+            }
+        }
+
+        return Double.POSITIVE_INFINITY;
+    }
+
+    @Override
+    public String getType() {
+        return "histogram";
+    }
+
+    @Override
+    void writeSamples(StringBuilder out) {
+        String labels = getLabels();
+        String prefix = labels.isEmpty() ? "{" : labels.substring(0, labels.length() - 1) + ",";
+        long cumulative = 0;
+
+        for (int i = 0; i < BOUNDS.length; i++) {
+            cumulative += buckets[i].sum();
+            out.append(getName()).append("_bucket").append(prefix).append("le=\"")
+                    .append(formatValue(BOUNDS[i])).append("\"} ").append(cumulative).append('\n');
+        }
+
+        cumulative += buckets[BOUNDS.length].sum();
+        out.append(getName()).append("_bucket").append(prefix).append("le=\"+Inf\"} ").append(cumulative).append('\n');
+        out.append(getName()).append("_sum").append(labels).append(' ').append(getSum()).append('\n');
+        out.append(getName()).append("_count").append(labels).append(' ').append(cumulative).append('\n');
+    }
+
+    @Override
+    void readValues(Map<String, Number> out) {
+        out.put(getName() + "_count" + getLabels(), getCount());
+        out.put(getName() + "_sum" + getLabels(), getSum());
+        out.put(getName() + "_p50" + getLabels(), quantile(0.5));
+        out.put(getName() + "_p99" + getLabels(), quantile(0.99));
+    }
+
+    @Override
+    public String describe() {
+        long count = getCount();
+        if (count == 0) {
+            return "no samples";
+        }
+
+        return String.format("count %d, mean %.2fms, p50 <= %s, p99 <= %s", count, getSum() * 1000 / count,
+                formatSeconds(quantile(0.5)), formatSeconds(quantile(0.99)));
+    }
+
+    private static String formatSeconds(double seconds) {
+        if (Double.isInfinite(seconds)) {
+            return "inf";
+        }
+
+        return seconds < 1 ? formatValue(seconds * 1000) + "ms" : formatValue(seconds) + "s";
+    }
+}
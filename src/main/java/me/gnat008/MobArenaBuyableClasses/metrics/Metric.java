@@ -0,0 +1,79 @@
+package me.gnat008.MobArenaBuyableClasses.metrics;
+
+import java.util.Map;
+
+/**
+ * A named value tracked by a {@link MetricsRegistry}. Names and labels
+ * follow the Prometheus conventions.
+ */
+public abstract class Metric {
+
+    private final String name;
+    private final String labels;
+    private final String help;
+
+    Metric(String name, String labels, String help) {
+        this.name = name;
+        this.labels = labels;
+        this.help = help;
+    }
+
+    /**
+     * @return The metric name, without labels.
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * @return The labels in Prometheus form, such as {result="success"}, or
+     * an empty string.
+     */
+    public String getLabels() {
+        return labels;
+    }
+
+    /**
+     * @return What the metric measures.
+     */
+    public String getHelp() {
+        return help;
+    }
+
+    /**
+     * @return The Prometheus type: counter, gauge or histogram.
+     */
+    public abstract String getType();
+
+    /**
+     * Appends the metric's samples in the Prometheus text format.
+     *
+     * @param out The output.
+     */
+    abstract void writeSamples(StringBuilder out);
+
+    /**
+     * Reads the metric's current values, keyed by sample name with labels.
+     *
+     * @param out Receives the values.
+     */
+    abstract void readValues(Map<String, Number> out);
+
+    /**
+     * @return A short human-readable form of the current value.
+     */
+    public abstract String describe();
+
+    @Override
+    public String toString() {
+        return name + labels + " " + describe();
+    }
+
+    static String formatValue(double value) {
+        if (value == Math.rint(value) && !Double.isInfinite(value) && Math.abs(value) < 1e15) {
+            return Long.toString((long) value);
+        }
+
+        return Double.toString(value);
+    }
+}
@@ -0,0 +1,89 @@
+package me.gnat008.MobArenaBuyableClasses.metrics;
+
+import me.gnat008.MobArenaBuyableClasses.logging.Log;
+import me.gnat008.MobArenaBuyableClasses.logging.Logs;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+
+/**
+ * Writes the metrics to a file in the Prometheus text format each time it
+ * runs, for a node exporter's textfile collector or anything else that
+ * scrapes files. The file is replaced atomically, so readers never see a
+ * partial dump. Meant to run on an async repeating task.
+ */
+public class MetricsDump implements Runnable {
+
+    private static final Log log = Logs.get("metrics");
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private final MetricsRegistry registry;
+    private final File file;
+
+    private boolean failed;
+
+    public MetricsDump(MetricsRegistry registry, File file) {
+        this.registry = registry;
+        this.file = file;
+    }
+
+    @Override
+    public void run() {
+        try {
+            write(registry.toPrometheus().getBytes(UTF_8));
+            failed = false;
+        } catch (IOException e) {
+            // Only complain once until it works again.
+            if (!failed) {
+                log.warn("Unable to write {}: {}", file.getName(), e.getMessage());
+                failed = true;
+            }
+        }
+    }
+
+    public File getFile() {
+        return file;
+    }
+
+    private void write(byte[] data) throws IOException {
+        File parent = file.getAbsoluteFile().getParentFile();
+        parent.mkdirs();
+
+        File temp = File.createTempFile(file.getName(), ".tmp", parent);
+        FileOutputStream stream = null;
+        boolean moved = false;
+
+        try {
+            stream = new FileOutputStream(temp);
+            stream.write(data);
+            stream.close();
+            stream = null;
+
+            try {
+                Files.move(temp.toPath(), file.toPath(), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            }
+
+            moved = true;
+        } finally {
+            try {
+                if (stream != null) {
+                    stream.close();
+                }
+            } catch (IOException e) {
+
+            }
+
+            if (!moved) {
+                temp.delete();
+            }
+        }
+    }
+}
@@ -0,0 +1,111 @@
+package me.gnat008.MobArenaBuyableClasses.metrics;
+
+import javax.management.*;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Exposes a {@link MetricsRegistry} over JMX as one read-only attribute per
+ * sample, so tools like JConsole or VisualVM can watch it live. The
+ * attribute list is rebuilt from the registry on each request, so metrics
+ * registered later show up too.
+ */
+public class MetricsMBean implements DynamicMBean {
+
+    private static final String OBJECT_NAME = "me.gnat008.MobArenaBuyableClasses:type=Metrics";
+
+    private final MetricsRegistry registry;
+    private ObjectName name;
+
+    public MetricsMBean(MetricsRegistry registry) {
+        this.registry = registry;
+    }
+
+    /**
+     * Registers this bean with the platform MBean server, replacing any
+     * left over from an earlier load of the plugin.
+     *
+     * @throws JMException If registration fails.
+     */
+    public void register() throws JMException {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        ObjectName objectName = new ObjectName(OBJECT_NAME);
+
+        if (server.isRegistered(objectName)) {
+            server.unregisterMBean(objectName);
+        }
+
+        server.registerMBean(this, objectName);
+        name = objectName;
+    }
+
+    /**
+     * Unregisters this bean, if registered.
+     */
+    public void unregister() {
+        if (name == null) {
+            return;
+        }
+
+        try {
+            ManagementFactory.getPlatformMBeanServer().unregisterMBean(name);
+        } catch (JMException e) {
+            // Already gone.
+        }
+
+        name = null;
+    }
+
+    @Override
+    public Object getAttribute(String attribute) throws AttributeNotFoundException {
+        Number value = registry.readValues().get(attribute);
+        if (value == null) {
+            throw new AttributeNotFoundException(attribute);
+        }
+
+        return value.doubleValue();
+    }
+
+    @Override
+    public AttributeList getAttributes(String[] attributes) {
+        Map<String, Number> values = registry.readValues();
+        AttributeList list = new AttributeList();
+
+        for (String attribute : attributes) {
+            Number value = values.get(attribute);
+            if (value != null) {
+                list.add(new Attribute(attribute, value.doubleValue()));
+            }
+        }
+
+        return list;
+    }
+
+    @Override
+    public void setAttribute(Attribute attribute) throws AttributeNotFoundException {
+        throw new AttributeNotFoundException("Metrics are read-only");
+    }
+
+    @Override
+    public AttributeList setAttributes(AttributeList attributes) {
+        return new AttributeList();
+    }
+
+    @Override
+    public Object invoke(String actionName, Object[] params, String[] signature) throws MBeanException {
+        throw new MBeanException(new UnsupportedOperationException(actionName));
+    }
+
+    @Override
+    public MBeanInfo getMBeanInfo() {
+        List<MBeanAttributeInfo> attributes = new ArrayList<MBeanAttributeInfo>();
+        for (String key : registry.readValues().keySet()) {
+            attributes.add(new MBeanAttributeInfo(key, "double", key, true, false, false));
+        }
+
+        return new MBeanInfo(getClass().getName(), "MobArenaBuyableClasses metrics",
+                attributes.toArray(new MBeanAttributeInfo[attributes.size()]), null, null, null);
+    }
+}
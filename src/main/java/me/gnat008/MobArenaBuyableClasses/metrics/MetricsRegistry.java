@@ -0,0 +1,154 @@
+package me.gnat008.MobArenaBuyableClasses.metrics;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * The plugin's metrics, by name and labels. Registering a metric that
+ * already exists returns the existing one, so components can look their
+ * metrics up once and keep them in fields. Recording into a metric never
+ * touches the registry.
+ */
+public class MetricsRegistry {
+
+    // Keyed by name, then a NUL, then labels, so all label sets of one name
+    // sort together.
+    private final ConcurrentNavigableMap<String, Metric> metrics = new ConcurrentSkipListMap<String, Metric>();
+
+    /**
+     * @param name   The metric name.
+     * @param help   What it counts.
+     * @param labels Label names and values, alternating.
+     * @return The counter.
+     */
+    public Counter counter(String name, String help, String... labels) {
+        String formatted = formatLabels(labels);
+        return register(Counter.class, new Counter(name, formatted, help));
+    }
+
+    /**
+     * @param name   The metric name, ending in _seconds.
+     * @param help   What it times.
+     * @param labels Label names and values, alternating.
+     * @return The histogram.
+     */
+    public Histogram histogram(String name, String help, String... labels) {
+        String formatted = formatLabels(labels);
+        return register(Histogram.class, new Histogram(name, formatted, help));
+    }
+
+    /**
+     * Registers a gauge read from a source when metrics are collected.
+     *
+     * @param name   The metric name.
+     * @param help   What it measures.
+     * @param source The source of the value.
+     * @param labels Label names and values, alternating.
+     */
+    public void gauge(String name, String help, FunctionMetric.Source source, String... labels) {
+        register(FunctionMetric.class, new FunctionMetric(name, formatLabels(labels), help, false, source));
+    }
+
+    /**
+     * Registers a counter kept elsewhere and read from a source when metrics
+     * are collected.
+     *
+     * @param name   The metric name.
+     * @param help   What it counts.
+     * @param source The source of the value.
+     * @param labels Label names and values, alternating.
+     */
+    public void functionCounter(String name, String help, FunctionMetric.Source source, String... labels) {
+        register(FunctionMetric.class, new FunctionMetric(name, formatLabels(labels), help, true, source));
+    }
+
+    /**
+     * @return All metrics, sorted by name.
+     */
+    public Collection<Metric> getMetrics() {
+        return Collections.unmodifiableCollection(metrics.values());
+    }
+
+    /**
+     * @param prefix A name prefix, or an empty string for everything.
+     * @return The metrics whose name starts with the prefix, sorted by name.
+     */
+    public Collection<Metric> getMetrics(String prefix) {
+        return Collections.unmodifiableCollection(metrics.subMap(prefix, prefix + Character.MAX_VALUE).values());
+    }
+
+    /**
+     * Reads every metric's current values, keyed by sample name with
+     * labels. Histograms contribute their count, sum and estimated median
+     * and 99th percentile.
+     *
+     * @return The values.
+     */
+    public Map<String, Number> readValues() {
+        Map<String, Number> values = new LinkedHashMap<String, Number>();
+        for (Metric metric : metrics.values()) {
+            metric.readValues(values);
+        }
+
+        return values;
+    }
+
+    /**
+     * @return Every metric in the Prometheus text exposition format.
+     */
+    public String toPrometheus() {
+        StringBuilder out = new StringBuilder(4096);
+        String previous = null;
+
+        for (Metric metric : metrics.values()) {
+            if (!metric.getName().equals(previous)) {
+                out.append("# HELP ").append(metric.getName()).append(' ').append(metric.getHelp()).append('\n');
+                out.append("# TYPE ").append(metric.getName()).append(' ').append(metric.getType()).append('\n');
+                previous = metric.getName();
+            }
+
+            metric.writeSamples(out);
+        }
+
+        return out.toString();
+    }
+
+    private <T extends Metric> T register(Class<T> type, T metric) {
+        String key = metric.getName() + '\0' + metric.getLabels();
+
+        Metric existing = metrics.putIfAbsent(key, metric);
+        if (existing == null) {
+            return metric;
+        }
+
+        if (!type.isInstance(existing) || !existing.getType().equals(metric.getType())) {
+            throw new IllegalArgumentException(metric.getName() + " is already registered as a " + existing.getType());
+        }
+
+        return type.cast(existing);
+    }
+
+    private static String formatLabels(String... labels) {
+        if (labels.length == 0) {
+            return "";
+        }
+
+        if (labels.length % 2 != 0) {
+            throw new IllegalArgumentException("Labels must be name and value pairs");
+        }
+
+        StringBuilder out = new StringBuilder("{");
+        for (int i = 0; i < labels.length; i += 2) {
+            if (i > 0) {
+                out.append(',');
+            }
+
+            out.append(labels[i]).append("=\"")
+                    .append(labels[i + 1].replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n"))
+                    .append('"');
+        }
+
+        return out.append('}').toString();
+    }
+}
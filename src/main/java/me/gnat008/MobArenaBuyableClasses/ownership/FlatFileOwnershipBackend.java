@@ -0,0 +1,150 @@
+package me.gnat008.MobArenaBuyableClasses.ownership;
+
+import me.gnat008.MobArenaBuyableClasses.exceptions.YAMLProcessorException;
+import me.gnat008.MobArenaBuyableClasses.util.YAMLFormat;
+import me.gnat008.MobArenaBuyableClasses.util.YAMLProcessor;
+import org.yaml.snakeyaml.error.YAMLException;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * Stores ownership in one YAML shard file per player, named after the
+ * player's UUID, so a player's data can be read and written without
+ * touching anyone else's.
+ */
+public class FlatFileOwnershipBackend implements OwnershipBackend {
+
+    private static final String CLASSES = "classes";
+
+    // Shards read at once by loadAll.
+    private static final int READERS = 4;
+
+    private final File folder;
+
+    // Started by the first batch load; only touched on the I/O thread.
+    private ExecutorService readers;
+
+    public FlatFileOwnershipBackend(File folder) {
+        this.folder = folder;
+    }
+
+    @Override
+    public Set<String> load(UUID player) throws IOException {
+        YAMLProcessor shard = openShard(player);
+        return new HashSet<String>(shard.getStringList(CLASSES, null));
+    }
+
+    // Shards are independent files, so a batch reads several at once
+    // rather than waiting on each in turn. Players without a shard cost one
+    // failed lookup rather than a read.
+    @Override
+    public Map<UUID, Set<String>> loadAll(Collection<UUID> players) throws IOException {
+        Map<UUID, Future<Set<String>>> reads = new LinkedHashMap<UUID, Future<Set<String>>>();
+        for (final UUID player : players) {
+            if (getShardFile(player).exists()) {
+                reads.put(player, getReaders().submit(new Callable<Set<String>>() {
+                    @Override
+                    public Set<String> call() throws IOException {
+                        return load(player);
+                    }
+                }));
+            }
+        }
+
+        Map<UUID, Set<String>> result = new HashMap<UUID, Set<String>>();
+        try {
+            for (Map.Entry<UUID, Future<Set<String>>> read : reads.entrySet()) {
+                result.put(read.getKey(), read.getValue().get());
+            }
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+
+            throw new IOException("Unable to read a shard", e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while reading shards");
+        }
+
+        return result;
+    }
+
+    @Override
+    public CompletableFuture<Void> grant(UUID player, String classId, double price) throws IOException {
+        YAMLProcessor shard = openShard(player);
+        List<String> classes = shard.getStringList(CLASSES, null);
+
+        if (!classes.contains(classId)) {
+            classes.add(classId);
+            shard.setProperty(CLASSES, classes);
+            shard.write(shard.dump());
+        }
+
+        return CompletableFuture.completedFuture(null);
+    }
+
+    @Override
+    public CompletableFuture<Void> revoke(UUID player, String classId) throws IOException {
+        YAMLProcessor shard = openShard(player);
+        List<String> classes = shard.getStringList(CLASSES, null);
+
+        if (classes.remove(classId)) {
+            shard.setProperty(CLASSES, classes);
+            shard.write(shard.dump());
+        }
+
+        return CompletableFuture.completedFuture(null);
+    }
+
+    @Override
+    public void close() {
+        if (readers != null) {
+            readers.shutdown();
+            readers = null;
+        }
+    }
+
+    // Returns the shard file of a player.
+    public File getShardFile(UUID player) {
+        return new File(folder, player.toString() + ".yml");
+    }
+
+    private ExecutorService getReaders() {
+        if (readers == null) {
+            readers = Executors.newFixedThreadPool(READERS, new ThreadFactory() {
+                @Override
+                public Thread newThread(Runnable r) {
+                    Thread thread = new Thread(r, "MABuyableClasses-Shard-Reader");
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+        }
+
+        return readers;
+    }
+
+    // Reads a player's shard. A shard that can't be parsed fails the
+    // operation, so it is never written over with only the new change.
+    private YAMLProcessor openShard(UUID player) throws IOException {
+        File file = getShardFile(player);
+        YAMLProcessor shard = new YAMLProcessor(file, false, YAMLFormat.EXTENDED);
+
+        if (file.exists()) {
+            try {
+                shard.replaceRoot(shard.parse(shard.readBytes()));
+            } catch (YAMLProcessorException e) {
+                throw new IOException("Unable to parse " + file.getName() + ": " + e.getMessage(), e);
+            } catch (YAMLException e) {
+                throw new IOException("Unable to parse " + file.getName() + ": " + e.getMessage(), e);
+            }
+        }
+
+        return shard;
+    }
+}
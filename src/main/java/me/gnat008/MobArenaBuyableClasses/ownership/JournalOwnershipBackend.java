@@ -0,0 +1,236 @@
+package me.gnat008.MobArenaBuyableClasses.ownership;
+
+import me.gnat008.MobArenaBuyableClasses.logging.Log;
+import me.gnat008.MobArenaBuyableClasses.logging.Logs;
+import me.gnat008.MobArenaBuyableClasses.util.YAMLFormat;
+import me.gnat008.MobArenaBuyableClasses.util.YAMLProcessor;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Stores ownership as a compacted YAML snapshot plus a purchase journal.
+ * Purchases only append to the journal, which group-commits them in the
+ * background. On first use the journal is replayed over the snapshot, the
+ * result is written back as the new snapshot, and the journal is emptied;
+ * the same compaction runs again on close, and whenever the journal has
+ * grown by a set number of records, so it stays short on a server that
+ * runs for weeks.
+ */
+public class JournalOwnershipBackend implements OwnershipBackend {
+
+    private static final Log log = Logs.get("ownership");
+
+    private static final String PLAYERS = "players";
+
+    private final YAMLProcessor snapshot;
+    private final PurchaseJournal journal;
+    private final int compactAfter;
+
+    // Full ownership data, only touched on the ownership I/O thread.
+    private final Map<UUID, Set<String>> owned = new HashMap<UUID, Set<String>>();
+    private boolean open;
+
+    // Records appended since the last compaction.
+    private int appended;
+
+    /**
+     * @param snapshotFile     The compacted snapshot.
+     * @param journalFile      The journal.
+     * @param maxBatch         The most records synced at once.
+     * @param maxLatencyMillis How long a record waits for a batch to fill.
+     * @param compactAfter     The number of records after which the journal
+     *                         is compacted into the snapshot.
+     */
+    public JournalOwnershipBackend(File snapshotFile, File journalFile, int maxBatch, long maxLatencyMillis,
+                                   int compactAfter) {
+        this.snapshot = new YAMLProcessor(snapshotFile, false, YAMLFormat.COMPACT);
+        this.snapshot.setBinaryCache(true);
+        this.journal = new PurchaseJournal(journalFile, maxBatch, maxLatencyMillis);
+        this.compactAfter = Math.max(1, compactAfter);
+    }
+
+    @Override
+    public Set<String> load(UUID player) throws IOException {
+        ensureOpen();
+
+        Set<String> classes = owned.get(player);
+        return classes != null ? new HashSet<String>(classes) : new HashSet<String>();
+    }
+
+    @Override
+    public Map<UUID, Set<String>> loadAll(Collection<UUID> players) throws IOException {
+        ensureOpen();
+
+        Map<UUID, Set<String>> result = new HashMap<UUID, Set<String>>();
+        for (UUID player : players) {
+            Set<String> classes = owned.get(player);
+            if (classes != null) {
+                result.put(player, new HashSet<String>(classes));
+            }
+        }
+
+        return result;
+    }
+
+    @Override
+    public CompletableFuture<Void> grant(UUID player, String classId, double price) throws IOException {
+        ensureOpen();
+
+        if (!getOrCreate(player).add(classId)) {
+            return CompletableFuture.completedFuture(null);
+        }
+
+        return append(new PurchaseRecord(PurchaseRecord.Type.GRANT, player, classId, price, System.currentTimeMillis()));
+    }
+
+    @Override
+    public CompletableFuture<Void> revoke(UUID player, String classId) throws IOException {
+        ensureOpen();
+
+        Set<String> classes = owned.get(player);
+        if (classes == null || !classes.remove(classId)) {
+            return CompletableFuture.completedFuture(null);
+        }
+
+        return append(new PurchaseRecord(PurchaseRecord.Type.REVOKE, player, classId, 0, System.currentTimeMillis()));
+    }
+
+    @Override
+    public void close() {
+        if (!open) {
+            return;
+        }
+
+        journal.close();
+        open = false;
+
+        try {
+            compact();
+        } catch (IOException e) {
+            // The journal is left intact and will be replayed next time.
+            log.warn("Unable to compact the purchase journal: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * @return The journal, for its counters.
+     */
+    public PurchaseJournal getJournal() {
+        return journal;
+    }
+
+    private void ensureOpen() throws IOException {
+        if (open) {
+            return;
+        }
+
+        if (snapshot.getFile().exists()) {
+            snapshot.load();
+        }
+
+        List<String> keys = snapshot.getKeys(PLAYERS);
+        if (keys != null) {
+            for (String key : keys) {
+                try {
+                    owned.put(UUID.fromString(key), new HashSet<String>(snapshot.getStringList(PLAYERS + "." + key, null)));
+                } catch (IllegalArgumentException e) {
+                    log.warn("Skipping invalid player UUID in ownership snapshot: {}", key);
+                }
+            }
+        }
+
+        // Only the journal is needed from here on.
+        snapshot.clear();
+
+        List<PurchaseRecord> records = new ArrayList<PurchaseRecord>();
+        long end = journal.readAll(records);
+        for (PurchaseRecord record : records) {
+            if (record.getType() == PurchaseRecord.Type.GRANT) {
+                getOrCreate(record.getPlayer()).add(record.getClassId());
+            } else {
+                Set<String> classes = owned.get(record.getPlayer());
+                if (classes != null) {
+                    classes.remove(record.getClassId());
+                }
+            }
+        }
+
+        if (!records.isEmpty()) {
+            compact();
+        } else if (end < journal.length()) {
+            // Only a line cut short by a crash; appending after it would
+            // glue the next record onto it.
+            log.warn("Removing an incomplete record from the end of the purchase journal.");
+            journal.truncate(end);
+        }
+
+        journal.open();
+        open = true;
+    }
+
+    private CompletableFuture<Void> append(PurchaseRecord record) {
+        CompletableFuture<Void> written = journal.append(record);
+
+        if (++appended >= compactAfter) {
+            // Closing the journal writes out everything queued, including
+            // this record, before the snapshot is taken.
+            journal.close();
+
+            try {
+                compact();
+            } catch (IOException e) {
+                // The journal is left intact and keeps growing until a
+                // compaction succeeds. The next attempt waits for another
+                // full run of records, rather than closing and reopening
+                // the journal on every purchase while the disk is failing.
+                log.warn("Unable to compact the purchase journal: {}", e.getMessage());
+                appended = 0;
+            }
+
+            try {
+                journal.open();
+            } catch (IOException e) {
+                // The record itself is written; the next write reopens.
+                log.error("Unable to reopen the purchase journal", e);
+                open = false;
+            }
+        }
+
+        return written;
+    }
+
+    // Writes the full ownership data as the new snapshot, then empties the
+    // journal. Only called while the journal is closed.
+    private void compact() throws IOException {
+        Map<String, Object> players = new TreeMap<String, Object>();
+        for (Map.Entry<UUID, Set<String>> entry : owned.entrySet()) {
+            if (!entry.getValue().isEmpty()) {
+                List<String> classes = new ArrayList<String>(entry.getValue());
+                Collections.sort(classes);
+                players.put(entry.getKey().toString(), classes);
+            }
+        }
+
+        snapshot.clear();
+        snapshot.setProperty(PLAYERS, players);
+        byte[] data = snapshot.dump();
+        snapshot.write(data);
+        snapshot.updateBinaryCache(data);
+
+        journal.truncate();
+        appended = 0;
+    }
+
+    private Set<String> getOrCreate(UUID player) {
+        Set<String> classes = owned.get(player);
+        if (classes == null) {
+            classes = new HashSet<String>();
+            owned.put(player, classes);
+        }
+
+        return classes;
+    }
+}
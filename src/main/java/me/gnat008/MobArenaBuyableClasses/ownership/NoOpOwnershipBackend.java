@@ -0,0 +1,36 @@
+package me.gnat008.MobArenaBuyableClasses.ownership;
+
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Stores nothing, for testing the purchase path offline. Every player loads
+ * owning no classes, and grants and revokes only last as long as the
+ * ownership store keeps the player loaded.
+ */
+public class NoOpOwnershipBackend implements OwnershipBackend {
+
+    @Override
+    public Set<String> load(UUID player) {
+        return new HashSet<String>();
+    }
+
+    @Override
+    public Map<UUID, Set<String>> loadAll(Collection<UUID> players) {
+        return new HashMap<UUID, Set<String>>();
+    }
+
+    @Override
+    public CompletableFuture<Void> grant(UUID player, String classId, double price) {
+        return CompletableFuture.completedFuture(null);
+    }
+
+    @Override
+    public CompletableFuture<Void> revoke(UUID player, String classId) {
+        return CompletableFuture.completedFuture(null);
+    }
+
+    @Override
+    public void close() {
+    }
+}
@@ -0,0 +1,65 @@
+package me.gnat008.MobArenaBuyableClasses.ownership;
+
+import java.io.IOException;
+import java.util.Collection;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Persistent storage of the classes each player has bought. Backends are
+ * only ever called from the ownership store's I/O thread, so they may
+ * block, but need not be thread-safe.
+ */
+public interface OwnershipBackend {
+
+    /**
+     * Loads the classes a player owns.
+     *
+     * @param player The player's UUID.
+     * @return The owned class IDs, or an empty set for an unknown player.
+     * @throws IOException If the storage cannot be read.
+     */
+    Set<String> load(UUID player) throws IOException;
+
+    /**
+     * Loads the classes several players own, in as few reads of the storage
+     * as it allows.
+     *
+     * @param players The players' UUIDs.
+     * @return The owned class IDs of each player. Players who own nothing
+     * may be left out.
+     * @throws IOException If the storage cannot be read.
+     */
+    Map<UUID, Set<String>> loadAll(Collection<UUID> players) throws IOException;
+
+    /**
+     * Records that a player owns a class.
+     *
+     * @param player  The player's UUID.
+     * @param classId The class ID.
+     * @param price   The price paid, for backends that keep a history.
+     * @return A future completed once the grant is durable, or
+     * exceptionally if it could not be made so. Backends that write before
+     * returning return a completed future.
+     * @throws IOException If the storage cannot be written.
+     */
+    CompletableFuture<Void> grant(UUID player, String classId, double price) throws IOException;
+
+    /**
+     * Records that a player no longer owns a class.
+     *
+     * @param player  The player's UUID.
+     * @param classId The class ID.
+     * @return A future completed once the revocation is durable, as for
+     * {@link #grant(UUID, String, double)}.
+     * @throws IOException If the storage cannot be written.
+     */
+    CompletableFuture<Void> revoke(UUID player, String classId) throws IOException;
+
+    /**
+     * Releases any files or connections held by the backend.
+     */
+    void close();
+}
@@ -0,0 +1,118 @@
+package me.gnat008.MobArenaBuyableClasses.ownership;
+
+import org.bukkit.plugin.Plugin;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Gathers players whose ownership will be needed soon, such as those
+ * joining an arena lobby, and loads everyone asked for within a short
+ * window with one {@link OwnershipStore#loadAll(Collection)}, instead of a
+ * burst of single reads just as they start picking classes.
+ * <p/>
+ * Main thread only.
+ */
+public class OwnershipPreloader {
+
+    private final Plugin plugin;
+    private final OwnershipStore store;
+    private final long windowTicks;
+    private final int maxPending;
+
+    private final Set<UUID> pending = new LinkedHashSet<UUID>();
+    private boolean scheduled;
+
+    /**
+     * @param plugin      The plugin, to schedule the window with.
+     * @param store       The store to load into.
+     * @param windowTicks How long to gather players before loading them;
+     *                    0 loads them straight away.
+     * @param maxPending  The most players gathered before they are loaded
+     *                    without waiting for the window to end.
+     */
+    public OwnershipPreloader(Plugin plugin, OwnershipStore store, long windowTicks, int maxPending) {
+        this.plugin = plugin;
+        this.store = store;
+        this.windowTicks = windowTicks;
+        this.maxPending = maxPending;
+    }
+
+    /**
+     * Asks for a player's ownership to be loaded with the next batch.
+     *
+     * @param player The player's UUID.
+     */
+    public void request(UUID player) {
+        if (store.isLoaded(player)) {
+            return;
+        }
+
+        pending.add(player);
+        if (windowTicks == 0 || pending.size() >= maxPending) {
+            flush();
+        } else if (!scheduled) {
+            scheduled = true;
+
+            try {
+                plugin.getServer().getScheduler().runTaskLater(plugin, new Runnable() {
+                    @Override
+                    public void run() {
+                        scheduled = false;
+                        flush();
+                    }
+                }, windowTicks);
+            } catch (RuntimeException e) {
+                // Disabled; load now rather than never.
+                scheduled = false;
+                flush();
+            }
+        }
+    }
+
+    /**
+     * Asks for several players' ownership to be loaded with the next batch,
+     * for example everyone in an arena lobby.
+     *
+     * @param players The players' UUIDs.
+     */
+    public void request(Collection<UUID> players) {
+        for (UUID player : players) {
+            request(player);
+        }
+    }
+
+    /**
+     * Forgets a player who is no longer needed, for example one who quit
+     * before the window ended.
+     *
+     * @param player The player's UUID.
+     */
+    public void cancel(UUID player) {
+        pending.remove(player);
+    }
+
+    /**
+     * Loads everyone gathered so far.
+     */
+    public void flush() {
+        if (pending.isEmpty()) {
+            return;
+        }
+
+        List<UUID> players = new ArrayList<UUID>(pending);
+        pending.clear();
+        store.loadAll(players);
+    }
+
+    /**
+     * @return The number of players waiting for the window to end.
+     */
+    public int getPendingCount() {
+        return pending.size();
+    }
+}
@@ -0,0 +1,526 @@
+package me.gnat008.MobArenaBuyableClasses.ownership;
+
+import me.gnat008.MobArenaBuyableClasses.logging.Log;
+import me.gnat008.MobArenaBuyableClasses.logging.Logs;
+
+import java.io.IOException;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BiConsumer;
+
+/**
+ * In-memory read-through cache of class ownership in front of an
+ * {@link OwnershipBackend}. Ownership checks only look at memory; all
+ * backend reads and writes run in order on a single I/O thread, so nothing
+ * here blocks the main thread.
+ * <p/>
+ * Many players can be loaded at once with {@link #loadAll(Collection)},
+ * which reads them in batches. Each batch is timed against a latency
+ * budget: batches that run over it are halved, down to loading players one
+ * by one, so a slow storage cannot hold up the writes and single loads
+ * queued behind a batch; batches well under it grow back.
+ */
+public class OwnershipStore {
+
+    private static final Log log = Logs.get("ownership");
+
+    private final OwnershipBackend backend;
+    private final ThreadPoolExecutor io;
+
+    private final ConcurrentMap<UUID, Set<String>> owned = new ConcurrentHashMap<UUID, Set<String>>();
+    private final ConcurrentMap<UUID, CompletableFuture<Set<String>>> loading = new ConcurrentHashMap<UUID, CompletableFuture<Set<String>>>();
+
+    // Guards a finished load being put in memory against the player being
+    // unloaded, granted or revoked at the same moment.
+    private final Object residency = new Object();
+
+    // Grants (true) and revocations (false) made while a player was being
+    // loaded, applied when the load is put in memory. Guarded by residency.
+    private final Map<UUID, Map<String, Boolean>> deferred = new HashMap<UUID, Map<String, Boolean>>();
+
+    private final LongAdder failures = new LongAdder();
+    private final LongAdder batches = new LongAdder();
+    private final LongAdder batchedPlayers = new LongAdder();
+    private final LongAdder overBudget = new LongAdder();
+
+    private final int maxBatch;
+    private final long budgetNanos;
+
+    // Only changed on the I/O thread.
+    private volatile int batchSize;
+
+    public OwnershipStore(OwnershipBackend backend) {
+        this(backend, 64, 100);
+    }
+
+    /**
+     * @param backend      The storage.
+     * @param maxBatch     The most players read from the backend at once.
+     * @param budgetMillis How long one batch read may take before batches
+     *                     are made smaller.
+     */
+    public OwnershipStore(OwnershipBackend backend, int maxBatch, long budgetMillis) {
+        this.backend = backend;
+        this.maxBatch = maxBatch;
+        this.batchSize = maxBatch;
+        this.budgetNanos = TimeUnit.MILLISECONDS.toNanos(budgetMillis);
+        this.io = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<Runnable>(), new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable r) {
+                Thread thread = new Thread(r, "MABuyableClasses-Ownership");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+    }
+
+    /**
+     * Loads a player's ownership into memory in the background. Calling this
+     * for a player who is already loaded or loading returns the same result.
+     *
+     * @param player The player's UUID.
+     * @return A future completed with the player's owned classes.
+     */
+    public CompletableFuture<Set<String>> load(final UUID player) {
+        Set<String> classes = owned.get(player);
+        if (classes != null) {
+            return CompletableFuture.completedFuture(Collections.unmodifiableSet(classes));
+        }
+
+        CompletableFuture<Set<String>> future = new CompletableFuture<Set<String>>();
+        CompletableFuture<Set<String>> existing = loading.putIfAbsent(player, future);
+        if (existing != null) {
+            return existing;
+        }
+
+        final CompletableFuture<Set<String>> result = future;
+        io.execute(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    loaded(player, backend.load(player), result);
+                } catch (Throwable t) {
+                    failed(player, result, t);
+                }
+            }
+        });
+
+        return result;
+    }
+
+    /**
+     * Loads several players' ownership into memory in the background, in
+     * batches, for example everyone joining an arena lobby. Players who are
+     * already loaded or loading are not read again.
+     *
+     * @param players The players' UUIDs.
+     * @return A future completed when every player is loaded, or
+     * exceptionally if any could not be.
+     */
+    public CompletableFuture<Void> loadAll(Collection<UUID> players) {
+        Map<UUID, CompletableFuture<Set<String>>> batch = new LinkedHashMap<UUID, CompletableFuture<Set<String>>>();
+        List<CompletableFuture<Set<String>>> all = new ArrayList<CompletableFuture<Set<String>>>();
+
+        for (UUID player : players) {
+            if (owned.containsKey(player) || batch.containsKey(player)) {
+                continue;
+            }
+
+            CompletableFuture<Set<String>> future = new CompletableFuture<Set<String>>();
+            CompletableFuture<Set<String>> existing = loading.putIfAbsent(player, future);
+            if (existing != null) {
+                all.add(existing);
+            } else {
+                batch.put(player, future);
+                all.add(future);
+            }
+        }
+
+        if (!batch.isEmpty()) {
+            io.execute(new BatchLoad(batch));
+        }
+
+        return CompletableFuture.allOf(all.toArray(new CompletableFuture<?>[all.size()]));
+    }
+
+    /**
+     * @param player The player's UUID.
+     * @return If the player's ownership is in memory.
+     */
+    public boolean isLoaded(UUID player) {
+        return owned.containsKey(player);
+    }
+
+    /**
+     * Checks ownership from memory. A player who is not loaded yet owns
+     * nothing; a load is started so later checks see their classes.
+     *
+     * @param player  The player's UUID.
+     * @param classId The class ID.
+     * @return If the player owns the class.
+     */
+    public boolean owns(UUID player, String classId) {
+        Set<String> classes = owned.get(player);
+        if (classes == null) {
+            load(player);
+            return false;
+        }
+
+        return classes.contains(classId);
+    }
+
+    /**
+     * @param player The player's UUID.
+     * @return A read-only view of the player's owned classes, empty if the
+     * player is not loaded.
+     */
+    public Set<String> getOwned(UUID player) {
+        Set<String> classes = owned.get(player);
+        return classes != null ? Collections.unmodifiableSet(classes) : Collections.<String>emptySet();
+    }
+
+    /**
+     * Grants a class for free in memory immediately and persists it in the
+     * background.
+     *
+     * @param player  The player's UUID.
+     * @param classId The class ID.
+     * @return False if the player already owned the class.
+     */
+    public boolean grant(UUID player, String classId) {
+        return grant(player, classId, 0);
+    }
+
+    /**
+     * Grants a class in memory immediately and persists it in the background.
+     * For a player who is not loaded, for example one who quit while the
+     * purchase was running, it is only persisted; memory never holds part
+     * of a player's classes.
+     *
+     * @param player  The player's UUID.
+     * @param classId The class ID.
+     * @param price   The price paid, recorded by backends that keep a
+     *                history.
+     * @return False if the player is loaded and already owned the class.
+     */
+    public boolean grant(final UUID player, final String classId, final double price) {
+        // Checked and queued under the lock, so a load either already put
+        // the player in memory or picks the grant up when it does, and a
+        // load started after this reads the backend after the write.
+        synchronized (residency) {
+            Set<String> classes = owned.get(player);
+            if (classes != null) {
+                if (!classes.add(classId)) {
+                    return false;
+                }
+            } else {
+                defer(player, classId, true);
+            }
+
+            io.execute(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        whenDurable(backend.grant(player, classId, price), "Unable to save {} for {}", classId, player);
+                    } catch (IOException e) {
+                        failures.increment();
+                        log.error("Unable to save {} for {}", classId, player, e);
+                    } catch (RuntimeException e) {
+                        failures.increment();
+                        log.error("Unable to save {} for {}", classId, player, e);
+                    }
+                }
+            });
+        }
+
+        return true;
+    }
+
+    /**
+     * Revokes a class in memory immediately and persists it in the background.
+     *
+     * @param player  The player's UUID.
+     * @param classId The class ID.
+     */
+    public void revoke(final UUID player, final String classId) {
+        synchronized (residency) {
+            Set<String> classes = owned.get(player);
+            if (classes != null) {
+                classes.remove(classId);
+            } else {
+                defer(player, classId, false);
+            }
+
+            io.execute(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        whenDurable(backend.revoke(player, classId), "Unable to revoke {} from {}", classId, player);
+                    } catch (IOException e) {
+                        failures.increment();
+                        log.error("Unable to revoke {} from {}", classId, player, e);
+                    } catch (RuntimeException e) {
+                        failures.increment();
+                        log.error("Unable to revoke {} from {}", classId, player, e);
+                    }
+                }
+            });
+        }
+    }
+
+    /**
+     * Drops a player from memory, for example when they quit. A load still
+     * running for them is not kept when it finishes, so a later join loads
+     * them afresh. Writes that are still queued are not affected.
+     *
+     * @param player The player's UUID.
+     */
+    public void unload(UUID player) {
+        synchronized (residency) {
+            loading.remove(player);
+            deferred.remove(player);
+            owned.remove(player);
+        }
+    }
+
+    /**
+     * @return The number of players whose ownership is in memory.
+     */
+    public int getLoadedCount() {
+        return owned.size();
+    }
+
+    /**
+     * @return The number of backend reads and writes waiting to run.
+     */
+    public int getQueueDepth() {
+        return io.getQueue().size();
+    }
+
+    /**
+     * @return The number of backend reads and writes that failed.
+     */
+    public long getFailureCount() {
+        return failures.sum();
+    }
+
+    /**
+     * @return The number of batch reads of the backend.
+     */
+    public long getBatchCount() {
+        return batches.sum();
+    }
+
+    /**
+     * @return The number of players loaded by batch reads.
+     */
+    public long getBatchedPlayerCount() {
+        return batchedPlayers.sum();
+    }
+
+    /**
+     * @return The number of batch reads that ran over the latency budget.
+     */
+    public long getOverBudgetCount() {
+        return overBudget.sum();
+    }
+
+    /**
+     * @return The number of players the next batch read may include.
+     */
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    /**
+     * @return The backend ownership is stored in.
+     */
+    public OwnershipBackend getBackend() {
+        return backend;
+    }
+
+    /**
+     * Waits for queued writes to finish and closes the backend.
+     */
+    public void close() {
+        io.execute(new Runnable() {
+            @Override
+            public void run() {
+                backend.close();
+            }
+        });
+        io.shutdown();
+
+        try {
+            if (!io.awaitTermination(10, TimeUnit.SECONDS)) {
+                log.error("Timed out saving class ownership; some purchases may be lost.");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // Counts and logs a write that fails after the backend accepted it, such
+    // as a journal batch that could not be synced.
+    private void whenDurable(CompletableFuture<Void> write, final String message, final String classId, final UUID player) {
+        write.whenComplete(new BiConsumer<Void, Throwable>() {
+            @Override
+            public void accept(Void ignored, Throwable t) {
+                if (t != null) {
+                    failures.increment();
+                    log.error(message, classId, player, t);
+                }
+            }
+        });
+    }
+
+    // Records a grant or revocation of a player who is not loaded for the
+    // load that may be running for them, which could have read the backend
+    // before the write. Without a load there is nothing to do; the next one
+    // reads the write. Called with the residency lock held.
+    private void defer(UUID player, String classId, boolean granted) {
+        if (!loading.containsKey(player)) {
+            return;
+        }
+
+        Map<String, Boolean> changes = deferred.get(player);
+        if (changes == null) {
+            changes = new HashMap<String, Boolean>();
+            deferred.put(player, changes);
+        }
+
+        changes.put(classId, granted);
+    }
+
+    // Puts a player's loaded classes in memory, unless the player was
+    // unloaded since the load was asked for. Runs on the I/O thread.
+    private void loaded(UUID player, Set<String> loaded, CompletableFuture<Set<String>> result) {
+        Set<String> classes = ConcurrentHashMap.newKeySet();
+        classes.addAll(loaded);
+
+        synchronized (residency) {
+            if (loading.remove(player, result)) {
+                Map<String, Boolean> changes = deferred.remove(player);
+                if (changes != null) {
+                    for (Map.Entry<String, Boolean> change : changes.entrySet()) {
+                        if (change.getValue()) {
+                            classes.add(change.getKey());
+                        } else {
+                            classes.remove(change.getKey());
+                        }
+                    }
+                }
+
+                Set<String> existing = owned.putIfAbsent(player, classes);
+                if (existing != null) {
+                    existing.addAll(classes);
+                    classes = existing;
+                }
+            }
+        }
+
+        result.complete(Collections.unmodifiableSet(classes));
+    }
+
+    private void failed(UUID player, CompletableFuture<Set<String>> result, Throwable t) {
+        failures.increment();
+        log.error("Unable to load classes owned by {}", player, t);
+
+        synchronized (residency) {
+            if (loading.remove(player, result)) {
+                deferred.remove(player);
+            }
+        }
+
+        result.completeExceptionally(t);
+    }
+
+    /**
+     * Reads one batch of players per run, then queues itself again for the
+     * rest, so other work gets the I/O thread in between.
+     */
+    private class BatchLoad implements Runnable {
+
+        private final Iterator<Map.Entry<UUID, CompletableFuture<Set<String>>>> remaining;
+
+        BatchLoad(Map<UUID, CompletableFuture<Set<String>>> players) {
+            this.remaining = players.entrySet().iterator();
+        }
+
+        @Override
+        public void run() {
+            int size = batchSize;
+            Map<UUID, CompletableFuture<Set<String>>> batch = new HashMap<UUID, CompletableFuture<Set<String>>>(size * 2);
+            while (remaining.hasNext() && batch.size() < size) {
+                Map.Entry<UUID, CompletableFuture<Set<String>>> entry = remaining.next();
+                batch.put(entry.getKey(), entry.getValue());
+            }
+
+            try {
+                load(batch);
+            } catch (RuntimeException e) {
+                // Thrown after the backend read, so fail whoever is left.
+                for (Map.Entry<UUID, CompletableFuture<Set<String>>> entry : batch.entrySet()) {
+                    if (!entry.getValue().isDone()) {
+                        failed(entry.getKey(), entry.getValue(), e);
+                    }
+                }
+            }
+
+            if (remaining.hasNext()) {
+                try {
+                    io.execute(this);
+                } catch (RejectedExecutionException e) {
+                    // Closing; fail the rest rather than leave them waiting.
+                    IOException closed = new IOException("Ownership storage is closed");
+                    while (remaining.hasNext()) {
+                        Map.Entry<UUID, CompletableFuture<Set<String>>> entry = remaining.next();
+                        failed(entry.getKey(), entry.getValue(), closed);
+                    }
+                }
+            }
+        }
+
+        private void load(Map<UUID, CompletableFuture<Set<String>>> batch) {
+            long start = System.nanoTime();
+            Map<UUID, Set<String>> result;
+
+            try {
+                result = backend.loadAll(batch.keySet());
+            } catch (Throwable t) {
+                log.warn("Unable to load {} players at once, loading them one by one: {}", batch.size(), t.toString());
+                loadEach(batch);
+                return;
+            }
+
+            long elapsed = System.nanoTime() - start;
+            batches.increment();
+            batchedPlayers.add(batch.size());
+
+            for (Map.Entry<UUID, CompletableFuture<Set<String>>> entry : batch.entrySet()) {
+                Set<String> classes = result.get(entry.getKey());
+                loaded(entry.getKey(), classes != null ? classes : Collections.<String>emptySet(), entry.getValue());
+            }
+
+            if (elapsed > budgetNanos) {
+                overBudget.increment();
+                batchSize = Math.max(1, batch.size() / 2);
+                log.debug("Loading {} players took {} ms, over the budget; batches are now {}",
+                        batch.size(), TimeUnit.NANOSECONDS.toMillis(elapsed), batchSize);
+            } else if (elapsed < budgetNanos / 4 && batch.size() == batchSize && batchSize < maxBatch) {
+                batchSize = Math.min(maxBatch, batchSize * 2);
+            }
+        }
+
+        private void loadEach(Map<UUID, CompletableFuture<Set<String>>> batch) {
+            for (Map.Entry<UUID, CompletableFuture<Set<String>>> entry : batch.entrySet()) {
+                try {
+                    loaded(entry.getKey(), backend.load(entry.getKey()), entry.getValue());
+                } catch (Throwable t) {
+                    failed(entry.getKey(), entry.getValue(), t);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,394 @@
+package me.gnat008.MobArenaBuyableClasses.ownership;
+
+import me.gnat008.MobArenaBuyableClasses.logging.Log;
+import me.gnat008.MobArenaBuyableClasses.logging.Logs;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Append-only log of purchase records with group commit. Appends are
+ * buffered in memory and written by a background thread in batches of up
+ * to maxBatch records, waiting at most maxLatency for a batch to fill; each
+ * batch is synced to disk once, and the futures of all its records are
+ * completed together.
+ *
+ * Records are stored one per line. A line cut short by a crash has no line
+ * break; it is skipped on replay and cut off before the journal is opened
+ * again, so the next record does not end up on the same line. A batch
+ * that fails to write is cut off the same way. Fields are separated by
+ * tabs; a class id is escaped so its own tabs, line breaks and
+ * backslashes can't split a record.
+ */
+public class PurchaseJournal implements Runnable {
+
+    private static final Log log = Logs.get("ownership");
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private final File file;
+    private final int maxBatch;
+    private final long maxLatencyNanos;
+
+    // Queued by close() to stop the writer once everything before it is
+    // written. Interrupting the writer instead would close the channel.
+    private static final Pending STOP = new Pending(null);
+
+    private final BlockingQueue<Pending> queue = new LinkedBlockingQueue<Pending>();
+
+    private final AtomicLong batches = new AtomicLong();
+    private final AtomicLong records = new AtomicLong();
+
+    private FileChannel channel;
+    private Thread thread;
+    private volatile boolean running;
+
+    public PurchaseJournal(File file, int maxBatch, long maxLatencyMillis) {
+        this.file = file;
+        this.maxBatch = Math.max(1, maxBatch);
+        this.maxLatencyNanos = TimeUnit.MILLISECONDS.toNanos(maxLatencyMillis);
+    }
+
+    /**
+     * Opens the journal for appending and starts the writer thread.
+     *
+     * @throws IOException If the journal file cannot be opened.
+     */
+    public synchronized void open() throws IOException {
+        if (running) {
+            return;
+        }
+
+        file.getAbsoluteFile().getParentFile().mkdirs();
+        channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+
+        running = true;
+        thread = new Thread(this, "MABuyableClasses-Journal");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Queues a record for the next batch.
+     *
+     * @param record The record to append.
+     * @return A future completed once the record's batch is synced to disk.
+     */
+    public CompletableFuture<Void> append(PurchaseRecord record) {
+        Pending pending = new Pending(record);
+
+        if (!running) {
+            pending.future.completeExceptionally(new IOException("Journal is closed"));
+            return pending.future;
+        }
+
+        queue.add(pending);
+        return pending.future;
+    }
+
+    /**
+     * Stops accepting records, writes out everything already queued and
+     * closes the file.
+     */
+    public synchronized void close() {
+        if (!running) {
+            return;
+        }
+
+        running = false;
+        queue.add(STOP);
+
+        try {
+            thread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        // Anything that raced past the running check after STOP.
+        List<Pending> rest = new ArrayList<Pending>();
+        queue.drainTo(rest);
+        rest.remove(STOP);
+        if (!rest.isEmpty()) {
+            commit(rest);
+        }
+
+        try {
+            channel.close();
+        } catch (IOException ignore) {
+
+        }
+    }
+
+    /**
+     * Reads every complete record in the journal, in order. Only call this
+     * while the journal is closed.
+     *
+     * @param result The list to add the records to.
+     * @return The length of the journal up to the end of its last complete
+     * line. Anything after it is a line cut short by a crash.
+     * @throws IOException If the journal cannot be read.
+     */
+    public long readAll(List<PurchaseRecord> result) throws IOException {
+        if (!file.exists()) {
+            return 0;
+        }
+
+        byte[] data = Files.readAllBytes(file.toPath());
+        int start = 0;
+
+        for (int i = 0; i < data.length; i++) {
+            if (data[i] != '\n') {
+                continue;
+            }
+
+            PurchaseRecord record = decode(new String(data, start, i - start, UTF_8));
+            if (record != null) {
+                result.add(record);
+            }
+
+            start = i + 1;
+        }
+
+        return start;
+    }
+
+    /**
+     * Empties the journal, once its records are safely in a snapshot. Only
+     * call this while the journal is closed.
+     *
+     * @throws IOException If the journal cannot be truncated.
+     */
+    public void truncate() throws IOException {
+        truncate(0);
+    }
+
+    /**
+     * Cuts the journal off at a length, such as the end of its last
+     * complete line. Only call this while the journal is closed.
+     *
+     * @param length The length to keep.
+     * @throws IOException If the journal cannot be truncated.
+     */
+    public void truncate(long length) throws IOException {
+        FileChannel out = FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+        try {
+            out.truncate(length);
+            out.force(true);
+        } finally {
+            out.close();
+        }
+    }
+
+    /**
+     * @return The length of the journal file.
+     */
+    public long length() {
+        return file.length();
+    }
+
+    /**
+     * @return The number of batches synced to disk.
+     */
+    public long getBatchCount() {
+        return batches.get();
+    }
+
+    /**
+     * @return The number of records synced to disk.
+     */
+    public long getRecordCount() {
+        return records.get();
+    }
+
+    /**
+     * @return The number of records waiting for the next batch.
+     */
+    public int getQueueDepth() {
+        return queue.size();
+    }
+
+    @Override
+    public void run() {
+        List<Pending> batch = new ArrayList<Pending>(maxBatch);
+        boolean stop = false;
+
+        while (!stop) {
+            try {
+                batch.add(queue.take());
+
+                long deadline = System.nanoTime() + maxLatencyNanos;
+                while (batch.size() < maxBatch && batch.get(batch.size() - 1) != STOP) {
+                    Pending next = queue.poll(Math.max(deadline - System.nanoTime(), 0), TimeUnit.NANOSECONDS);
+                    if (next == null) {
+                        break;
+                    }
+
+                    batch.add(next);
+                }
+            } catch (InterruptedException e) {
+                stop = true;
+            }
+
+            if (batch.remove(STOP)) {
+                stop = true;
+            }
+
+            if (!batch.isEmpty()) {
+                commit(batch);
+                batch.clear();
+            }
+        }
+    }
+
+    private void commit(List<Pending> batch) {
+        StringBuilder builder = new StringBuilder(batch.size() * 80);
+        for (Pending pending : batch) {
+            encode(pending.record, builder);
+        }
+
+        long position = -1;
+
+        try {
+            position = channel.size();
+
+            ByteBuffer buffer = ByteBuffer.wrap(builder.toString().getBytes(UTF_8));
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+
+            channel.force(false);
+
+            batches.incrementAndGet();
+            records.addAndGet(batch.size());
+
+            for (Pending pending : batch) {
+                pending.future.complete(null);
+            }
+        } catch (IOException e) {
+            log.error("Unable to write {} purchases to the journal", batch.size(), e);
+
+            // Drop whatever part of the batch made it out, so the next batch
+            // starts on a line of its own.
+            if (position >= 0) {
+                try {
+                    channel.truncate(position);
+                    channel.force(false);
+                } catch (IOException cut) {
+                    log.error("Unable to cut a failed batch off the journal; it is repaired on the next start.", cut);
+                }
+            }
+
+            for (Pending pending : batch) {
+                pending.future.completeExceptionally(e);
+            }
+        }
+    }
+
+    private static void encode(PurchaseRecord record, StringBuilder builder) {
+        builder.append(record.getType().getCode()).append('\t')
+                .append(record.getPlayer()).append('\t')
+                .append(escape(record.getClassId())).append('\t')
+                .append(record.getPrice()).append('\t')
+                .append(record.getTimestamp()).append('\n');
+    }
+
+    private static PurchaseRecord decode(String line) {
+        String[] fields = line.split("\t");
+        if (fields.length != 5 || fields[0].length() != 1) {
+            return null;
+        }
+
+        PurchaseRecord.Type type = PurchaseRecord.Type.fromCode(fields[0].charAt(0));
+        if (type == null) {
+            return null;
+        }
+
+        try {
+            return new PurchaseRecord(type, UUID.fromString(fields[1]), unescape(fields[2]),
+                    Double.parseDouble(fields[3]), Long.parseLong(fields[4]));
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    private static String escape(String value) {
+        StringBuilder builder = null;
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            String escaped;
+            switch (c) {
+                case '\\': escaped = "\\\\"; break;
+                case '\t': escaped = "\\t"; break;
+                case '\n': escaped = "\\n"; break;
+                case '\r': escaped = "\\r"; break;
+                default: escaped = null;
+            }
+
+            if (escaped != null && builder == null) {
+                builder = new StringBuilder(value.length() + 8).append(value, 0, i);
+            }
+
+            if (builder != null) {
+                if (escaped != null) {
+                    builder.append(escaped);
+                } else {
+                    builder.append(c);
+                }
+            }
+        }
+
+        return builder != null ? builder.toString() : value;
+    }
+
+    // Throws IllegalArgumentException on an unknown or unfinished escape.
+    private static String unescape(String value) {
+        if (value.indexOf('\\') < 0) {
+            return value;
+        }
+
+        StringBuilder builder = new StringBuilder(value.length());
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c != '\\') {
+                builder.append(c);
+                continue;
+            }
+
+            if (++i == value.length()) {
+                throw new IllegalArgumentException("Unfinished escape in " + value);
+            }
+
+            switch (value.charAt(i)) {
+                case '\\': builder.append('\\'); break;
+                case 't': builder.append('\t'); break;
+                case 'n': builder.append('\n'); break;
+                case 'r': builder.append('\r'); break;
+                default: throw new IllegalArgumentException("Unknown escape in " + value);
+            }
+        }
+
+        return builder.toString();
+    }
+
+    private static class Pending {
+
+        private final PurchaseRecord record;
+        private final CompletableFuture<Void> future = new CompletableFuture<Void>();
+
+        private Pending(PurchaseRecord record) {
+            this.record = record;
+        }
+    }
+}
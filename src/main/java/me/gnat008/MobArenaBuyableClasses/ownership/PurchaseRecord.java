@@ -0,0 +1,77 @@
+package me.gnat008.MobArenaBuyableClasses.ownership;
+
+import java.util.UUID;
+
+/**
+ * A single change to a player's owned classes, as written to the purchase
+ * journal.
+ */
+public final class PurchaseRecord {
+
+    public enum Type {
+        GRANT('G'),
+        REVOKE('R');
+
+        private final char code;
+
+        Type(char code) {
+            this.code = code;
+        }
+
+        public char getCode() {
+            return code;
+        }
+
+        public static Type fromCode(char code) {
+            for (Type type : values()) {
+                if (type.code == code) {
+                    return type;
+                }
+            }
+
+            return null;
+        }
+    }
+
+    private final Type type;
+    private final UUID player;
+    private final String classId;
+    private final double price;
+    private final long timestamp;
+
+    public PurchaseRecord(Type type, UUID player, String classId, double price, long timestamp) {
+        this.type = type;
+        this.player = player;
+        this.classId = classId;
+        this.price = price;
+        this.timestamp = timestamp;
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    public UUID getPlayer() {
+        return player;
+    }
+
+    public String getClassId() {
+        return classId;
+    }
+
+    /**
+     * @return The price paid, or 0 for revocations and free grants.
+     */
+    public double getPrice() {
+        return price;
+    }
+
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    @Override
+    public String toString() {
+        return type + " " + classId + " " + player + " @" + price;
+    }
+}
@@ -0,0 +1,180 @@
+package me.gnat008.MobArenaBuyableClasses.ownership;
+
+import java.io.File;
+import java.io.IOException;
+import java.sql.*;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Stores ownership in a local SQLite database file, using the driver that
+ * ships with CraftBukkit. The connection is opened on first use, so it is
+ * never opened on the main thread.
+ */
+public class SQLiteOwnershipBackend implements OwnershipBackend {
+
+    private static final String CREATE_TABLE = "CREATE TABLE IF NOT EXISTS owned_classes (" +
+            "player CHAR(36) NOT NULL, " +
+            "class_id VARCHAR(64) NOT NULL, " +
+            "purchased_at BIGINT NOT NULL, " +
+            "PRIMARY KEY (player, class_id))";
+
+    private static final String SELECT = "SELECT class_id FROM owned_classes WHERE player = ?";
+    private static final String SELECT_ALL = "SELECT player, class_id FROM owned_classes WHERE player IN (";
+    private static final String INSERT = "INSERT OR IGNORE INTO owned_classes (player, class_id, purchased_at) VALUES (?, ?, ?)";
+    private static final String DELETE = "DELETE FROM owned_classes WHERE player = ? AND class_id = ?";
+
+    // SQLite allows 999 parameters per statement.
+    private static final int MAX_PARAMETERS = 500;
+
+    private final File file;
+    private Connection connection;
+
+    public SQLiteOwnershipBackend(File file) {
+        this.file = file;
+    }
+
+    @Override
+    public Set<String> load(UUID player) throws IOException {
+        PreparedStatement statement = null;
+
+        try {
+            statement = getConnection().prepareStatement(SELECT);
+            statement.setString(1, player.toString());
+
+            ResultSet result = statement.executeQuery();
+            Set<String> classes = new HashSet<String>();
+
+            while (result.next()) {
+                classes.add(result.getString(1));
+            }
+
+            return classes;
+        } catch (SQLException e) {
+            throw new IOException("Unable to load ownership of " + player, e);
+        } finally {
+            close(statement);
+        }
+    }
+
+    @Override
+    public Map<UUID, Set<String>> loadAll(Collection<UUID> players) throws IOException {
+        Map<UUID, Set<String>> result = new HashMap<UUID, Set<String>>();
+        List<UUID> remaining = new ArrayList<UUID>(players);
+
+        for (int start = 0; start < remaining.size(); start += MAX_PARAMETERS) {
+            List<UUID> chunk = remaining.subList(start, Math.min(start + MAX_PARAMETERS, remaining.size()));
+            PreparedStatement statement = null;
+
+            try {
+                StringBuilder sql = new StringBuilder(SELECT_ALL);
+                for (int i = 0; i < chunk.size(); i++) {
+                    sql.append(i == 0 ? "?" : ", ?");
+                }
+
+                statement = getConnection().prepareStatement(sql.append(')').toString());
+                for (int i = 0; i < chunk.size(); i++) {
+                    statement.setString(i + 1, chunk.get(i).toString());
+                }
+
+                ResultSet rows = statement.executeQuery();
+                while (rows.next()) {
+                    UUID player = UUID.fromString(rows.getString(1));
+                    Set<String> classes = result.get(player);
+                    if (classes == null) {
+                        classes = new HashSet<String>();
+                        result.put(player, classes);
+                    }
+
+                    classes.add(rows.getString(2));
+                }
+            } catch (SQLException e) {
+                throw new IOException("Unable to load ownership of " + chunk.size() + " players", e);
+            } finally {
+                close(statement);
+            }
+        }
+
+        return result;
+    }
+
+    @Override
+    public CompletableFuture<Void> grant(UUID player, String classId, double price) throws IOException {
+        PreparedStatement statement = null;
+
+        try {
+            statement = getConnection().prepareStatement(INSERT);
+            statement.setString(1, player.toString());
+            statement.setString(2, classId);
+            statement.setLong(3, System.currentTimeMillis());
+            statement.executeUpdate();
+            return CompletableFuture.completedFuture(null);
+        } catch (SQLException e) {
+            throw new IOException("Unable to grant " + classId + " to " + player, e);
+        } finally {
+            close(statement);
+        }
+    }
+
+    @Override
+    public CompletableFuture<Void> revoke(UUID player, String classId) throws IOException {
+        PreparedStatement statement = null;
+
+        try {
+            statement = getConnection().prepareStatement(DELETE);
+            statement.setString(1, player.toString());
+            statement.setString(2, classId);
+            statement.executeUpdate();
+            return CompletableFuture.completedFuture(null);
+        } catch (SQLException e) {
+            throw new IOException("Unable to revoke " + classId + " from " + player, e);
+        } finally {
+            close(statement);
+        }
+    }
+
+    @Override
+    public void close() {
+        if (connection != null) {
+            try {
+                connection.close();
+            } catch (SQLException ignore) {
+
+            }
+
+            connection = null;
+        }
+    }
+
+    private Connection getConnection() throws SQLException {
+        if (connection == null) {
+            try {
+                Class.forName("org.sqlite.JDBC");
+            } catch (ClassNotFoundException e) {
+                throw new SQLException("SQLite driver not found", e);
+            }
+
+            file.getAbsoluteFile().getParentFile().mkdirs();
+            connection = DriverManager.getConnection("jdbc:sqlite:" + file.getAbsolutePath());
+
+            Statement statement = connection.createStatement();
+            try {
+                statement.executeUpdate(CREATE_TABLE);
+            } finally {
+                close(statement);
+            }
+        }
+
+        return connection;
+    }
+
+    private static void close(Statement statement) {
+        try {
+            if (statement != null) {
+                statement.close();
+            }
+        } catch (SQLException ignore) {
+
+        }
+    }
+}
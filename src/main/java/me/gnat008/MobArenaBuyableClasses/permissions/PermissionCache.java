@@ -0,0 +1,189 @@
+package me.gnat008.MobArenaBuyableClasses.permissions;
+
+import com.sk89q.wepif.PermissionsResolverManager;
+import me.gnat008.MobArenaBuyableClasses.logging.Log;
+import me.gnat008.MobArenaBuyableClasses.logging.Logs;
+import org.bukkit.entity.Player;
+
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Caches permission checks and permission groups per player. Entries are
+ * invalidated when a player joins, quits or changes world, which is when
+ * their effective permissions usually change. If resolving groups fails,
+ * the last known groups are used instead.
+ */
+public class PermissionCache {
+
+    private static final Log log = Logs.get("permissions");
+
+    private static final String[] NO_GROUPS = new String[0];
+
+    // Short node -> prefixed, interned node.
+    private final ConcurrentMap<String, String> nodes = new ConcurrentHashMap<String, String>();
+    private final ConcurrentMap<UUID, Entry> players = new ConcurrentHashMap<UUID, Entry>();
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder failures = new LongAdder();
+    private final LongAdder missNanos = new LongAdder();
+
+    /**
+     * Checks if a player has a plugin permission.
+     *
+     * @param p    The player to check.
+     * @param node The node, without the "mabuyableclasses." prefix.
+     * @return If the player has the permission node.
+     */
+    public boolean hasPermission(Player p, String node) {
+        return hasFullPermission(p, qualify(node));
+    }
+
+    /**
+     * Checks if a player has a permission node given in full, such as one
+     * of the {@link Permissions} constants.
+     *
+     * @param p    The player to check.
+     * @param node The full node.
+     * @return If the player has the permission node.
+     */
+    public boolean hasFullPermission(Player p, String node) {
+        Entry entry = getEntry(p);
+
+        Boolean cached = entry.permissions.get(node);
+        if (cached != null) {
+            hits.increment();
+            return cached;
+        }
+
+        long start = System.nanoTime();
+        boolean result = p.hasPermission(node);
+        missNanos.add(System.nanoTime() - start);
+        misses.increment();
+
+        entry.permissions.put(node, result);
+        return result;
+    }
+
+    /**
+     * Get the groups that the player is in.
+     *
+     * @param p The player.
+     * @return The groups, the last known groups if they cannot be resolved,
+     * or an empty array. The array is shared and must not be modified.
+     */
+    public String[] getGroups(Player p) {
+        Entry entry = getEntry(p);
+
+        String[] groups = entry.groups;
+        if (groups != null && entry.groupsValid) {
+            hits.increment();
+            return groups;
+        }
+
+        long start = System.nanoTime();
+        try {
+            groups = PermissionsResolverManager.getInstance().getGroups(p);
+            if (groups == null) {
+                groups = NO_GROUPS;
+            }
+
+            entry.groups = groups;
+            entry.groupsValid = true;
+        } catch (RuntimeException e) {
+            failures.increment();
+            log.warn("Unable to resolve groups of {}, using last known groups: {}", p.getName(), e.toString());
+
+            groups = entry.groups != null ? entry.groups : NO_GROUPS;
+        } finally {
+            missNanos.add(System.nanoTime() - start);
+            misses.increment();
+        }
+
+        return groups;
+    }
+
+    /**
+     * Forgets a player's cached permissions and marks their groups stale.
+     * The stale groups are kept as a fallback for failed lookups.
+     *
+     * @param player The player's UUID.
+     */
+    public void invalidate(UUID player) {
+        Entry entry = players.get(player);
+        if (entry != null) {
+            entry.permissions.clear();
+            entry.groupsValid = false;
+        }
+    }
+
+    /**
+     * Drops everything cached for a player, for example when they quit.
+     *
+     * @param player The player's UUID.
+     */
+    public void remove(UUID player) {
+        players.remove(player);
+    }
+
+    public void invalidateAll() {
+        for (UUID player : players.keySet()) {
+            invalidate(player);
+        }
+    }
+
+    public long getHits() {
+        return hits.sum();
+    }
+
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    public long getFailures() {
+        return failures.sum();
+    }
+
+    /**
+     * @return The total time spent resolving cache misses, in nanoseconds.
+     */
+    public long getMissNanos() {
+        return missNanos.sum();
+    }
+
+    private String qualify(String node) {
+        String full = nodes.get(node);
+        if (full == null) {
+            full = (Permissions.PREFIX + node).intern();
+            nodes.putIfAbsent(node, full);
+        }
+
+        return full;
+    }
+
+    private Entry getEntry(Player p) {
+        UUID id = p.getUniqueId();
+
+        Entry entry = players.get(id);
+        if (entry == null) {
+            Entry created = new Entry();
+            entry = players.putIfAbsent(id, created);
+            if (entry == null) {
+                entry = created;
+            }
+        }
+
+        return entry;
+    }
+
+    private static class Entry {
+
+        private final ConcurrentMap<String, Boolean> permissions = new ConcurrentHashMap<String, Boolean>();
+
+        private volatile String[] groups;
+        private volatile boolean groupsValid;
+    }
+}
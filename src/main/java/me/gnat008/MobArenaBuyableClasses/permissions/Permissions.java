@@ -0,0 +1,18 @@
+package me.gnat008.MobArenaBuyableClasses.permissions;
+
+/**
+ * Permission nodes used by the plugin, already prefixed and interned so
+ * checks never build node strings.
+ */
+public final class Permissions {
+
+    public static final String PREFIX = "mabuyableclasses.";
+
+    public static final String ADMIN = PREFIX + "admin";
+    public static final String RELOAD = PREFIX + "reload";
+    public static final String BUY = PREFIX + "buy";
+    public static final String FREE = PREFIX + "free";
+
+    private Permissions() {
+    }
+}
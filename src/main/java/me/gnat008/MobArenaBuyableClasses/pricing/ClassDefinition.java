@@ -0,0 +1,79 @@
+package me.gnat008.MobArenaBuyableClasses.pricing;
+
+import org.bukkit.Material;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A buyable class as defined in the configuration.
+ */
+public final class ClassDefinition {
+
+    private final String id;
+    private final double basePrice;
+    private final Material currencyItem;
+    private final Map<String, Double> discounts;
+    private final Material icon;
+    private final List<String> description;
+
+    public ClassDefinition(String id, double basePrice, Material currencyItem, Map<String, Double> discounts) {
+        this(id, basePrice, currencyItem, discounts, Material.PAPER, Collections.<String>emptyList());
+    }
+
+    public ClassDefinition(String id, double basePrice, Material currencyItem, Map<String, Double> discounts,
+                           Material icon, List<String> description) {
+        this.id = id;
+        this.basePrice = basePrice;
+        this.currencyItem = currencyItem;
+        this.discounts = Collections.unmodifiableMap(discounts);
+        this.icon = icon;
+        this.description = Collections.unmodifiableList(description);
+    }
+
+    /**
+     * @return The class name, as MobArena knows it.
+     */
+    public String getId() {
+        return id;
+    }
+
+    public double getBasePrice() {
+        return basePrice;
+    }
+
+    /**
+     * @return The item the class is paid in, or null if it is paid through
+     * the economy.
+     */
+    public Material getCurrencyItem() {
+        return currencyItem;
+    }
+
+    public boolean isPaidInItems() {
+        return currencyItem != null;
+    }
+
+    /**
+     * @return Discounts by permission group, as fractions of the base price.
+     */
+    public Map<String, Double> getDiscounts() {
+        return discounts;
+    }
+
+    /**
+     * @return The item the class is shown as in the class menu.
+     */
+    public Material getIcon() {
+        return icon;
+    }
+
+    /**
+     * @return Lines describing the class in the class menu, with '&amp;'
+     * colour codes.
+     */
+    public List<String> getDescription() {
+        return description;
+    }
+}
@@ -0,0 +1,125 @@
+package me.gnat008.MobArenaBuyableClasses.pricing;
+
+import me.gnat008.MobArenaBuyableClasses.config.ConfigurationChangeListener;
+import me.gnat008.MobArenaBuyableClasses.config.ConfigurationManager;
+import me.gnat008.MobArenaBuyableClasses.permissions.PermissionCache;
+import me.gnat008.MobArenaBuyableClasses.permissions.Permissions;
+import me.gnat008.MobArenaBuyableClasses.util.YAMLChange;
+import org.bukkit.entity.Player;
+
+import java.util.Arrays;
+
+/**
+ * Answers "what does this class cost for this player" from a compiled
+ * {@link PriceTable}. The table is recompiled only after a reload changes
+ * the "classes" section, the next time a price is asked for.
+ */
+public class PriceEngine implements ConfigurationChangeListener {
+
+    private final ConfigurationManager configuration;
+    private final PermissionCache permissions;
+
+    private volatile PriceTable table = PriceTable.EMPTY;
+    private volatile boolean stale = true;
+
+    public PriceEngine(ConfigurationManager configuration, PermissionCache permissions) {
+        this.configuration = configuration;
+        this.permissions = permissions;
+
+        configuration.addChangeListener("classes", this);
+    }
+
+    @Override
+    public void onChange(YAMLChange change) {
+        stale = true;
+    }
+
+    /**
+     * @return The current table, recompiled first if the configuration
+     * changed since it was built.
+     */
+    public PriceTable getTable() {
+        if (stale) {
+            stale = false;
+            table = PriceTable.compile(configuration.getConfig().getSnapshot());
+        }
+
+        return table;
+    }
+
+    /**
+     * Gets the price of a class for a player: the lowest price among their
+     * permission groups, or nothing for players with the free permission.
+     *
+     * @param p       The player.
+     * @param classId The class name.
+     * @return The price, or -1 if the class is not buyable.
+     */
+    public double getPrice(Player p, String classId) {
+        PriceTable table = getTable();
+
+        int classIndex = table.classIndex(classId);
+        if (classIndex == PriceTable.NO_CLASS) {
+            return -1;
+        }
+
+        if (permissions.hasFullPermission(p, Permissions.FREE)) {
+            return 0;
+        }
+
+        double price = table.price(classIndex, PriceTable.NO_GROUP);
+        for (String group : permissions.getGroups(p)) {
+            price = Math.min(price, table.price(classIndex, table.groupIndex(group.toLowerCase())));
+        }
+
+        return price;
+    }
+
+    /**
+     * Gets the ids, in a table, of the groups of a player that have a
+     * discount on some class, sorted and without repeats. Players with the
+     * same ids pay the same for every class.
+     *
+     * @param p     The player.
+     * @param table The table, as returned by {@link #getTable()}.
+     * @return The ids, or null if the player gets every class for free.
+     */
+    public int[] getPriceGroups(Player p, PriceTable table) {
+        if (permissions.hasFullPermission(p, Permissions.FREE)) {
+            return null;
+        }
+
+        String[] groups = permissions.getGroups(p);
+        int[] indexes = new int[groups.length];
+        int count = 0;
+
+        for (String group : groups) {
+            int index = table.groupIndex(group.toLowerCase());
+            if (index != PriceTable.NO_GROUP) {
+                indexes[count++] = index;
+            }
+        }
+
+        Arrays.sort(indexes, 0, count);
+
+        int unique = 0;
+        for (int i = 0; i < count; i++) {
+            if (unique == 0 || indexes[unique - 1] != indexes[i]) {
+                indexes[unique++] = indexes[i];
+            }
+        }
+
+        return Arrays.copyOf(indexes, unique);
+    }
+
+    /**
+     * @param classId The class name.
+     * @return The class's definition, or null if it is not buyable.
+     */
+    public ClassDefinition getDefinition(String classId) {
+        PriceTable table = getTable();
+
+        int classIndex = table.classIndex(classId);
+        return classIndex != PriceTable.NO_CLASS ? table.definition(classIndex) : null;
+    }
+}
@@ -0,0 +1,183 @@
+package me.gnat008.MobArenaBuyableClasses.pricing;
+
+import me.gnat008.MobArenaBuyableClasses.logging.Log;
+import me.gnat008.MobArenaBuyableClasses.logging.Logs;
+import me.gnat008.MobArenaBuyableClasses.util.YAMLSnapshot;
+import org.bukkit.Material;
+
+import java.util.*;
+
+/**
+ * Immutable table of class prices for every permission group, compiled
+ * from the "classes" section of the configuration. Prices are stored in one
+ * dense array indexed by class id and group id. Group id 0 is the base
+ * price, for players in no discounted group.
+ *
+ * <pre>
+ * classes:
+ *     knight:
+ *         price: 500
+ *         currency: economy    # or an item name, such as EMERALD
+ *         icon: IRON_SWORD     # shown in the class menu
+ *         description:
+ *         - A sturdy melee class.
+ *         discounts:
+ *             vip: 0.25        # 25% off for the vip group
+ * </pre>
+ */
+public final class PriceTable {
+
+    private static final Log log = Logs.get("pricing");
+
+    public static final int NO_CLASS = -1;
+    public static final int NO_GROUP = 0;
+
+    public static final PriceTable EMPTY = new PriceTable(new ClassDefinition[0],
+            new HashMap<String, Integer>(), new HashMap<String, Integer>(), new double[0], 1);
+
+    private final ClassDefinition[] classes;
+    private final Map<String, Integer> classIds;
+    private final Map<String, Integer> groupIds;
+    private final double[] prices;
+    private final int groupCount;
+
+    private PriceTable(ClassDefinition[] classes, Map<String, Integer> classIds, Map<String, Integer> groupIds,
+                       double[] prices, int groupCount) {
+        this.classes = classes;
+        this.classIds = classIds;
+        this.groupIds = groupIds;
+        this.prices = prices;
+        this.groupCount = groupCount;
+    }
+
+    /**
+     * Compiles the class definitions of a configuration snapshot.
+     *
+     * @param config The configuration.
+     * @return The table.
+     */
+    public static PriceTable compile(YAMLSnapshot config) {
+        Map<String, YAMLSnapshot> nodes = config.getNodes("classes");
+        if (nodes == null || nodes.isEmpty()) {
+            return EMPTY;
+        }
+
+        List<ClassDefinition> classes = new ArrayList<ClassDefinition>(nodes.size());
+        Map<String, Integer> groupIds = new HashMap<String, Integer>();
+
+        for (Map.Entry<String, YAMLSnapshot> entry : nodes.entrySet()) {
+            ClassDefinition definition = parse(entry.getKey(), entry.getValue());
+            classes.add(definition);
+
+            for (String group : definition.getDiscounts().keySet()) {
+                if (!groupIds.containsKey(group)) {
+                    groupIds.put(group, groupIds.size() + 1);
+                }
+            }
+        }
+
+        int groupCount = groupIds.size() + 1;
+        double[] prices = new double[classes.size() * groupCount];
+        Map<String, Integer> classIds = new HashMap<String, Integer>();
+
+        for (int c = 0; c < classes.size(); c++) {
+            ClassDefinition definition = classes.get(c);
+            classIds.put(definition.getId().toLowerCase(), c);
+
+            double base = definition.getBasePrice();
+            Arrays.fill(prices, c * groupCount, (c + 1) * groupCount, base);
+
+            for (Map.Entry<String, Double> discount : definition.getDiscounts().entrySet()) {
+                prices[c * groupCount + groupIds.get(discount.getKey())] = base * (1 - discount.getValue());
+            }
+        }
+
+        return new PriceTable(classes.toArray(new ClassDefinition[classes.size()]), classIds, groupIds, prices, groupCount);
+    }
+
+    private static ClassDefinition parse(String id, YAMLSnapshot node) {
+        double price = Math.max(0, node.getDouble("price", 0));
+
+        Material currency = null;
+        String currencyName = node.getString("currency", "economy");
+        if (!currencyName.equalsIgnoreCase("economy")) {
+            currency = Material.matchMaterial(currencyName);
+            if (currency == null) {
+                log.warn("Unknown currency item '{}' for class {}, using the economy instead.", currencyName, id);
+            }
+        }
+
+        Map<String, Double> discounts = new HashMap<String, Double>();
+        YAMLSnapshot discountNode = node.getNode("discounts");
+        if (discountNode != null) {
+            for (String group : discountNode.getKeys(null)) {
+                double discount = discountNode.getDouble(group, 0);
+                discounts.put(group.toLowerCase(), Math.min(1, Math.max(0, discount)));
+            }
+        }
+
+        Material icon = Material.PAPER;
+        String iconName = node.getString("icon", null);
+        if (iconName != null) {
+            icon = Material.matchMaterial(iconName);
+            if (icon == null) {
+                log.warn("Unknown icon item '{}' for class {}, using paper instead.", iconName, id);
+                icon = Material.PAPER;
+            }
+        }
+
+        return new ClassDefinition(id, price, currency, discounts, icon, node.getStringList("description"));
+    }
+
+    /**
+     * @param classId The class name, in any case.
+     * @return The class's id in this table, or {@link #NO_CLASS}.
+     */
+    public int classIndex(String classId) {
+        Integer index = classIds.get(classId.toLowerCase());
+        return index != null ? index : NO_CLASS;
+    }
+
+    /**
+     * @param group A permission group name, in lower case.
+     * @return The group's id in this table, or {@link #NO_GROUP} if no class
+     * has a discount for it.
+     */
+    public int groupIndex(String group) {
+        Integer index = groupIds.get(group);
+        return index != null ? index : NO_GROUP;
+    }
+
+    public double price(int classIndex, int groupIndex) {
+        return prices[classIndex * groupCount + groupIndex];
+    }
+
+    /**
+     * @param classIndex   The class's id.
+     * @param groupIndexes The ids of a player's groups.
+     * @return The lowest price of a class among the base price and those
+     * of some groups.
+     */
+    public double price(int classIndex, int[] groupIndexes) {
+        int row = classIndex * groupCount;
+        double price = prices[row + NO_GROUP];
+
+        for (int group : groupIndexes) {
+            price = Math.min(price, prices[row + group]);
+        }
+
+        return price;
+    }
+
+    public ClassDefinition definition(int classIndex) {
+        return classes[classIndex];
+    }
+
+    public int getClassCount() {
+        return classes.length;
+    }
+
+    public int getGroupCount() {
+        return groupCount;
+    }
+}
@@ -0,0 +1,127 @@
+package me.gnat008.MobArenaBuyableClasses.purchase;
+
+import me.gnat008.MobArenaBuyableClasses.economy.EconomyBackend;
+import me.gnat008.MobArenaBuyableClasses.ownership.OwnershipStore;
+
+import java.util.UUID;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Runs purchases safely for concurrent callers, such as commands, sign
+ * clicks and GUIs firing at once. The ownership check, debit and grant of a
+ * purchase happen under a lock striped by player, so one player can never
+ * pay twice for a class, while purchases of different players almost never
+ * share a lock.
+ */
+public class PurchaseProcessor {
+
+    // Far more stripes than players online at once, so two players only
+    // rarely land on the same stripe.
+    private static final int STRIPES = 1024;
+
+    private final ReentrantLock[] locks = new ReentrantLock[STRIPES];
+
+    private final OwnershipStore ownership;
+    private final EconomyBackend economy;
+
+    private final LongAdder purchases = new LongAdder();
+    private final LongAdder rejections = new LongAdder();
+
+    public PurchaseProcessor(OwnershipStore ownership, EconomyBackend economy) {
+        this.ownership = ownership;
+        this.economy = economy;
+
+        for (int i = 0; i < STRIPES; i++) {
+            locks[i] = new ReentrantLock();
+        }
+    }
+
+    /**
+     * Buys a class for a player: checks they don't own it, debits the price
+     * and grants it. The grant is recorded by the ownership store.
+     *
+     * @param player  The player's UUID.
+     * @param classId The class ID.
+     * @param price   The price to debit, as given by the price engine.
+     * @return The outcome.
+     */
+    public PurchaseResult purchase(UUID player, String classId, double price) {
+        return purchase(player, classId, price, economy);
+    }
+
+    /**
+     * Buys a class for a player, paying with the given backend instead of
+     * the default one, for classes priced in another currency.
+     *
+     * @param player  The player's UUID.
+     * @param classId The class ID.
+     * @param price   The price to debit, as given by the price engine.
+     * @param economy The backend to pay with.
+     * @return The outcome.
+     */
+    public PurchaseResult purchase(UUID player, String classId, double price, EconomyBackend economy) {
+        if (price < 0) {
+            rejections.increment();
+            return PurchaseResult.NOT_BUYABLE;
+        }
+
+        // Without the player's ownership in memory a double purchase
+        // cannot be ruled out.
+        if (!ownership.isLoaded(player)) {
+            ownership.load(player);
+            rejections.increment();
+            return PurchaseResult.NOT_LOADED;
+        }
+
+        ReentrantLock lock = lockFor(player);
+        lock.lock();
+
+        try {
+            if (ownership.owns(player, classId)) {
+                rejections.increment();
+                return PurchaseResult.ALREADY_OWNED;
+            }
+
+            if (price > 0 && !economy.withdraw(player, price)) {
+                rejections.increment();
+                return PurchaseResult.INSUFFICIENT_FUNDS;
+            }
+
+            if (!ownership.grant(player, classId, price)) {
+                // Granted by someone outside the purchase path meanwhile.
+                if (price > 0) {
+                    economy.deposit(player, price);
+                }
+
+                rejections.increment();
+                return PurchaseResult.ALREADY_OWNED;
+            }
+
+            purchases.increment();
+            return PurchaseResult.SUCCESS;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return The number of successful purchases.
+     */
+    public long getPurchaseCount() {
+        return purchases.sum();
+    }
+
+    /**
+     * @return The number of rejected purchases.
+     */
+    public long getRejectionCount() {
+        return rejections.sum();
+    }
+
+    private ReentrantLock lockFor(UUID player) {
+        int h = player.hashCode();
+        h ^= (h >>> 16);
+        return locks[h & (STRIPES - 1)];
+    }
+}
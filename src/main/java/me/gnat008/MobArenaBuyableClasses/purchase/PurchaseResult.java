@@ -0,0 +1,16 @@
+package me.gnat008.MobArenaBuyableClasses.purchase;
+
+/**
+ * The outcome of a purchase attempt.
+ */
+public enum PurchaseResult {
+
+    SUCCESS,
+    ALREADY_OWNED,
+    INSUFFICIENT_FUNDS,
+    NOT_LOADED,
+    NOT_BUYABLE,
+    NO_ECONOMY,
+    TIMED_OUT,
+    BUSY
+}
@@ -0,0 +1,197 @@
+package me.gnat008.MobArenaBuyableClasses.purchase;
+
+import me.gnat008.MobArenaBuyableClasses.economy.EconomyBackend;
+import me.gnat008.MobArenaBuyableClasses.economy.EconomyExecutor;
+import me.gnat008.MobArenaBuyableClasses.economy.ItemCurrencyBackend;
+import me.gnat008.MobArenaBuyableClasses.logging.Log;
+import me.gnat008.MobArenaBuyableClasses.logging.LogLevel;
+import me.gnat008.MobArenaBuyableClasses.messages.Messenger;
+import me.gnat008.MobArenaBuyableClasses.metrics.Counter;
+import me.gnat008.MobArenaBuyableClasses.metrics.Histogram;
+import me.gnat008.MobArenaBuyableClasses.metrics.MetricsRegistry;
+import me.gnat008.MobArenaBuyableClasses.pricing.ClassDefinition;
+import me.gnat008.MobArenaBuyableClasses.pricing.PriceEngine;
+import org.bukkit.Material;
+import org.bukkit.entity.Player;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeoutException;
+import java.util.function.BiConsumer;
+
+/**
+ * The entry point for buying classes from the main thread. Prices are
+ * looked up on the main thread, then the purchase itself runs through the
+ * {@link EconomyExecutor} against the backend the class is paid with, so a
+ * slow economy never stalls the server. The ownership check, debit and
+ * grant stay together under the {@link PurchaseProcessor}'s lock; only the
+ * outcome comes back to the main thread, where the player is told it and
+ * it is written to the audit log.
+ */
+public class PurchaseService {
+
+    private final PurchaseProcessor processor;
+    private final PriceEngine prices;
+    private final EconomyExecutor executor;
+    private final EconomyBackend economy;
+    private final Messenger messenger;
+    private final Log audit;
+
+    private final Histogram latency;
+    private final Map<PurchaseResult, Counter> results = new EnumMap<PurchaseResult, Counter>(PurchaseResult.class);
+
+    // Only touched on the main thread.
+    private final Map<Material, ItemCurrencyBackend> itemBackends = new EnumMap<Material, ItemCurrencyBackend>(Material.class);
+
+    /**
+     * @param processor The purchase processor.
+     * @param prices    The price engine.
+     * @param executor  The executor to run economy work on.
+     * @param economy   The backend for classes priced in money, or null if
+     *                  there is none.
+     * @param messenger Tells players the outcome of their purchases.
+     * @param audit     The log to record every outcome in, or null.
+     * @param metrics   The registry to record purchases in.
+     */
+    public PurchaseService(PurchaseProcessor processor, PriceEngine prices, EconomyExecutor executor,
+                           EconomyBackend economy, Messenger messenger, Log audit, MetricsRegistry metrics) {
+        this.processor = processor;
+        this.prices = prices;
+        this.executor = executor;
+        this.economy = economy;
+        this.messenger = messenger;
+        this.audit = audit;
+
+        this.latency = metrics.histogram("mabc_purchase_seconds", "Time from a purchase request to its outcome on the main thread.");
+        for (PurchaseResult result : PurchaseResult.values()) {
+            results.put(result, metrics.counter("mabc_purchases_total", "Purchase attempts by outcome.",
+                    "result", result.name().toLowerCase()));
+        }
+    }
+
+    /**
+     * Buys a class for a player and tells them the outcome, if they are
+     * still online. Must be called on the main thread.
+     *
+     * @param player  The player.
+     * @param classId The class ID.
+     * @return A future completed on the main thread with the outcome.
+     */
+    public CompletableFuture<PurchaseResult> purchase(final Player player, final String classId) {
+        final long start = System.nanoTime();
+        final double price = prices.getPrice(player, classId);
+        CompletableFuture<PurchaseResult> result = attempt(player, classId, price);
+
+        result.whenComplete(new BiConsumer<PurchaseResult, Throwable>() {
+            @Override
+            public void accept(PurchaseResult outcome, Throwable t) {
+                latency.observeSince(start);
+                if (outcome != null) {
+                    results.get(outcome).increment();
+
+                    if (audit != null) {
+                        audit.log(LogLevel.INFO, "purchase result={} player={} class={} price={}",
+                                outcome, player.getUniqueId(), classId, price);
+                    }
+
+                    if (player.isOnline()) {
+                        messenger.sendResult(player, outcome, classId, price);
+                    }
+                } else if (audit != null) {
+                    audit.log(LogLevel.ERROR, "purchase result=error player={} class={} price={}",
+                            player.getUniqueId(), classId, price, t);
+                }
+            }
+        });
+
+        return result;
+    }
+
+    private CompletableFuture<PurchaseResult> attempt(Player player, final String classId, final double price) {
+        final UUID id = player.getUniqueId();
+        ClassDefinition definition = prices.getDefinition(classId);
+
+        if (definition == null || price < 0) {
+            return CompletableFuture.completedFuture(PurchaseResult.NOT_BUYABLE);
+        }
+
+        EconomyBackend backend = getBackend(definition);
+
+        // Nothing to pay, so nothing to wait for.
+        if (price == 0) {
+            return CompletableFuture.completedFuture(processor.purchase(id, classId, 0, backend));
+        }
+
+        if (backend == null) {
+            return CompletableFuture.completedFuture(PurchaseResult.NO_ECONOMY);
+        }
+
+        final CompletableFuture<PurchaseResult> result = new CompletableFuture<PurchaseResult>();
+
+        executor.submit(backend, new EconomyExecutor.Task<PurchaseResult>() {
+            @Override
+            public PurchaseResult run(EconomyBackend backend) {
+                return processor.purchase(id, classId, price, backend);
+            }
+        }).whenComplete(new BiConsumer<PurchaseResult, Throwable>() {
+            @Override
+            public void accept(PurchaseResult outcome, Throwable t) {
+                if (t instanceof CompletionException && t.getCause() != null) {
+                    t = t.getCause();
+                }
+
+                if (t == null) {
+                    result.complete(outcome);
+                } else if (t instanceof TimeoutException) {
+                    result.complete(PurchaseResult.TIMED_OUT);
+                } else if (t instanceof RejectedExecutionException) {
+                    result.complete(PurchaseResult.BUSY);
+                } else {
+                    result.completeExceptionally(t);
+                }
+            }
+        });
+
+        return result;
+    }
+
+    /**
+     * Gets the backend a class is paid with. Must be called on the main
+     * thread.
+     *
+     * @param definition The class.
+     * @return The backend, or null if the class is priced in money and
+     * there is no economy.
+     */
+    public EconomyBackend getBackend(ClassDefinition definition) {
+        return definition.isPaidInItems() ? itemBackend(definition.getCurrencyItem()) : economy;
+    }
+
+    /**
+     * @return The processor purchases run through.
+     */
+    public PurchaseProcessor getProcessor() {
+        return processor;
+    }
+
+    /**
+     * @return The executor economy work runs on.
+     */
+    public EconomyExecutor getExecutor() {
+        return executor;
+    }
+
+    private ItemCurrencyBackend itemBackend(Material material) {
+        ItemCurrencyBackend backend = itemBackends.get(material);
+        if (backend == null) {
+            backend = new ItemCurrencyBackend(material);
+            itemBackends.put(material, backend);
+        }
+
+        return backend;
+    }
+}
@@ -0,0 +1,140 @@
+package me.gnat008.MobArenaBuyableClasses.util;
+
+import java.util.function.Function;
+
+/*
+ * A hash map from primitive longs to objects, for hot lookups where boxing
+ * every key into a Long would cost an allocation per lookup. Open
+ * addressing with linear probing over parallel arrays; null values are not
+ * allowed, since an empty slot is a null value. There is no removal.
+ *
+ * Not thread-safe; a map that is no longer changed may be read from any
+ * thread once safely published.
+ */
+public final class LongObjectMap<V> {
+
+    private static final float LOAD_FACTOR = 0.5f;
+
+    private long[] keys;
+    private Object[] values;
+    private int size;
+    private int mask;
+
+    public LongObjectMap() {
+        this(16);
+    }
+
+    public LongObjectMap(int expected) {
+        int capacity = Integer.highestOneBit(Math.max(4, (int) (expected / LOAD_FACTOR)) - 1) << 1;
+        keys = new long[capacity];
+        values = new Object[capacity];
+        mask = capacity - 1;
+    }
+
+    // Packs two ints, such as chunk coordinates, into one key.
+    public static long key(int high, int low) {
+        return ((long) high << 32) | (low & 0xFFFFFFFFL);
+    }
+
+    @SuppressWarnings("unchecked")
+    public V get(long key) {
+        int i = index(key);
+        Object value;
+
+        while ((value = values[i]) != null) {
+            if (keys[i] == key) {
+                return (V) value;
+            }
+
+            i = (i + 1) & mask;
+        }
+
+        return null;
+    }
+
+    public boolean containsKey(long key) {
+        return get(key) != null;
+    }
+
+    // Returns the previous value, or null if there was none.
+    @SuppressWarnings("unchecked")
+    public V put(long key, V value) {
+        if (value == null) {
+            throw new NullPointerException("Null values are not allowed");
+        }
+
+        int i = index(key);
+        Object old;
+
+        while ((old = values[i]) != null) {
+            if (keys[i] == key) {
+                values[i] = value;
+                return (V) old;
+            }
+
+            i = (i + 1) & mask;
+        }
+
+        keys[i] = key;
+        values[i] = value;
+
+        if (++size > values.length * LOAD_FACTOR) {
+            resize();
+        }
+
+        return null;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /*
+     * Returns a copy with every value passed through a function, for
+     * example to freeze the lists built up while filling a map into arrays.
+     */
+    @SuppressWarnings("unchecked")
+    public <R> LongObjectMap<R> mapValues(Function<? super V, ? extends R> function) {
+        LongObjectMap<R> result = new LongObjectMap<R>(size);
+
+        for (int i = 0; i < values.length; i++) {
+            if (values[i] != null) {
+                result.put(keys[i], function.apply((V) values[i]));
+            }
+        }
+
+        return result;
+    }
+
+    private int index(long key) {
+        long hash = key * 0x9E3779B97F4A7C15L;
+        return (int) (hash ^ (hash >>> 32)) & mask;
+    }
+
+    private void resize() {
+        long[] oldKeys = keys;
+        Object[] oldValues = values;
+
+        keys = new long[oldKeys.length * 2];
+        values = new Object[oldValues.length * 2];
+        mask = keys.length - 1;
+
+        for (int i = 0; i < oldValues.length; i++) {
+            if (oldValues[i] == null) {
+                continue;
+            }
+
+            int j = index(oldKeys[i]);
+            while (values[j] != null) {
+                j = (j + 1) & mask;
+            }
+
+            keys[j] = oldKeys[i];
+            values[j] = oldValues[i];
+        }
+    }
+}
@@ -0,0 +1,162 @@
+package me.gnat008.MobArenaBuyableClasses.util;
+
+import java.util.Arrays;
+import java.util.List;
+
+/*
+ * Read-only, zero-copy views over the primitive arrays a YAMLNode converts
+ * numeric and boolean lists into. Reading an element never boxes.
+ */
+public final class YAMLArrays {
+
+    private YAMLArrays() {
+    }
+
+    public static final class Ints {
+
+        static final Ints EMPTY = new Ints(new int[0]);
+
+        private final int[] values;
+
+        Ints(int[] values) {
+            this.values = values;
+        }
+
+        public int get(int index) {
+            return values[index];
+        }
+
+        public int size() {
+            return values.length;
+        }
+
+        public boolean isEmpty() {
+            return values.length == 0;
+        }
+
+        public boolean contains(int value) {
+            for (int v : values) {
+                if (v == value) {
+                    return true;
+                }
+            }
+
+            return false;
+        }
+
+        // Returns a copy of the values that may be modified.
+        public int[] toArray() {
+            return values.clone();
+        }
+
+        @Override
+        public String toString() {
+            return Arrays.toString(values);
+        }
+    }
+
+    public static final class Doubles {
+
+        static final Doubles EMPTY = new Doubles(new double[0]);
+
+        private final double[] values;
+
+        Doubles(double[] values) {
+            this.values = values;
+        }
+
+        public double get(int index) {
+            return values[index];
+        }
+
+        public int size() {
+            return values.length;
+        }
+
+        public boolean isEmpty() {
+            return values.length == 0;
+        }
+
+        // Returns a copy of the values that may be modified.
+        public double[] toArray() {
+            return values.clone();
+        }
+
+        @Override
+        public String toString() {
+            return Arrays.toString(values);
+        }
+    }
+
+    public static final class Booleans {
+
+        static final Booleans EMPTY = new Booleans(new boolean[0]);
+
+        private final boolean[] values;
+
+        Booleans(boolean[] values) {
+            this.values = values;
+        }
+
+        public boolean get(int index) {
+            return values[index];
+        }
+
+        public int size() {
+            return values.length;
+        }
+
+        public boolean isEmpty() {
+            return values.length == 0;
+        }
+
+        // Returns a copy of the values that may be modified.
+        public boolean[] toArray() {
+            return values.clone();
+        }
+
+        @Override
+        public String toString() {
+            return Arrays.toString(values);
+        }
+    }
+
+    static Ints toInts(List<Object> raw) {
+        int[] values = new int[raw.size()];
+        int size = 0;
+
+        for (Object o : raw) {
+            if (o instanceof Number) {
+                values[size++] = ((Number) o).intValue();
+            }
+        }
+
+        return new Ints(size == values.length ? values : Arrays.copyOf(values, size));
+    }
+
+    static Doubles toDoubles(List<Object> raw) {
+        double[] values = new double[raw.size()];
+        int size = 0;
+
+        for (Object o : raw) {
+            if (o instanceof Number) {
+                values[size++] = ((Number) o).doubleValue();
+            }
+        }
+
+        return new Doubles(size == values.length ? values : Arrays.copyOf(values, size));
+    }
+
+    static Booleans toBooleans(List<Object> raw) {
+        boolean[] values = new boolean[raw.size()];
+        int size = 0;
+
+        for (Object o : raw) {
+            if (o instanceof Boolean) {
+                values[size++] = (Boolean) o;
+            }
+        }
+
+        return new Booleans(size == values.length ? values : Arrays.copyOf(values, size));
+    }
+}
@@ -0,0 +1,327 @@
+package me.gnat008.MobArenaBuyableClasses.util;
+
+/*
+ * A compact binary copy of a parsed YAML tree, stored next to the source
+ * file as "<name>.bin". The copy is keyed by the size, modification time
+ * and CRC32 of the source it was built from, so it is only used while the
+ * source is unchanged; anything else is a miss and the caller falls back to
+ * parsing. Decoding is a straight walk over tagged values, which is far
+ * cheaper than running the YAML parser and constructor.
+ *
+ * Only the types the safe constructor produces for a configuration are
+ * stored: maps, lists, strings, numbers, booleans and nulls. Trees holding
+ * anything else (timestamps, binary, sets) are simply not cached.
+ */
+
+import java.io.*;
+import java.math.BigInteger;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.*;
+import java.util.zip.CRC32;
+
+public class YAMLBinaryCache {
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private static final int MAGIC = 0x4D414243; // "MABC"
+    private static final int FORMAT = 1;
+
+    // Magic, format, source size, source mtime and source hash.
+    private static final int HEADER_SIZE = 4 + 4 + 8 + 8 + 8;
+
+    // Cache files at least this big are memory-mapped instead of read into
+    // the heap. Below it the mapping costs more than it saves. Some systems
+    // keep a mapped file locked until it is collected; replacing the cache
+    // then fails, which only means the next load parses again.
+    private static final int MAP_THRESHOLD = 64 * 1024;
+
+    private static final byte MAP = 'M';
+    private static final byte LIST = 'L';
+    private static final byte STRING = 'S';
+    private static final byte INT = 'I';
+    private static final byte LONG = 'J';
+    private static final byte BIG_INTEGER = 'G';
+    private static final byte DOUBLE = 'D';
+    private static final byte TRUE = 'T';
+    private static final byte FALSE = 'F';
+    private static final byte NULL = 'N';
+
+    private final File source;
+    private final File file;
+
+    public YAMLBinaryCache(File source) {
+        this.source = source;
+        this.file = new File(source.getAbsoluteFile().getParentFile(), source.getName() + ".bin");
+    }
+
+    /*
+     * Returns the tree cached for the given source contents, or null if
+     * there is no cache or it was built from different contents. A corrupt
+     * cache is treated as a miss.
+     */
+    public Map<String, Object> read(byte[] data) {
+        if (!file.isFile()) {
+            return null;
+        }
+
+        FileInputStream stream = null;
+
+        try {
+            stream = new FileInputStream(file);
+            FileChannel channel = stream.getChannel();
+            long length = channel.size();
+
+            if (length < HEADER_SIZE) {
+                return null;
+            }
+
+            ByteBuffer buffer;
+            if (length >= MAP_THRESHOLD) {
+                buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, length);
+            } else {
+                buffer = ByteBuffer.allocate((int) length);
+                while (buffer.hasRemaining() && channel.read(buffer) >= 0) {
+                }
+
+                buffer.flip();
+            }
+
+            if (buffer.getInt() != MAGIC || buffer.getInt() != FORMAT) {
+                return null;
+            }
+
+            // Size and mtime are checked before the contents are hashed.
+            if (buffer.getLong() != data.length || buffer.getLong() != source.lastModified()) {
+                return null;
+            }
+
+            if (buffer.getLong() != hash(data)) {
+                return null;
+            }
+
+            Object root = readValue(buffer);
+            return root instanceof Map ? castMap(root) : null;
+        } catch (IOException e) {
+            return null;
+        } catch (BufferUnderflowException e) {
+            return null;
+        } catch (CorruptCacheException e) {
+            return null;
+        } finally {
+            try {
+                if (stream != null) {
+                    stream.close();
+                }
+            } catch (IOException e) {
+
+            }
+        }
+    }
+
+    /*
+     * Stores a tree as the cache for the given source contents. The tree
+     * must not be modified while this runs. Returns false, leaving no cache
+     * behind, if the tree holds a type that cannot be stored or the write
+     * failed.
+     */
+    public boolean write(byte[] data, Map<String, Object> tree) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(Math.max(data.length, 256));
+        DataOutputStream output = new DataOutputStream(bytes);
+
+        try {
+            output.writeInt(MAGIC);
+            output.writeInt(FORMAT);
+            output.writeLong(data.length);
+            output.writeLong(source.lastModified());
+            output.writeLong(hash(data));
+            writeValue(output, tree);
+            output.flush();
+
+            replace(bytes.toByteArray());
+            return true;
+        } catch (IOException e) {
+            file.delete();
+            return false;
+        } catch (UnsupportedTypeException e) {
+            file.delete();
+            return false;
+        }
+    }
+
+    // Removes the cache, if any.
+    public void delete() {
+        file.delete();
+    }
+
+    public File getFile() {
+        return file;
+    }
+
+    private static long hash(byte[] data) {
+        CRC32 crc = new CRC32();
+        crc.update(data, 0, data.length);
+        return crc.getValue();
+    }
+
+    private void replace(byte[] data) throws IOException {
+        File temp = File.createTempFile(file.getName(), ".tmp", file.getParentFile());
+        FileOutputStream stream = null;
+        boolean moved = false;
+
+        try {
+            stream = new FileOutputStream(temp);
+            stream.write(data);
+            stream.close();
+            stream = null;
+
+            try {
+                Files.move(temp.toPath(), file.toPath(), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            }
+
+            moved = true;
+        } finally {
+            try {
+                if (stream != null) {
+                    stream.close();
+                }
+            } catch (IOException e) {
+
+            }
+
+            if (!moved) {
+                temp.delete();
+            }
+        }
+    }
+
+    private static void writeValue(DataOutputStream output, Object value) throws IOException {
+        if (value == null) {
+            output.writeByte(NULL);
+        } else if (value instanceof Map) {
+            Map<?, ?> map = (Map<?, ?>) value;
+            output.writeByte(MAP);
+            output.writeInt(map.size());
+
+            for (Map.Entry<?, ?> entry : map.entrySet()) {
+                writeValue(output, entry.getKey());
+                writeValue(output, entry.getValue());
+            }
+        } else if (value instanceof List) {
+            List<?> list = (List<?>) value;
+            output.writeByte(LIST);
+            output.writeInt(list.size());
+
+            for (Object o : list) {
+                writeValue(output, o);
+            }
+        } else if (value instanceof String) {
+            byte[] bytes = ((String) value).getBytes(UTF_8);
+            output.writeByte(STRING);
+            output.writeInt(bytes.length);
+            output.write(bytes);
+        } else if (value instanceof Integer) {
+            output.writeByte(INT);
+            output.writeInt((Integer) value);
+        } else if (value instanceof Long) {
+            output.writeByte(LONG);
+            output.writeLong((Long) value);
+        } else if (value instanceof BigInteger) {
+            byte[] bytes = ((BigInteger) value).toByteArray();
+            output.writeByte(BIG_INTEGER);
+            output.writeInt(bytes.length);
+            output.write(bytes);
+        } else if (value instanceof Double) {
+            output.writeByte(DOUBLE);
+            output.writeDouble((Double) value);
+        } else if (value instanceof Boolean) {
+            output.writeByte((Boolean) value ? TRUE : FALSE);
+        } else {
+            throw new UnsupportedTypeException();
+        }
+    }
+
+    private static Object readValue(ByteBuffer buffer) throws CorruptCacheException {
+        byte tag = buffer.get();
+
+        switch (tag) {
+            case MAP: {
+                int size = readSize(buffer);
+                Map<Object, Object> map = new LinkedHashMap<Object, Object>(size * 4 / 3 + 1);
+
+                for (int i = 0; i < size; i++) {
+                    Object key = readValue(buffer);
+                    map.put(key, readValue(buffer));
+                }
+
+                return map;
+            }
+            case LIST: {
+                int size = readSize(buffer);
+                List<Object> list = new ArrayList<Object>(size);
+
+                for (int i = 0; i < size; i++) {
+                    list.add(readValue(buffer));
+                }
+
+                return list;
+            }
+            case STRING:
+                return new String(readBytes(buffer), UTF_8);
+            case INT:
+                return buffer.getInt();
+            case LONG:
+                return buffer.getLong();
+            case BIG_INTEGER:
+                return new BigInteger(readBytes(buffer));
+            case DOUBLE:
+                return buffer.getDouble();
+            case TRUE:
+                return Boolean.TRUE;
+            case FALSE:
+                return Boolean.FALSE;
+            case NULL:
+                return null;
+            default:
+                throw new CorruptCacheException();
+        }
+    }
+
+    // Reads a count, refusing any larger than the bytes left could hold.
+    private static int readSize(ByteBuffer buffer) throws CorruptCacheException {
+        int size = buffer.getInt();
+        if (size < 0 || size > buffer.remaining()) {
+            throw new CorruptCacheException();
+        }
+
+        return size;
+    }
+
+    private static byte[] readBytes(ByteBuffer buffer) throws CorruptCacheException {
+        byte[] bytes = new byte[readSize(buffer)];
+        buffer.get(bytes);
+        return bytes;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Map<String, Object> castMap(Object o) {
+        return (Map<String, Object>) o;
+    }
+
+    private static class UnsupportedTypeException extends RuntimeException {
+
+        private static final long serialVersionUID = 1L;
+    }
+
+    private static class CorruptCacheException extends Exception {
+
+        private static final long serialVersionUID = 1L;
+    }
+}
@@ -0,0 +1,60 @@
+package me.gnat008.MobArenaBuyableClasses.util;
+
+/*
+ * A single difference between two configuration trees, addressed by the
+ * full dotted path of the value that was added, removed or changed.
+ */
+public final class YAMLChange {
+
+    public enum Type {
+        ADDED,
+        REMOVED,
+        CHANGED
+    }
+
+    private final Type type;
+    private final String path;
+    private final Object oldValue;
+    private final Object newValue;
+
+    public YAMLChange(Type type, String path, Object oldValue, Object newValue) {
+        this.type = type;
+        this.path = path;
+        this.oldValue = oldValue;
+        this.newValue = newValue;
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    public String getPath() {
+        return path;
+    }
+
+    // Returns the value before the change, or null if it was added.
+    public Object getOldValue() {
+        return oldValue;
+    }
+
+    // Returns the value after the change, or null if it was removed.
+    public Object getNewValue() {
+        return newValue;
+    }
+
+    /*
+     * Returns true if the change affects the given path: it is at the path
+     * or below it, or it added, removed or replaced a whole section that
+     * the path is inside.
+     */
+    public boolean isUnder(String prefix) {
+        return prefix.isEmpty() || path.equals(prefix)
+                || (path.startsWith(prefix) && path.charAt(prefix.length()) == '.')
+                || (prefix.startsWith(path) && prefix.charAt(path.length()) == '.');
+    }
+
+    @Override
+    public String toString() {
+        return type + " " + path;
+    }
+}
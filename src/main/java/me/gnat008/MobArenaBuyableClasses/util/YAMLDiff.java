@@ -0,0 +1,51 @@
+package me.gnat008.MobArenaBuyableClasses.util;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/*
+ * Computes the structural difference between two configuration trees.
+ * Maps are compared key by key and recursed into; any other value,
+ * including lists, is compared as a whole. A value that turns from a map
+ * into something else (or back) is reported as a single change.
+ */
+public final class YAMLDiff {
+
+    private YAMLDiff() {
+    }
+
+    // Returns the changes that turn the old tree into the new one.
+    public static List<YAMLChange> diff(Map<String, Object> oldRoot, Map<String, Object> newRoot) {
+        List<YAMLChange> changes = new ArrayList<YAMLChange>();
+        diff("", oldRoot, newRoot, changes);
+        return changes;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static void diff(String prefix, Map<String, Object> oldMap, Map<String, Object> newMap, List<YAMLChange> changes) {
+        for (Map.Entry<String, Object> entry : oldMap.entrySet()) {
+            String path = prefix + entry.getKey();
+            Object oldValue = entry.getValue();
+
+            if (!newMap.containsKey(entry.getKey())) {
+                changes.add(new YAMLChange(YAMLChange.Type.REMOVED, path, oldValue, null));
+                continue;
+            }
+
+            Object newValue = newMap.get(entry.getKey());
+
+            if (oldValue instanceof Map && newValue instanceof Map) {
+                diff(path + ".", (Map<String, Object>) oldValue, (Map<String, Object>) newValue, changes);
+            } else if (oldValue == null ? newValue != null : !oldValue.equals(newValue)) {
+                changes.add(new YAMLChange(YAMLChange.Type.CHANGED, path, oldValue, newValue));
+            }
+        }
+
+        for (Map.Entry<String, Object> entry : newMap.entrySet()) {
+            if (!oldMap.containsKey(entry.getKey())) {
+                changes.add(new YAMLChange(YAMLChange.Type.ADDED, prefix + entry.getKey(), null, entry.getValue()));
+            }
+        }
+    }
+}
@@ -8,11 +8,54 @@ public class YAMLNode {
 
     private boolean writeDefaults;
 
+    // Caches shared by every node of the tree in lazy view mode, or null.
+    protected YAMLNodeCache cache;
+
     public YAMLNode(Map<String, Object> root, boolean writeDefaults) {
         this.root = root;
         this.writeDefaults = writeDefaults;
     }
 
+    YAMLNode(Map<String, Object> root, boolean writeDefaults, YAMLNodeCache cache) {
+        this(root, writeDefaults);
+        this.cache = cache;
+    }
+
+    /*
+     * Turns lazy view mode on or off for this node and the nodes taken from
+     * it afterwards. In lazy mode getNode, getNodes and getNodeList return
+     * read-only views that are reused between calls: each underlying map is
+     * wrapped once, and child nodes are only wrapped when accessed.
+     */
+    public void setLazyViews(boolean lazy) {
+        cache = lazy ? new YAMLNodeCache(writeDefaults) : null;
+    }
+
+    public boolean isLazyViews() {
+        return cache != null;
+    }
+
+    // Records a change to the tree, so cached views are rebuilt.
+    protected void modified() {
+        if (cache != null) {
+            cache.modified();
+        }
+    }
+
+    // Records that a value was taken out of the tree, so nothing cached
+    // for it or the values below it is kept.
+    private void removed(Object value) {
+        if (cache != null && value != null) {
+            cache.removed(value);
+        }
+    }
+
+    private void replaced(Object old, Object value) {
+        if (old != value) {
+            removed(old);
+        }
+    }
+
     // Return the map.
     public Map<String, Object> getMap() {
         return root;
@@ -20,7 +63,12 @@ public class YAMLNode {
 
     // Clear all nodes.
     public void clear() {
+        for (Object value : root.values()) {
+            removed(value);
+        }
+
         root.clear();
+        modified();
     }
 
     /*
@@ -28,37 +76,36 @@ public class YAMLNode {
      * or null, with null meaning that no configuration value exists at
      * that location.
      */
-    @SuppressWarnings("unchecked")
     public Object getProperty(String path) {
-        if (!path.contains(".")) {
-            Object val = root.get(path);
-
-            if (val == null) {
-                return null;
-            }
+        return getProperty(YAMLPath.compile(path));
+    }
 
-            return val;
+    // Gets a property at a pre-compiled location. See 'getProperty(String)'.
+    @SuppressWarnings("unchecked")
+    public Object getProperty(YAMLPath path) {
+        if (path.isSimple()) {
+            return root.get(path.getPath());
         }
 
-        String[] parts = path.split("\\.");
         Map<String, Object> node = root;
+        int last = path.length() - 1;
 
-        for (int i = 0; i < parts.length; i++) {
-            Object o = node.get(parts[i]);
+        for (int i = 0; i <= last; i++) {
+            Object o = node.get(path.part(i));
 
             if (o == null) {
                 return null;
             }
 
-            if (i == parts.length - 1) {
+            if (i == last) {
                 return o;
             }
 
-            try {
-                node = (Map<String, Object>) o;
-            } catch (ClassCastException e) {
+            if (!(o instanceof Map)) {
                 return null;
             }
+
+            node = (Map<String, Object>) o;
         }
 
         return null;
@@ -72,31 +119,42 @@ public class YAMLNode {
 
     // Set the property at a location. This will override existing
     // configuration data to have it conform to key/value mappings.
-    @SuppressWarnings("unchecked")
     public void setProperty(String path, Object value) {
-        value = prepareSerialization(value);
+        setProperty(YAMLPath.compile(path), value);
+    }
 
-        if (!path.contains(".")) {
-            root.put(path, value);
+    // Set the property at a pre-compiled location. See 'setProperty(String, Object)'.
+    public void setProperty(YAMLPath path, Object value) {
+        put(path, prepareSerialization(value));
+
+        // Only once the tree has changed, so a view rebuilt in between
+        // can't be cached as current.
+        modified();
+    }
+
+    @SuppressWarnings("unchecked")
+    private void put(YAMLPath path, Object value) {
+        if (path.isSimple()) {
+            replaced(root.put(path.getPath(), value), value);
             return;
         }
 
-        String[] parts = path.split("\\.");
         Map<String, Object> node = root;
+        int last = path.length() - 1;
 
-        for (int i = 0; i < parts.length; i++) {
-            Object o = node.get(parts[i]);
+        for (int i = 0; i <= last; i++) {
+            Object o = node.get(path.part(i));
 
             // Found the target.
-            if (i == parts.length - 1) {
-                node.put(parts[i], value);
+            if (i == last) {
+                replaced(node.put(path.part(i), value), value);
                 return;
             }
 
             if (o == null || !(o instanceof Map)) {
                 // This will overwrite existing configuration data!
                 o = new LinkedHashMap<String, Object>();
-                node.put(parts[i], o);
+                removed(node.put(path.part(i), o));
             }
 
             node = (Map<String, Object>) o;
@@ -110,7 +168,7 @@ public class YAMLNode {
      */
     public YAMLNode addNode(String path) {
         Map<String, Object> map = new LinkedHashMap<String, Object>();
-        YAMLNode node = new YAMLNode(map, writeDefaults);
+        YAMLNode node = cache != null ? cache.node(map) : new YAMLNode(map, writeDefaults);
         setProperty(path, map);
 
         return node;
@@ -398,6 +456,66 @@ public class YAMLNode {
         return list;
     }
 
+    /*
+     * Gets a read-only view of the integers in a list, without boxing. Non
+     * numeric entries are skipped, and other numbers are cast. If the list
+     * is not defined an empty view is returned. In lazy view mode the
+     * conversion is cached until the tree changes; otherwise it is redone
+     * on every call.
+     */
+    public YAMLArrays.Ints getIntValues(String path) {
+        List<Object> raw = getList(path);
+        if (raw == null) {
+            return YAMLArrays.Ints.EMPTY;
+        }
+
+        return cache != null ? cache.ints(raw) : YAMLArrays.toInts(raw);
+    }
+
+    // Gets a copy of the integers in a list. See 'getIntValues'.
+    public int[] getIntArray(String path) {
+        return getIntValues(path).toArray();
+    }
+
+    /*
+     * Gets a read-only view of the doubles in a list, without boxing. Non
+     * numeric entries are skipped, and other numbers are cast. If the list
+     * is not defined an empty view is returned. See 'getIntValues' on
+     * caching.
+     */
+    public YAMLArrays.Doubles getDoubleValues(String path) {
+        List<Object> raw = getList(path);
+        if (raw == null) {
+            return YAMLArrays.Doubles.EMPTY;
+        }
+
+        return cache != null ? cache.doubles(raw) : YAMLArrays.toDoubles(raw);
+    }
+
+    // Gets a copy of the doubles in a list. See 'getDoubleValues'.
+    public double[] getDoubleArray(String path) {
+        return getDoubleValues(path).toArray();
+    }
+
+    /*
+     * Gets a read-only view of the booleans in a list, without boxing. Non
+     * boolean entries are skipped. If the list is not defined an empty view
+     * is returned. See 'getIntValues' on caching.
+     */
+    public YAMLArrays.Booleans getBooleanValues(String path) {
+        List<Object> raw = getList(path);
+        if (raw == null) {
+            return YAMLArrays.Booleans.EMPTY;
+        }
+
+        return cache != null ? cache.booleans(raw) : YAMLArrays.toBooleans(raw);
+    }
+
+    // Gets a copy of the booleans in a list. See 'getBooleanValues'.
+    public boolean[] getBooleanArray(String path) {
+        return getBooleanValues(path).toArray();
+    }
+
     /*
      * Gets a list of nodes. Non-valid entries will not be in the list.
      * There will be no null slots. If the list is not defined, the
@@ -416,6 +534,10 @@ public class YAMLNode {
             return def != null ? def : new ArrayList<YAMLNode>();
         }
 
+        if (cache != null) {
+            return cache.nodeList(raw);
+        }
+
         List<YAMLNode> list = new ArrayList<YAMLNode>();
         for (Object o : raw) {
             if (o instanceof Map) {
@@ -435,6 +557,10 @@ public class YAMLNode {
     public YAMLNode getNode(String path) {
         Object raw = getProperty(path);
         if (raw instanceof Map) {
+            if (cache != null) {
+                return cache.node((Map<String, Object>) raw);
+            }
+
             return new YAMLNode((Map<String, Object>) raw, writeDefaults);
         }
 
@@ -451,6 +577,10 @@ public class YAMLNode {
         if (o == null) {
             return null;
         } else if (o instanceof Map) {
+            if (cache != null) {
+                return cache.nodeMap((Map<String, Object>) o);
+            }
+
             Map<String, YAMLNode> nodes = new LinkedHashMap<String, YAMLNode>();
 
             for (Map.Entry<String, Object> entry : ((Map<String, Object>) o).entrySet()) {
@@ -510,22 +640,35 @@ public class YAMLNode {
 
     // Remove the property at a location. This will overwrite existing
     // configuration data to have it conform to key/value mappings.
-    @SuppressWarnings("unchecked")
     public void removeProperty(String path) {
-        if (!path.contains(".")) {
-            root.remove(path);
+        removeProperty(YAMLPath.compile(path));
+    }
+
+    // Remove the property at a pre-compiled location.
+    public void removeProperty(YAMLPath path) {
+        remove(path);
+        modified();
+    }
+
+    @SuppressWarnings("unchecked")
+    private void remove(YAMLPath path) {
+        if (path.isSimple()) {
+            removed(root.remove(path.getPath()));
             return;
         }
 
-        String[] parts = path.split("\\.");
         Map<String, Object> node = root;
+        int last = path.length() - 1;
 
-        for (int i = 0; i < parts.length; i++) {
-            Object o = node.get(parts[i]);
-
+        for (int i = 0; i <= last; i++) {
             // Found the target.
-            if (i == parts.length - 1) {
-                node.remove(parts[i]);
+            if (i == last) {
+                removed(node.remove(path.part(i)));
+                return;
+            }
+
+            Object o = node.get(path.part(i));
+            if (!(o instanceof Map)) {
                 return;
             }
 
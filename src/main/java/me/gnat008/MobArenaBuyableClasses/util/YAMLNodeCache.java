@@ -0,0 +1,272 @@
+package me.gnat008.MobArenaBuyableClasses.util;
+
+import java.util.*;
+
+/*
+ * Caches derived from one configuration tree, shared by every YAMLNode of
+ * that tree: node wrappers, node views and primitive conversions of lists,
+ * keyed by the identity of the map or list they come from. The tree's
+ * version is bumped on every change made through a YAMLNode, and caches
+ * that depend on the contents of the tree rebuild when it moves on. When
+ * a YAMLNode replaces or removes a value, whatever was cached for it and
+ * everything below it is dropped, so old subtrees are not kept alive.
+ * Changes made directly to the maps returned by getMap() are not seen.
+ *
+ * Every method locks the cache, so threads that only read the tree may
+ * share it, as async loads and metrics readers do. Writes to the tree
+ * itself still need to come from one thread at a time.
+ */
+final class YAMLNodeCache {
+
+    private final boolean writeDefaults;
+    private int version;
+
+    private final Map<Object, YAMLNode> nodes = new IdentityHashMap<Object, YAMLNode>();
+    private final Map<Object, NodeMapView> nodeMaps = new IdentityHashMap<Object, NodeMapView>();
+    private final Map<Object, NodeListView> nodeLists = new IdentityHashMap<Object, NodeListView>();
+    private final Map<Object, ConvertedList> converted = new IdentityHashMap<Object, ConvertedList>();
+
+    YAMLNodeCache(boolean writeDefaults) {
+        this.writeDefaults = writeDefaults;
+    }
+
+    synchronized int getVersion() {
+        return version;
+    }
+
+    synchronized void modified() {
+        version++;
+    }
+
+    // Drops everything, for when the whole tree is replaced.
+    synchronized void clear() {
+        nodes.clear();
+        nodeMaps.clear();
+        nodeLists.clear();
+        converted.clear();
+        version++;
+    }
+
+    // Drops what was cached for a value taken out of the tree, and for
+    // every map and list below it.
+    synchronized void removed(Object value) {
+        drop(value);
+        version++;
+    }
+
+    private void drop(Object value) {
+        if (value instanceof Map) {
+            nodes.remove(value);
+            nodeMaps.remove(value);
+
+            for (Object child : ((Map<?, ?>) value).values()) {
+                drop(child);
+            }
+        } else if (value instanceof List) {
+            nodeLists.remove(value);
+            converted.remove(value);
+
+            for (Object child : (List<?>) value) {
+                drop(child);
+            }
+        }
+    }
+
+    // Returns the wrapper of a map, creating it on first use.
+    synchronized YAMLNode node(Map<String, Object> map) {
+        YAMLNode node = nodes.get(map);
+        if (node == null) {
+            node = new YAMLNode(map, writeDefaults, this);
+            nodes.put(map, node);
+        }
+
+        return node;
+    }
+
+    // Returns a read-only view of the child nodes of a map.
+    synchronized Map<String, YAMLNode> nodeMap(Map<String, Object> map) {
+        NodeMapView view = nodeMaps.get(map);
+        if (view == null) {
+            view = new NodeMapView(map);
+            nodeMaps.put(map, view);
+        }
+
+        return view;
+    }
+
+    // Returns a read-only view of the nodes in a list.
+    synchronized List<YAMLNode> nodeList(List<Object> list) {
+        NodeListView view = nodeLists.get(list);
+        if (view == null) {
+            view = new NodeListView(list);
+            nodeLists.put(list, view);
+        }
+
+        return view;
+    }
+
+    // Returns the integers of a list, converted once per tree version.
+    synchronized YAMLArrays.Ints ints(List<Object> list) {
+        ConvertedList entry = converted(list);
+        if (entry.ints == null) {
+            entry.ints = YAMLArrays.toInts(list);
+        }
+
+        return entry.ints;
+    }
+
+    // Returns the doubles of a list, converted once per tree version.
+    synchronized YAMLArrays.Doubles doubles(List<Object> list) {
+        ConvertedList entry = converted(list);
+        if (entry.doubles == null) {
+            entry.doubles = YAMLArrays.toDoubles(list);
+        }
+
+        return entry.doubles;
+    }
+
+    // Returns the booleans of a list, converted once per tree version.
+    synchronized YAMLArrays.Booleans booleans(List<Object> list) {
+        ConvertedList entry = converted(list);
+        if (entry.booleans == null) {
+            entry.booleans = YAMLArrays.toBooleans(list);
+        }
+
+        return entry.booleans;
+    }
+
+    private ConvertedList converted(List<Object> list) {
+        ConvertedList entry = converted.get(list);
+        if (entry == null) {
+            entry = new ConvertedList();
+            converted.put(list, entry);
+        }
+
+        if (entry.version != version) {
+            entry.version = version;
+            entry.ints = null;
+            entry.doubles = null;
+            entry.booleans = null;
+        }
+
+        return entry;
+    }
+
+    // The primitive forms of a list, each converted when first asked for.
+    private static final class ConvertedList {
+
+        private int version;
+        private YAMLArrays.Ints ints;
+        private YAMLArrays.Doubles doubles;
+        private YAMLArrays.Booleans booleans;
+    }
+
+    /*
+     * Child nodes of a map. Single lookups wrap just the child asked for;
+     * iterating builds the full map of wrappers once per tree version.
+     */
+    private final class NodeMapView extends AbstractMap<String, YAMLNode> {
+
+        private final Map<String, Object> raw;
+
+        private Map<String, YAMLNode> built;
+        private int builtVersion;
+
+        private NodeMapView(Map<String, Object> raw) {
+            this.raw = raw;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public YAMLNode get(Object key) {
+            Object value = raw.get(key);
+            return value instanceof Map ? node((Map<String, Object>) value) : null;
+        }
+
+        @Override
+        public boolean containsKey(Object key) {
+            return raw.get(key) instanceof Map;
+        }
+
+        @Override
+        public Set<Entry<String, YAMLNode>> entrySet() {
+            return build().entrySet();
+        }
+
+        @Override
+        public int size() {
+            return build().size();
+        }
+
+        private Map<String, YAMLNode> build() {
+            synchronized (YAMLNodeCache.this) {
+                return buildLocked();
+            }
+        }
+
+        @SuppressWarnings("unchecked")
+        private Map<String, YAMLNode> buildLocked() {
+            if (built == null || builtVersion != version) {
+                Map<String, YAMLNode> map = new LinkedHashMap<String, YAMLNode>();
+
+                for (Map.Entry<String, Object> entry : raw.entrySet()) {
+                    if (entry.getValue() instanceof Map) {
+                        map.put(entry.getKey(), node((Map<String, Object>) entry.getValue()));
+                    }
+                }
+
+                built = Collections.unmodifiableMap(map);
+                builtVersion = version;
+            }
+
+            return built;
+        }
+    }
+
+    // The map entries of a list, built once per tree version.
+    private final class NodeListView extends AbstractList<YAMLNode> {
+
+        private final List<Object> raw;
+
+        private List<YAMLNode> built;
+        private int builtVersion;
+
+        private NodeListView(List<Object> raw) {
+            this.raw = raw;
+        }
+
+        @Override
+        public YAMLNode get(int index) {
+            return build().get(index);
+        }
+
+        @Override
+        public int size() {
+            return build().size();
+        }
+
+        private List<YAMLNode> build() {
+            synchronized (YAMLNodeCache.this) {
+                return buildLocked();
+            }
+        }
+
+        @SuppressWarnings("unchecked")
+        private List<YAMLNode> buildLocked() {
+            if (built == null || builtVersion != version) {
+                List<YAMLNode> list = new ArrayList<YAMLNode>(raw.size());
+
+                for (Object o : raw) {
+                    if (o instanceof Map) {
+                        list.add(node((Map<String, Object>) o));
+                    }
+                }
+
+                built = list;
+                builtVersion = version;
+            }
+
+            return built;
+        }
+    }
+}
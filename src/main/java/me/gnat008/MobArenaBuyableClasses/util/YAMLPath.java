@@ -0,0 +1,134 @@
+package me.gnat008.MobArenaBuyableClasses.util;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/*
+ * A pre-split node path in SK's period-delimited notation. Compiled paths
+ * are interned in a bounded cache keyed by the raw string, so repeated
+ * lookups of the same path neither run a regex split nor allocate.
+ */
+public final class YAMLPath {
+
+    // Upper bound on the number of paths in each generation of the cache.
+    private static final int MAX_CACHED = 1024;
+
+    /*
+     * The cache is kept in two generations. Paths are looked up in the
+     * current one, then in the previous one, and moved into the current one
+     * when found there. When the current generation fills up it becomes
+     * the previous one and the old previous one is dropped, so only paths
+     * that went unused for a whole generation are evicted, and paths in
+     * regular use survive however many one-off paths pass through.
+     * Lookups stay lock-free; only the swap takes a lock.
+     */
+    private static volatile ConcurrentMap<String, YAMLPath> current = new ConcurrentHashMap<String, YAMLPath>();
+    private static volatile ConcurrentMap<String, YAMLPath> previous = new ConcurrentHashMap<String, YAMLPath>();
+
+    private final String path;
+    private final String[] parts;
+
+    private YAMLPath(String path, String[] parts) {
+        this.path = path;
+        this.parts = parts;
+    }
+
+    /*
+     * Returns the compiled form of a path, reusing a cached instance when
+     * one exists.
+     */
+    public static YAMLPath compile(String path) {
+        ConcurrentMap<String, YAMLPath> current = YAMLPath.current;
+        YAMLPath compiled = current.get(path);
+        if (compiled != null) {
+            return compiled;
+        }
+
+        compiled = previous.get(path);
+        if (compiled == null) {
+            compiled = new YAMLPath(path, split(path));
+        }
+
+        if (current.size() >= MAX_CACHED) {
+            current = rotate(current);
+        }
+
+        YAMLPath existing = current.putIfAbsent(path, compiled);
+        return existing != null ? existing : compiled;
+    }
+
+    // Retires a full generation, unless another thread already has.
+    private static synchronized ConcurrentMap<String, YAMLPath> rotate(ConcurrentMap<String, YAMLPath> full) {
+        if (current == full) {
+            previous = full;
+            current = new ConcurrentHashMap<String, YAMLPath>();
+        }
+
+        return current;
+    }
+
+    /*
+     * Splits a path on periods. Mirrors path.split("\\.") exactly, including
+     * the removal of trailing empty parts, without going through a regex.
+     */
+    private static String[] split(String path) {
+        if (path.indexOf('.') < 0) {
+            return new String[]{path};
+        }
+
+        List<String> parts = new ArrayList<String>();
+        int start = 0;
+        int end;
+
+        while ((end = path.indexOf('.', start)) >= 0) {
+            parts.add(path.substring(start, end));
+            start = end + 1;
+        }
+
+        parts.add(path.substring(start));
+
+        int size = parts.size();
+        while (size > 0 && parts.get(size - 1).isEmpty()) {
+            size--;
+        }
+
+        return parts.subList(0, size).toArray(new String[size]);
+    }
+
+    // Returns the raw path this was compiled from.
+    public String getPath() {
+        return path;
+    }
+
+    // Returns the number of parts in the path.
+    public int length() {
+        return parts.length;
+    }
+
+    // Returns the part at the given depth.
+    public String part(int index) {
+        return parts[index];
+    }
+
+    // Returns true if the path addresses a root-level key.
+    public boolean isSimple() {
+        return parts.length == 1 && parts[0] == path;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return o instanceof YAMLPath && path.equals(((YAMLPath) o).path);
+    }
+
+    @Override
+    public int hashCode() {
+        return path.hashCode();
+    }
+
+    @Override
+    public String toString() {
+        return path;
+    }
+}
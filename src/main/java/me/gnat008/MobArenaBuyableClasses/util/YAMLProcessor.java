@@ -9,17 +9,23 @@ package me.gnat008.MobArenaBuyableClasses.util;
 
 import com.sk89q.util.StringUtil;
 import me.gnat008.MobArenaBuyableClasses.exceptions.YAMLProcessorException;
+import me.gnat008.MobArenaBuyableClasses.logging.Log;
+import me.gnat008.MobArenaBuyableClasses.logging.Logs;
 import org.yaml.snakeyaml.DumperOptions;
 import org.yaml.snakeyaml.Yaml;
 import org.yaml.snakeyaml.constructor.SafeConstructor;
 import org.yaml.snakeyaml.emitter.ScalarAnalysis;
-import org.yaml.snakeyaml.nodes.Node;
-import org.yaml.snakeyaml.nodes.Tag;
+import org.yaml.snakeyaml.nodes.*;
 import org.yaml.snakeyaml.reader.UnicodeReader;
 import org.yaml.snakeyaml.representer.Represent;
 import org.yaml.snakeyaml.representer.Representer;
 
 import java.io.*;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.LinkedHashMap;
@@ -27,6 +33,8 @@ import java.util.Map;
 
 public class YAMLProcessor extends YAMLNode {
 
+    private static final Log log = Logs.get("yaml");
+
     public static final String LINE_BREAK = DumperOptions.LineBreak.getPlatformLineBreak().getString();
     public static final char COMMENT_CHAR = '#';
 
@@ -36,6 +44,12 @@ public class YAMLProcessor extends YAMLNode {
     protected String header = null;
     protected YAMLFormat format;
 
+    // Set when loading through the event-based loader.
+    private YAMLStreamLoader streamLoader;
+
+    // Set when parsed trees are cached in binary next to the file.
+    private YAMLBinaryCache binaryCache;
+
     /*
      * Map from property key to comment. Comment may have multiple lines that are newline-separated.
      * Comments support based on ZerothAngel's AnnotatedYAMLConfiguration
@@ -43,6 +57,9 @@ public class YAMLProcessor extends YAMLNode {
      */
     private final Map<String, String> comments = new HashMap<String, String>();
 
+    // Read-only view of the tree as of the last publish.
+    private volatile YAMLSnapshot snapshot = YAMLSnapshot.EMPTY;
+
     public YAMLProcessor(File file, boolean writeDefaults, YAMLFormat format) {
         super(new LinkedHashMap<String, Object>(), writeDefaults);
         this.format = format;
@@ -65,15 +82,134 @@ public class YAMLProcessor extends YAMLNode {
 
     // Loads the configuration file.
     public void load() throws IOException {
+        if (streamLoader != null && binaryCache == null) {
+            loadStreaming();
+            return;
+        }
+
+        byte[] data = readBytes();
+
+        try {
+            replaceRoot(parse(data));
+        } catch (YAMLProcessorException e) {
+            replaceRoot(new LinkedHashMap<String, Object>());
+        }
+    }
+
+    /*
+     * Switches loading to the event-based loader, which builds the tree
+     * straight from the file in one pass, without first building SnakeYAML's
+     * object graph and then copying its root. Meant for large data files;
+     * it is off unless a caller turns it on, and nothing in the plugin does
+     * yet, since the only large file, the ownership snapshot, is read
+     * through the binary cache instead.
+     */
+    public void setStreaming(boolean streaming) {
+        streamLoader = streaming ? new YAMLStreamLoader() : null;
+    }
+
+    public boolean isStreaming() {
+        return streamLoader != null;
+    }
+
+    /*
+     * Keeps a binary copy of the parsed tree next to the file (see
+     * YAMLBinaryCache). While the file is unchanged, loads decode the copy
+     * instead of parsing; when it has changed, they parse and refresh it.
+     * Disabling this removes the copy.
+     */
+    public void setBinaryCache(boolean enabled) {
+        if (enabled) {
+            if (binaryCache == null) {
+                binaryCache = new YAMLBinaryCache(file);
+            }
+        } else if (binaryCache != null) {
+            binaryCache.delete();
+            binaryCache = null;
+        }
+    }
+
+    public boolean isBinaryCache() {
+        return binaryCache != null;
+    }
+
+    /*
+     * Refreshes the binary cache after the given contents, dumped from the
+     * current tree, were written to the file. Does nothing if the cache is
+     * disabled. save() does this itself.
+     */
+    public void updateBinaryCache(byte[] data) {
+        if (binaryCache != null) {
+            binaryCache.write(data, root);
+        }
+    }
+
+    /*
+     * Streams the children of the section at a path straight from the file,
+     * one at a time, without loading the rest of the file. The loaded tree
+     * is not touched.
+     */
+    public void streamSections(String path, YAMLStreamLoader.SectionHandler handler) throws IOException, YAMLProcessorException {
         InputStream stream = null;
 
         try {
             stream = getInputStream();
             if (stream == null) throw new IOException("Stream is null!");
 
-            read(yaml.load(new UnicodeReader(stream)));
+            YAMLStreamLoader loader = streamLoader != null ? streamLoader : new YAMLStreamLoader();
+            loader.streamSections(new UnicodeReader(stream), path, handler);
+        } finally {
+            try {
+                if (stream != null) {
+                    stream.close();
+                }
+            } catch (IOException e) {
+
+            }
+        }
+    }
+
+    private void loadStreaming() throws IOException {
+        InputStream stream = null;
+
+        try {
+            stream = getInputStream();
+            if (stream == null) throw new IOException("Stream is null!");
+
+            replaceRoot(streamLoader.load(new UnicodeReader(stream)));
         } catch (YAMLProcessorException e) {
-            root = new LinkedHashMap<String, Object>();
+            replaceRoot(new LinkedHashMap<String, Object>());
+        } finally {
+            try {
+                if (stream != null) {
+                    stream.close();
+                }
+            } catch (IOException e) {
+
+            }
+        }
+    }
+
+    /*
+     * Reads the raw contents of the configuration file. This does not touch
+     * the loaded tree, so it may be called from any thread.
+     */
+    public byte[] readBytes() throws IOException {
+        InputStream stream = null;
+
+        try {
+            stream = getInputStream();
+            if (stream == null) throw new IOException("Stream is null!");
+
+            ByteArrayOutputStream output = new ByteArrayOutputStream(8192);
+            byte[] buf = new byte[8192];
+            int length;
+
+            while ((length = stream.read(buf)) > 0) {
+                output.write(buf, 0, length);
+            }
+
+            return output.toByteArray();
         } finally {
             try {
                 if (stream != null) {
@@ -85,6 +221,97 @@ public class YAMLProcessor extends YAMLNode {
         }
     }
 
+    /*
+     * Parses raw file contents into a new tree and checks that the document
+     * is a key-value structure. This does not touch the loaded tree, but
+     * the underlying parser is not thread-safe, so a processor must not
+     * parse on one thread while saving on another. With the binary cache
+     * enabled, a cached copy of the same contents is returned instead when
+     * there is one.
+     */
+    public Map<String, Object> parse(byte[] data) throws YAMLProcessorException {
+        if (binaryCache != null) {
+            Map<String, Object> cached = binaryCache.read(data);
+            if (cached != null) {
+                return cached;
+            }
+        }
+
+        Map<String, Object> tree;
+        if (streamLoader != null) {
+            tree = streamLoader.load(new UnicodeReader(new ByteArrayInputStream(data)));
+        } else {
+            tree = read(yaml.load(new UnicodeReader(new ByteArrayInputStream(data))));
+        }
+
+        if (binaryCache != null) {
+            binaryCache.write(data, tree);
+        }
+
+        return tree;
+    }
+
+    /*
+     * Maps the dotted path of every key in raw file contents to the line it
+     * is on, counting from 1. This composes the document again, so it is
+     * meant for error reports rather than normal loads. Keys inside lists
+     * are not included.
+     */
+    public Map<String, Integer> getLineNumbers(byte[] data) {
+        Map<String, Integer> lines = new HashMap<String, Integer>();
+        Node root = yaml.compose(new UnicodeReader(new ByteArrayInputStream(data)));
+
+        if (root instanceof MappingNode) {
+            collectLines((MappingNode) root, "", lines);
+        }
+
+        return lines;
+    }
+
+    private static void collectLines(MappingNode node, String prefix, Map<String, Integer> lines) {
+        for (NodeTuple tuple : node.getValue()) {
+            if (!(tuple.getKeyNode() instanceof ScalarNode)) {
+                continue;
+            }
+
+            String path = prefix + ((ScalarNode) tuple.getKeyNode()).getValue();
+            lines.put(path, tuple.getKeyNode().getStartMark().getLine() + 1);
+
+            if (tuple.getValueNode() instanceof MappingNode) {
+                collectLines((MappingNode) tuple.getValueNode(), path + ".", lines);
+            }
+        }
+    }
+
+    // Replaces the loaded tree with a parsed one.
+    public void replaceRoot(Map<String, Object> tree) {
+        root = tree;
+
+        if (cache != null) {
+            cache.clear();
+        }
+    }
+
+    /*
+     * Rebuilds the read-only snapshot from the current tree and swaps it in.
+     * Snapshots are opt-in: loading never builds one, so only processors
+     * whose tree is read off-thread pay for it. Call this after loading,
+     * and again after changing the tree in memory, if snapshot readers
+     * should see the changes.
+     */
+    public void publishSnapshot() {
+        snapshot = YAMLSnapshot.of(root);
+    }
+
+    /*
+     * Returns the read-only snapshot published by the last
+     * publishSnapshot(), or an empty one if none was. Readers on any thread see either the old or the new
+     * snapshot in full, never a partially loaded tree.
+     */
+    public YAMLSnapshot getSnapshot() {
+        return snapshot;
+    }
+
     // Set the header for the file as a series of lines that are terminated
     // by a new line sequence.
     public void setHeader(String... headerLines) {
@@ -116,68 +343,97 @@ public class YAMLProcessor extends YAMLNode {
         return header;
     }
 
-    // Saves the configuration to disk. All errors are clobbered.
+    /*
+     * Saves the configuration to disk. The file is replaced atomically, so a
+     * crash mid-save leaves either the old or the new contents. Returns
+     * false if the save failed; use write(dump()) to see why.
+     */
     public boolean save() {
-        OutputStream stream = null;
+        try {
+            byte[] data = dump();
+            write(data);
+            updateBinaryCache(data);
+            return true;
+        } catch (IOException e) {
+            log.warn("Unable to save {}", file.getName(), e);
+            return false;
+        }
+    }
 
-        File parent = file.getParentFile();
+    /*
+     * Serializes the header, comments and tree to bytes without touching
+     * the disk. The tree must not be modified while this runs.
+     */
+    public byte[] dump() throws IOException {
+        ByteArrayOutputStream stream = new ByteArrayOutputStream(8192);
+        OutputStreamWriter writer = new OutputStreamWriter(stream, "UTF-8");
 
-        if (parent != null) {
-            parent.mkdirs();
+        if (header != null) {
+            writer.append(header);
+            writer.append(LINE_BREAK);
         }
 
-        try {
-            stream = getOutputStream();
-            if (stream == null) return false;
-
-            OutputStreamWriter writer = new OutputStreamWriter(stream, "UTF-8");
+        if (comments.size() == 0 || format != YAMLFormat.EXTENDED) {
+            yaml.dump(root, writer);
+        } else {
+            // Iterate through each root-level property and dump.
+            for (Map.Entry<String, Object> entry : root.entrySet()) {
+                // Output comment, if present.
+                String comment = comments.get(entry.getKey());
+                if (comment != null) {
+                    writer.append(LINE_BREAK);
+                    writer.append(comment);
+                    writer.append(LINE_BREAK);
+                }
 
-            if (header != null) {
-                writer.append(header);
-                writer.append(LINE_BREAK);
+                // Dump property.
+                yaml.dump(Collections.singletonMap(entry.getKey(), entry.getValue()), writer);
             }
+        }
 
-            if (comments.size() == 0 || format != YAMLFormat.EXTENDED) {
-                yaml.dump(root, writer);
-            } else {
-                // Iterate through each root-level property and dump.
-                for (Map.Entry<String, Object> entry : root.entrySet()) {
-                    // Output comment, if present.
-                    String comment = comments.get(entry.getKey());
-                    if (comment != null) {
-                        writer.append(LINE_BREAK);
-                        writer.append(comment);
-                        writer.append(LINE_BREAK);
-                    }
-
-                    // Dump property.
-                    yaml.dump(Collections.singletonMap(entry.getKey(), entry.getValue()), writer);
-                }
-            }
+        writer.flush();
+        return stream.toByteArray();
+    }
 
-            return true;
-        } catch (IOException e) {
+    /*
+     * Writes serialized contents to the file through getOutputStream(), so
+     * the file is replaced atomically and is never left truncated. Touches
+     * nothing but the disk, so it may be called from any thread.
+     */
+    public void write(byte[] data) throws IOException {
+        OutputStream stream = getOutputStream();
+        boolean written = false;
 
+        try {
+            stream.write(data);
+            stream.close();
+            written = true;
         } finally {
-            try {
-                if (stream != null) {
-                    stream.close();
-                }
-            } catch (IOException e) {
+            if (!written) {
+                if (stream instanceof AtomicFileOutputStream) {
+                    ((AtomicFileOutputStream) stream).discard();
+                } else {
+                    try {
+                        stream.close();
+                    } catch (IOException e) {
 
+                    }
+                }
             }
         }
+    }
 
-        return false;
+    public File getFile() {
+        return file;
     }
 
     @SuppressWarnings("unchecked")
-    private void read(Object input) throws YAMLProcessorException {
+    private Map<String, Object> read(Object input) throws YAMLProcessorException {
         try {
             if (null == input) {
-                root = new LinkedHashMap<String, Object>();
+                return new LinkedHashMap<String, Object>();
             } else {
-                root = new LinkedHashMap<String, Object>((Map<String, Object>) input);
+                return new LinkedHashMap<String, Object>((Map<String, Object>) input);
             }
         } catch (ClassCastException e) {
             throw new YAMLProcessorException("Root document must be in a key-value structure");
@@ -188,8 +444,15 @@ public class YAMLProcessor extends YAMLNode {
         return new FileInputStream(file);
     }
 
+    /*
+     * Opens a stream that replaces the file. The data goes to a temporary
+     * file in the same folder; closing the stream syncs it to disk, moves it
+     * over the original and syncs the folder, so the new name survives a
+     * crash too. If a write fails, closing drops the temporary file and
+     * leaves the original as it was.
+     */
     public OutputStream getOutputStream() throws IOException {
-        return new FileOutputStream(file);
+        return new AtomicFileOutputStream(file);
     }
 
     // Returns a root-level comment.
@@ -263,4 +526,123 @@ public class YAMLProcessor extends YAMLNode {
             };
         }
     }
+
+    // A stream to a temporary file that is moved over its target on close.
+    private static final class AtomicFileOutputStream extends OutputStream {
+
+        private final File target;
+        private final File temp;
+        private final FileOutputStream out;
+
+        private boolean failed;
+        private boolean closed;
+
+        private AtomicFileOutputStream(File target) throws IOException {
+            File parent = target.getAbsoluteFile().getParentFile();
+            parent.mkdirs();
+
+            this.target = target;
+            this.temp = File.createTempFile(target.getName(), ".tmp", parent);
+
+            try {
+                this.out = new FileOutputStream(temp);
+            } catch (IOException e) {
+                temp.delete();
+                throw e;
+            }
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            try {
+                out.write(b);
+            } catch (IOException e) {
+                failed = true;
+                throw e;
+            }
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            try {
+                out.write(b, off, len);
+            } catch (IOException e) {
+                failed = true;
+                throw e;
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (closed) {
+                return;
+            }
+
+            if (failed) {
+                discard();
+                return;
+            }
+
+            closed = true;
+            boolean moved = false;
+
+            try {
+                out.getFD().sync();
+                out.close();
+
+                try {
+                    Files.move(temp.toPath(), target.toPath(), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+                } catch (AtomicMoveNotSupportedException e) {
+                    Files.move(temp.toPath(), target.toPath(), StandardCopyOption.REPLACE_EXISTING);
+                }
+
+                moved = true;
+            } finally {
+                if (!moved) {
+                    closeQuietly();
+                    temp.delete();
+                }
+            }
+
+            syncDirectory(temp.getAbsoluteFile().getParentFile());
+        }
+
+        // Drops the temporary file without touching the target.
+        private void discard() {
+            if (closed) {
+                return;
+            }
+
+            closed = true;
+            closeQuietly();
+            temp.delete();
+        }
+
+        private void closeQuietly() {
+            try {
+                out.close();
+            } catch (IOException e) {
+
+            }
+        }
+
+        /*
+         * Syncs a folder, so a rename in it is on disk. Some platforms, such
+         * as Windows, can't open a folder for this; there it is skipped.
+         */
+        private static void syncDirectory(File dir) throws IOException {
+            FileChannel channel;
+            try {
+                channel = FileChannel.open(dir.toPath(), StandardOpenOption.READ);
+            } catch (IOException e) {
+                return;
+            }
+
+            try {
+                channel.force(true);
+            } finally {
+                channel.close();
+            }
+        }
+    }
 }
@@ -0,0 +1,248 @@
+package me.gnat008.MobArenaBuyableClasses.util;
+
+import java.util.*;
+
+/*
+ * An immutable view of a configuration tree. Each node indexes only its
+ * own keys, and a dotted path is resolved by walking down the nodes, one
+ * hash lookup per level, so the snapshot takes memory in proportion to
+ * the tree rather than to its entries times their depth. Lists, sub-nodes
+ * and key sets are converted and frozen up front, so reads allocate
+ * nothing. Snapshots are safe to share between threads.
+ */
+public final class YAMLSnapshot {
+
+    public static final YAMLSnapshot EMPTY = new YAMLSnapshot(new HashMap<String, Entry>(), Collections.<String>emptyList(), 0);
+
+    private final Map<String, Entry> entries;
+    private final List<String> keys;
+    private final int size;
+
+    private YAMLSnapshot(Map<String, Entry> entries, List<String> keys, int size) {
+        this.entries = entries;
+        this.keys = keys;
+        this.size = size;
+    }
+
+    // Builds a snapshot of the given tree. The tree itself is not retained.
+    public static YAMLSnapshot of(Map<String, Object> root) {
+        if (root == null || root.isEmpty()) {
+            return EMPTY;
+        }
+
+        return freezeMap(root).node;
+    }
+
+    /*
+     * Gets a property at a location. Maps are returned as snapshots and
+     * lists are returned frozen, with any maps inside them as snapshots.
+     */
+    public Object getProperty(String path) {
+        Entry entry = find(path);
+        return entry != null ? entry.value : null;
+    }
+
+    // Returns true if a value exists at the location.
+    public boolean contains(String path) {
+        return find(path) != null;
+    }
+
+    /*
+     * Gets a string at a location, or the default if no value exists. Non
+     * string values are returned in their string representation.
+     */
+    public String getString(String path, String def) {
+        Entry entry = find(path);
+        return entry != null && entry.string != null ? entry.string : def;
+    }
+
+    // Gets an integer at a location, or the default if it is not a number.
+    public int getInt(String path, int def) {
+        Entry entry = find(path);
+        return entry != null && entry.value instanceof Number ? ((Number) entry.value).intValue() : def;
+    }
+
+    // Gets a double at a location, or the default if it is not a number.
+    public double getDouble(String path, double def) {
+        Entry entry = find(path);
+        return entry != null && entry.value instanceof Number ? ((Number) entry.value).doubleValue() : def;
+    }
+
+    // Gets a boolean at a location, or the default if it is not a boolean.
+    public boolean getBoolean(String path, boolean def) {
+        Entry entry = find(path);
+        return entry != null && entry.value instanceof Boolean ? (Boolean) entry.value : def;
+    }
+
+    // Gets a frozen list at a location, or null if it is not a list.
+    public List<Object> getList(String path) {
+        Entry entry = find(path);
+        return entry != null ? entry.list : null;
+    }
+
+    /*
+     * Gets a frozen list of strings at a location. Null entries are
+     * skipped and other entries are converted to strings. Returns an empty
+     * list if the location is not a list.
+     */
+    public List<String> getStringList(String path) {
+        Entry entry = find(path);
+        return entry != null && entry.stringList != null ? entry.stringList : Collections.<String>emptyList();
+    }
+
+    /*
+     * Gets a frozen list of the nodes in the list at a location. Entries
+     * that are not maps are skipped. Returns an empty list if the location
+     * is not a list.
+     */
+    public List<YAMLSnapshot> getNodeList(String path) {
+        Entry entry = find(path);
+        return entry != null && entry.nodeList != null ? entry.nodeList : Collections.<YAMLSnapshot>emptyList();
+    }
+
+    // Gets the node at a location, or null if it is not a map.
+    public YAMLSnapshot getNode(String path) {
+        Entry entry = find(path);
+        return entry != null ? entry.node : null;
+    }
+
+    /*
+     * Gets a frozen map of the child nodes of the node at a location, or
+     * null if it is not a map. Children that are not maps are skipped.
+     */
+    public Map<String, YAMLSnapshot> getNodes(String path) {
+        Entry entry = find(path);
+        return entry != null ? entry.nodes : null;
+    }
+
+    /*
+     * Gets a frozen list of keys at a location, or null if it is not a map.
+     * Passing null returns the root-level keys.
+     */
+    public List<String> getKeys(String path) {
+        if (path == null) {
+            return keys;
+        }
+
+        Entry entry = find(path);
+        return entry != null && entry.node != null ? entry.node.keys : null;
+    }
+
+    // Returns the number of values in this node and below it.
+    public int size() {
+        return size;
+    }
+
+    // Finds the entry at a dotted path by walking down the nodes.
+    private Entry find(String path) {
+        if (path.indexOf('.') < 0) {
+            return entries.get(path);
+        }
+
+        YAMLPath compiled = YAMLPath.compile(path);
+        YAMLSnapshot node = this;
+        int last = compiled.length() - 1;
+
+        for (int i = 0; i < last; i++) {
+            Entry entry = node.entries.get(compiled.part(i));
+            if (entry == null || entry.node == null) {
+                return null;
+            }
+
+            node = entry.node;
+        }
+
+        return node.entries.get(compiled.part(last));
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Entry freeze(Object value) {
+        if (value instanceof Map) {
+            return freezeMap((Map<String, Object>) value);
+        } else if (value instanceof List) {
+            return freezeList((List<Object>) value);
+        } else {
+            return new Entry(value, value != null ? value.toString() : null);
+        }
+    }
+
+    private static Entry freezeMap(Map<String, Object> map) {
+        Map<String, Entry> entries = new HashMap<String, Entry>();
+        Map<String, YAMLSnapshot> nodes = new LinkedHashMap<String, YAMLSnapshot>();
+        int size = 0;
+
+        for (Map.Entry<String, Object> child : map.entrySet()) {
+            String key = String.valueOf(child.getKey());
+            Entry entry = freeze(child.getValue());
+            entries.put(key, entry);
+
+            size++;
+            if (entry.node != null) {
+                nodes.put(key, entry.node);
+                size += entry.node.size;
+            }
+        }
+
+        List<String> keys = Collections.unmodifiableList(keysOf(map));
+        YAMLSnapshot node = new YAMLSnapshot(entries, keys, size);
+
+        Entry entry = new Entry(node, null);
+        entry.node = node;
+        entry.nodes = Collections.unmodifiableMap(nodes);
+        return entry;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Entry freezeList(List<Object> raw) {
+        List<Object> list = new ArrayList<Object>(raw.size());
+        List<String> strings = new ArrayList<String>(raw.size());
+        List<YAMLSnapshot> nodes = new ArrayList<YAMLSnapshot>();
+
+        for (Object o : raw) {
+            if (o instanceof Map) {
+                YAMLSnapshot node = freezeMap((Map<String, Object>) o).node;
+                list.add(node);
+                nodes.add(node);
+            } else {
+                list.add(o instanceof List ? freezeList((List<Object>) o).list : o);
+            }
+
+            if (o != null) {
+                strings.add(o.toString());
+            }
+        }
+
+        Entry entry = new Entry(null, null);
+        entry.list = Collections.unmodifiableList(list);
+        entry.value = entry.list;
+        entry.stringList = Collections.unmodifiableList(strings);
+        entry.nodeList = Collections.unmodifiableList(nodes);
+        return entry;
+    }
+
+    private static List<String> keysOf(Map<String, Object> map) {
+        List<String> keys = new ArrayList<String>(map.size());
+        for (Object key : map.keySet()) {
+            keys.add(String.valueOf(key));
+        }
+
+        return keys;
+    }
+
+    // A pre-converted value. Only the forms that apply to the value are set.
+    private static final class Entry {
+
+        private Object value;
+        private final String string;
+        private List<Object> list;
+        private List<String> stringList;
+        private List<YAMLSnapshot> nodeList;
+        private YAMLSnapshot node;
+        private Map<String, YAMLSnapshot> nodes;
+
+        private Entry(Object value, String string) {
+            this.value = value;
+            this.string = string;
+        }
+    }
+}
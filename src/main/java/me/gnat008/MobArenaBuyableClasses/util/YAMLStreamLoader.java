@@ -0,0 +1,333 @@
+package me.gnat008.MobArenaBuyableClasses.util;
+
+/*
+ * Event-based YAML loader. Instead of composing the whole document into a
+ * node graph and then constructing objects from it, this walks SnakeYAML's
+ * parser events and builds the target maps and lists directly, in a single
+ * pass. It can also hand over the children of one section one at a time,
+ * so very large data files (such as per-player data) never have to be held
+ * in memory at once.
+ *
+ * Scalars are typed like the safe constructor does for the types a
+ * configuration uses: integers, floats, booleans, nulls and strings.
+ * Timestamps and binary values are kept as strings, and merge keys ("<<")
+ * are not expanded.
+ */
+
+import me.gnat008.MobArenaBuyableClasses.exceptions.YAMLProcessorException;
+import org.yaml.snakeyaml.Yaml;
+import org.yaml.snakeyaml.events.*;
+import org.yaml.snakeyaml.nodes.NodeId;
+import org.yaml.snakeyaml.nodes.Tag;
+import org.yaml.snakeyaml.resolver.Resolver;
+
+import java.io.Reader;
+import java.math.BigInteger;
+import java.util.*;
+
+public class YAMLStreamLoader {
+
+    // Receives the children of a streamed section. Return false to stop.
+    public interface SectionHandler {
+
+        boolean onSection(String key, Object value);
+    }
+
+    private final Yaml yaml = new Yaml();
+    private final Resolver resolver = new Resolver();
+
+    /*
+     * Loads a document whose root is a map. An empty document loads as an
+     * empty map.
+     */
+    @SuppressWarnings("unchecked")
+    public Map<String, Object> load(Reader reader) throws YAMLProcessorException {
+        Iterator<Event> events = yaml.parse(reader).iterator();
+        Event root = nextNode(events);
+
+        if (root == null) {
+            return new LinkedHashMap<String, Object>();
+        }
+
+        if (!(root instanceof MappingStartEvent)) {
+            throw new YAMLProcessorException("Root document must be in a key-value structure");
+        }
+
+        return (Map<String, Object>) readValue(root, events, new HashMap<String, Object>());
+    }
+
+    /*
+     * Streams the children of the map at a dotted path, building and handing
+     * over one child at a time. Everything outside the section is skipped
+     * without being built. Anchors defined outside the section cannot be
+     * referenced from inside it.
+     */
+    public void streamSections(Reader reader, String path, SectionHandler handler) throws YAMLProcessorException {
+        Iterator<Event> events = yaml.parse(reader).iterator();
+        Event root = nextNode(events);
+
+        if (root == null) {
+            return;
+        }
+
+        if (!(root instanceof MappingStartEvent)) {
+            throw new YAMLProcessorException("Root document must be in a key-value structure");
+        }
+
+        YAMLPath compiled = YAMLPath.compile(path);
+        if (!descend(events, compiled, 0)) {
+            return;
+        }
+
+        Map<String, Object> anchors = new HashMap<String, Object>();
+
+        while (events.hasNext()) {
+            Event key = events.next();
+            if (key instanceof MappingEndEvent) {
+                return;
+            }
+
+            String name = String.valueOf(readValue(key, events, anchors));
+            Object value = readValue(events.next(), events, anchors);
+
+            if (!handler.onSection(name, value)) {
+                return;
+            }
+
+            // Sections are independent; don't keep them alive via anchors.
+            anchors.clear();
+        }
+    }
+
+    /*
+     * Moves the events to just inside the map at the given path, starting
+     * just inside the map at the given depth. Returns false if there is no
+     * map at the path.
+     */
+    private boolean descend(Iterator<Event> events, YAMLPath path, int depth) throws YAMLProcessorException {
+        Map<String, Object> anchors = new HashMap<String, Object>();
+
+        while (events.hasNext()) {
+            Event key = events.next();
+            if (key instanceof MappingEndEvent) {
+                return false;
+            }
+
+            Object name = readValue(key, events, anchors);
+            Event value = events.next();
+
+            if (!path.part(depth).equals(String.valueOf(name))) {
+                skipValue(value, events);
+                continue;
+            }
+
+            if (!(value instanceof MappingStartEvent)) {
+                return false;
+            }
+
+            return depth == path.length() - 1 || descend(events, path, depth + 1);
+        }
+
+        return false;
+    }
+
+    // Skips to the first event of the root node, or returns null if the
+    // stream has no document.
+    private static Event nextNode(Iterator<Event> events) {
+        while (events.hasNext()) {
+            Event event = events.next();
+
+            if (event instanceof StreamEndEvent || event instanceof DocumentEndEvent) {
+                return null;
+            }
+
+            if (event instanceof NodeEvent) {
+                return event;
+            }
+        }
+
+        return null;
+    }
+
+    private Object readValue(Event event, Iterator<Event> events, Map<String, Object> anchors) throws YAMLProcessorException {
+        Object value;
+
+        if (event instanceof ScalarEvent) {
+            value = constructScalar((ScalarEvent) event);
+        } else if (event instanceof AliasEvent) {
+            String anchor = ((AliasEvent) event).getAnchor();
+            if (!anchors.containsKey(anchor)) {
+                throw new YAMLProcessorException("Undefined alias: " + anchor);
+            }
+
+            return anchors.get(anchor);
+        } else if (event instanceof MappingStartEvent) {
+            Map<Object, Object> map = new LinkedHashMap<Object, Object>();
+            value = map;
+            register(event, map, anchors);
+
+            while (true) {
+                Event key = events.next();
+                if (key instanceof MappingEndEvent) {
+                    break;
+                }
+
+                Object k = readValue(key, events, anchors);
+                map.put(k, readValue(events.next(), events, anchors));
+            }
+
+            return value;
+        } else if (event instanceof SequenceStartEvent) {
+            List<Object> list = new ArrayList<Object>();
+            value = list;
+            register(event, list, anchors);
+
+            while (true) {
+                Event item = events.next();
+                if (item instanceof SequenceEndEvent) {
+                    break;
+                }
+
+                list.add(readValue(item, events, anchors));
+            }
+
+            return value;
+        } else {
+            throw new YAMLProcessorException("Unexpected " + event);
+        }
+
+        register(event, value, anchors);
+        return value;
+    }
+
+    private static void register(Event event, Object value, Map<String, Object> anchors) {
+        String anchor = ((NodeEvent) event).getAnchor();
+        if (anchor != null) {
+            anchors.put(anchor, value);
+        }
+    }
+
+    // Skips over a whole node without building it.
+    private static void skipValue(Event event, Iterator<Event> events) {
+        if (!(event instanceof CollectionStartEvent)) {
+            return;
+        }
+
+        int depth = 1;
+        while (depth > 0) {
+            Event next = events.next();
+
+            if (next instanceof CollectionStartEvent) {
+                depth++;
+            } else if (next instanceof CollectionEndEvent) {
+                depth--;
+            }
+        }
+    }
+
+    private Object constructScalar(ScalarEvent event) {
+        String value = event.getValue();
+        Tag tag;
+
+        if (event.getTag() != null && !event.getTag().equals("!")) {
+            tag = new Tag(event.getTag());
+        } else if (event.getImplicit().canOmitTagInPlainScalar()) {
+            tag = resolver.resolve(NodeId.scalar, value, true);
+        } else {
+            tag = Tag.STR;
+        }
+
+        try {
+            if (Tag.INT.equals(tag)) {
+                return constructInt(value);
+            } else if (Tag.FLOAT.equals(tag)) {
+                return constructFloat(value);
+            } else if (Tag.BOOL.equals(tag)) {
+                return constructBool(value);
+            } else if (Tag.NULL.equals(tag)) {
+                return null;
+            }
+        } catch (NumberFormatException ignore) {
+            // Fall through and keep the text.
+        }
+
+        return value;
+    }
+
+    private static Object constructInt(String value) {
+        String digits = value.replace("_", "");
+        int sign = 1;
+
+        if (digits.startsWith("-")) {
+            sign = -1;
+            digits = digits.substring(1);
+        } else if (digits.startsWith("+")) {
+            digits = digits.substring(1);
+        }
+
+        int radix = 10;
+        if (digits.startsWith("0b")) {
+            radix = 2;
+            digits = digits.substring(2);
+        } else if (digits.startsWith("0x")) {
+            radix = 16;
+            digits = digits.substring(2);
+        } else if (digits.length() > 1 && digits.startsWith("0")) {
+            radix = 8;
+            digits = digits.substring(1);
+        } else if (digits.contains(":")) {
+            long result = 0;
+            for (String part : digits.split(":")) {
+                result = result * 60 + Long.parseLong(part);
+            }
+
+            return narrow(BigInteger.valueOf(sign * result));
+        }
+
+        BigInteger result = new BigInteger(digits, radix);
+        return narrow(sign < 0 ? result.negate() : result);
+    }
+
+    // Returns the smallest of Integer, Long or BigInteger that fits.
+    private static Object narrow(BigInteger value) {
+        if (value.bitLength() < 32) {
+            return value.intValue();
+        } else if (value.bitLength() < 64) {
+            return value.longValue();
+        } else {
+            return value;
+        }
+    }
+
+    private static Double constructFloat(String value) {
+        String number = value.replace("_", "").toLowerCase();
+        double sign = 1;
+
+        if (number.startsWith("-")) {
+            sign = -1;
+            number = number.substring(1);
+        } else if (number.startsWith("+")) {
+            number = number.substring(1);
+        }
+
+        if (number.equals(".inf")) {
+            return sign * Double.POSITIVE_INFINITY;
+        } else if (number.equals(".nan")) {
+            return Double.NaN;
+        } else if (number.contains(":")) {
+            double result = 0;
+            for (String part : number.split(":")) {
+                result = result * 60 + Double.parseDouble(part);
+            }
+
+            return sign * result;
+        }
+
+        return sign * Double.parseDouble(number);
+    }
+
+    private static Boolean constructBool(String value) {
+        String lower = value.toLowerCase();
+        return lower.equals("yes") || lower.equals("true") || lower.equals("on");
+    }
+}
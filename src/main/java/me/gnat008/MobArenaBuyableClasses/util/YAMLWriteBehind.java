@@ -0,0 +1,167 @@
+package me.gnat008.MobArenaBuyableClasses.util;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/*
+ * Coalesces changes to a YAMLProcessor into delayed background saves.
+ * Callers mark the processor dirty after changing it; however many changes
+ * arrive within the delay, they are written out once.
+ *
+ * A save happens in two steps. The tree is first serialized on the capture
+ * executor, which must be the thread that modifies the tree (for example
+ * the server main thread), since serializing while the tree changes is not
+ * safe. The bytes are then written atomically on the writer executor, so
+ * no disk I/O happens on the capture thread.
+ */
+public class YAMLWriteBehind {
+
+    /*
+     * Receives failed saves, on the thread the failure happened on. Errors
+     * other than I/O errors, such as a tree that can't be serialized, are
+     * passed on wrapped in an IOException.
+     */
+    public interface FailureHandler {
+
+        void onFailure(File file, IOException e);
+    }
+
+    private final YAMLProcessor processor;
+    private final ScheduledExecutorService writer;
+    private final Executor capture;
+    private final long delayMillis;
+    private final FailureHandler failureHandler;
+
+    private final AtomicBoolean scheduled = new AtomicBoolean();
+    private final AtomicLong writes = new AtomicLong();
+    private final AtomicLong failures = new AtomicLong();
+
+    // Orders captures, so a stale capture never overwrites a newer one.
+    private final AtomicLong captures = new AtomicLong();
+    private long written;
+
+    public YAMLWriteBehind(YAMLProcessor processor, ScheduledExecutorService writer, Executor capture,
+                           long delayMillis, FailureHandler failureHandler) {
+        this.processor = processor;
+        this.writer = writer;
+        this.capture = capture;
+        this.delayMillis = delayMillis;
+        this.failureHandler = failureHandler;
+    }
+
+    // Schedules a save, unless one is already waiting to run.
+    public void markDirty() {
+        if (!scheduled.compareAndSet(false, true)) {
+            return;
+        }
+
+        writer.schedule(new Runnable() {
+            @Override
+            public void run() {
+                capture.execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        captureAndWrite();
+                    }
+                });
+            }
+        }, delayMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /*
+     * Saves immediately on the calling thread if there are unsaved changes,
+     * for example when the plugin is disabled. Must be called from the
+     * capture thread.
+     */
+    public void flush() {
+        if (!scheduled.compareAndSet(true, false)) {
+            return;
+        }
+
+        final byte[] data;
+        try {
+            data = processor.dump();
+        } catch (IOException e) {
+            fail(e);
+            return;
+        } catch (RuntimeException e) {
+            fail(new IOException("Unable to serialize " + processor.getFile().getName(), e));
+            return;
+        }
+
+        write(captures.incrementAndGet(), data);
+    }
+
+    // Returns the number of completed saves.
+    public long getWriteCount() {
+        return writes.get();
+    }
+
+    // Returns the number of failed saves.
+    public long getFailureCount() {
+        return failures.get();
+    }
+
+    // Returns true if changes are waiting to be saved.
+    public boolean isDirty() {
+        return scheduled.get();
+    }
+
+    private void captureAndWrite() {
+        // Clear before serializing, so changes made after this point
+        // schedule another save instead of being lost.
+        if (!scheduled.compareAndSet(true, false)) {
+            return;
+        }
+
+        final long sequence = captures.incrementAndGet();
+        final byte[] data;
+        try {
+            data = processor.dump();
+        } catch (IOException e) {
+            fail(e);
+            return;
+        } catch (RuntimeException e) {
+            // Such as a value SnakeYAML can't represent.
+            fail(new IOException("Unable to serialize " + processor.getFile().getName(), e));
+            return;
+        }
+
+        writer.execute(new Runnable() {
+            @Override
+            public void run() {
+                write(sequence, data);
+            }
+        });
+    }
+
+    private synchronized void write(long sequence, byte[] data) {
+        if (sequence < written) {
+            return;
+        }
+
+        written = sequence;
+
+        try {
+            processor.write(data);
+            writes.incrementAndGet();
+        } catch (IOException e) {
+            fail(e);
+        } catch (RuntimeException e) {
+            fail(new IOException("Unable to write " + processor.getFile().getName(), e));
+        }
+    }
+
+    private void fail(IOException e) {
+        failures.incrementAndGet();
+
+        if (failureHandler != null) {
+            failureHandler.onFailure(processor.getFile(), e);
+        }
+    }
+}
@@ -0,0 +1,106 @@
+package me.gnat008.MobArenaBuyableClasses.zones;
+
+import me.gnat008.MobArenaBuyableClasses.util.LongObjectMap;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * The zones of one world, bucketed by the 16x16 chunk columns they touch,
+ * so the zones that could hold a block are found with one hash lookup on
+ * the chunk's coordinates. Zones spanning too many chunks to copy into
+ * each are kept apart and included in every chunk's candidates. Immutable.
+ */
+final class ChunkBuckets {
+
+    // Zones touching more chunks than this are checked everywhere.
+    private static final int MAX_CHUNKS_PER_ZONE = 1024;
+
+    private static final PurchaseRegion[] NONE = new PurchaseRegion[0];
+
+    private final LongObjectMap<PurchaseRegion[]> buckets;
+    private final PurchaseRegion[] large;
+
+    private ChunkBuckets(LongObjectMap<PurchaseRegion[]> buckets, PurchaseRegion[] large) {
+        this.buckets = buckets;
+        this.large = large;
+    }
+
+    /**
+     * Buckets the zones among some regions. Signs are ignored.
+     */
+    static ChunkBuckets build(Collection<PurchaseRegion> regions) {
+        LongObjectMap<List<PurchaseRegion>> lists = new LongObjectMap<List<PurchaseRegion>>();
+        final List<PurchaseRegion> large = new ArrayList<PurchaseRegion>();
+
+        for (PurchaseRegion zone : regions) {
+            if (zone.getKind() != PurchaseRegion.Kind.ZONE) {
+                continue;
+            }
+
+            int minX = zone.getMinX() >> 4;
+            int maxX = zone.getMaxX() >> 4;
+            int minZ = zone.getMinZ() >> 4;
+            int maxZ = zone.getMaxZ() >> 4;
+
+            if ((long) (maxX - minX + 1) * (maxZ - minZ + 1) > MAX_CHUNKS_PER_ZONE) {
+                large.add(zone);
+                continue;
+            }
+
+            for (int cx = minX; cx <= maxX; cx++) {
+                for (int cz = minZ; cz <= maxZ; cz++) {
+                    long key = LongObjectMap.key(cx, cz);
+
+                    List<PurchaseRegion> list = lists.get(key);
+                    if (list == null) {
+                        list = new ArrayList<PurchaseRegion>(2);
+                        lists.put(key, list);
+                    }
+
+                    list.add(zone);
+                }
+            }
+        }
+
+        LongObjectMap<PurchaseRegion[]> buckets = lists.mapValues(new Function<List<PurchaseRegion>, PurchaseRegion[]>() {
+            @Override
+            public PurchaseRegion[] apply(List<PurchaseRegion> list) {
+                list.addAll(large);
+                return list.toArray(new PurchaseRegion[list.size()]);
+            }
+        });
+
+        return new ChunkBuckets(buckets, large.isEmpty() ? NONE : large.toArray(new PurchaseRegion[large.size()]));
+    }
+
+    /**
+     * @return The zones that may hold blocks in a chunk column. The array
+     * is shared and must not be modified.
+     */
+    PurchaseRegion[] getCandidates(int chunkX, int chunkZ) {
+        PurchaseRegion[] bucket = buckets.get(LongObjectMap.key(chunkX, chunkZ));
+        return bucket != null ? bucket : large;
+    }
+
+    /**
+     * Picks the zone holding a block from some candidates. Where zones
+     * overlap, the smallest wins, so a zone can be carved out of a bigger
+     * one.
+     *
+     * @return The zone, or null if the block is in none.
+     */
+    static PurchaseRegion findZone(PurchaseRegion[] candidates, int x, int y, int z) {
+        PurchaseRegion best = null;
+
+        for (PurchaseRegion zone : candidates) {
+            if (zone.contains(x, y, z) && (best == null || zone.getVolume() < best.getVolume())) {
+                best = zone;
+            }
+        }
+
+        return best;
+    }
+}
@@ -0,0 +1,304 @@
+package me.gnat008.MobArenaBuyableClasses.zones;
+
+import java.util.Arrays;
+
+/**
+ * A place in a world where a class can be bought: either a sign, clicked
+ * to buy, or a zone, entered to buy. Bounds are block coordinates and
+ * inclusive. Regions are immutable; changing one means replacing it.
+ * <p/>
+ * A zone is a cuboid, or a polygon in X and Z extruded between two
+ * heights. Its corners are held as plain ints and a polygon's vertices as
+ * one flat array of X, Z pairs, so containment tests never allocate.
+ */
+public final class PurchaseRegion {
+
+    public enum Kind {
+        SIGN, ZONE
+    }
+
+    private final String id;
+    private final String world;
+    private final Kind kind;
+    private final String classId;
+
+    private final int minX;
+    private final int minY;
+    private final int minZ;
+    private final int maxX;
+    private final int maxY;
+    private final int maxZ;
+
+    // X, Z pairs of a polygon's vertices, or null for a cuboid.
+    private final int[] polygon;
+    private final long volume;
+
+    private PurchaseRegion(String id, String world, Kind kind, String classId,
+                           int minX, int minY, int minZ, int maxX, int maxY, int maxZ, int[] polygon) {
+        this.id = id;
+        this.world = world;
+        this.kind = kind;
+        this.classId = classId;
+        this.minX = minX;
+        this.minY = minY;
+        this.minZ = minZ;
+        this.maxX = maxX;
+        this.maxY = maxY;
+        this.maxZ = maxZ;
+        this.polygon = polygon;
+
+        long height = maxY - minY + 1;
+        this.volume = polygon != null ? polygonBlocks(polygon) * height
+                : (long) (maxX - minX + 1) * (maxZ - minZ + 1) * height;
+    }
+
+    /**
+     * Creates a purchase sign. Signs are identified by their position.
+     *
+     * @param world   The world's name.
+     * @param x       The sign's block X.
+     * @param y       The sign's block Y.
+     * @param z       The sign's block Z.
+     * @param classId The class it sells.
+     * @return The sign.
+     */
+    public static PurchaseRegion sign(String world, int x, int y, int z, String classId) {
+        return new PurchaseRegion(signId(x, y, z), world, Kind.SIGN, classId, x, y, z, x, y, z, null);
+    }
+
+    /**
+     * Creates a purchase zone between two corners, in any order.
+     *
+     * @param id      The zone's name, unique within its world.
+     * @param world   The world's name.
+     * @param classId The class it sells.
+     * @return The zone.
+     */
+    public static PurchaseRegion zone(String id, String world, String classId,
+                                      int x1, int y1, int z1, int x2, int y2, int z2) {
+        return new PurchaseRegion(id, world, Kind.ZONE, classId,
+                Math.min(x1, x2), Math.min(y1, y2), Math.min(z1, z2),
+                Math.max(x1, x2), Math.max(y1, y2), Math.max(z1, z2), null);
+    }
+
+    /**
+     * Creates a purchase zone shaped as a polygon in X and Z, between two
+     * heights. Blocks on the polygon's edges are inside it.
+     *
+     * @param id      The zone's name, unique within its world.
+     * @param world   The world's name.
+     * @param classId The class it sells.
+     * @param points  The X, Z pairs of the vertices, in order.
+     * @return The zone.
+     * @throws IllegalArgumentException If there are fewer than three
+     *                                  vertices, or a coordinate is missing.
+     */
+    public static PurchaseRegion polygon(String id, String world, String classId, int y1, int y2, int[] points) {
+        if (points.length < 6 || points.length % 2 != 0) {
+            throw new IllegalArgumentException("A polygon needs at least three X, Z pairs");
+        }
+
+        int[] copy = points.clone();
+        int minX = Integer.MAX_VALUE;
+        int minZ = Integer.MAX_VALUE;
+        int maxX = Integer.MIN_VALUE;
+        int maxZ = Integer.MIN_VALUE;
+
+        for (int i = 0; i < copy.length; i += 2) {
+            minX = Math.min(minX, copy[i]);
+            maxX = Math.max(maxX, copy[i]);
+            minZ = Math.min(minZ, copy[i + 1]);
+            maxZ = Math.max(maxZ, copy[i + 1]);
+        }
+
+        return new PurchaseRegion(id, world, Kind.ZONE, classId,
+                minX, Math.min(y1, y2), minZ, maxX, Math.max(y1, y2), maxZ, copy);
+    }
+
+    /**
+     * @return The ID a sign at a position has.
+     */
+    public static String signId(int x, int y, int z) {
+        return x + "," + y + "," + z;
+    }
+
+    /**
+     * @return If the block at a position is part of this region.
+     */
+    public boolean contains(int x, int y, int z) {
+        return x >= minX && x <= maxX && y >= minY && y <= maxY && z >= minZ && z <= maxZ
+                && (polygon == null || polygonContains(x, z));
+    }
+
+    /**
+     * @return The number of blocks in the region.
+     */
+    public long getVolume() {
+        return volume;
+    }
+
+    /**
+     * @return If this is a polygon zone rather than a cuboid.
+     */
+    public boolean isPolygon() {
+        return polygon != null;
+    }
+
+    /**
+     * @return A copy of the X, Z pairs of a polygon's vertices, or null for
+     * a cuboid.
+     */
+    public int[] getPolygon() {
+        return polygon != null ? polygon.clone() : null;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public String getWorld() {
+        return world;
+    }
+
+    public Kind getKind() {
+        return kind;
+    }
+
+    public String getClassId() {
+        return classId;
+    }
+
+    public int getMinX() {
+        return minX;
+    }
+
+    public int getMinY() {
+        return minY;
+    }
+
+    public int getMinZ() {
+        return minZ;
+    }
+
+    public int getMaxX() {
+        return maxX;
+    }
+
+    public int getMaxY() {
+        return maxY;
+    }
+
+    public int getMaxZ() {
+        return maxZ;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        } else if (!(o instanceof PurchaseRegion)) {
+            return false;
+        }
+
+        PurchaseRegion other = (PurchaseRegion) o;
+        return kind == other.kind && id.equals(other.id) && world.equals(other.world) && classId.equals(other.classId)
+                && minX == other.minX && minY == other.minY && minZ == other.minZ
+                && maxX == other.maxX && maxY == other.maxY && maxZ == other.maxZ
+                && Arrays.equals(polygon, other.polygon);
+    }
+
+    @Override
+    public int hashCode() {
+        int hash = id.hashCode();
+        hash = 31 * hash + world.hashCode();
+        hash = 31 * hash + classId.hashCode();
+        hash = 31 * hash + minX;
+        hash = 31 * hash + minY;
+        hash = 31 * hash + minZ;
+        hash = 31 * hash + maxX;
+        hash = 31 * hash + maxY;
+        hash = 31 * hash + maxZ;
+        return 31 * hash + Arrays.hashCode(polygon);
+    }
+
+    @Override
+    public String toString() {
+        return kind.name().toLowerCase() + " " + id + " in " + world + " (" + classId + ")";
+    }
+
+    // The even-odd rule, as WorldEdit's polygonal regions use, so a zone
+    // holds exactly the blocks of the selection it was made from.
+    private boolean polygonContains(int x, int z) {
+        boolean inside = false;
+        int last = polygon.length - 2;
+        int xOld = polygon[last];
+        int zOld = polygon[last + 1];
+
+        for (int i = 0; i < polygon.length; i += 2) {
+            int xNew = polygon[i];
+            int zNew = polygon[i + 1];
+
+            if (xNew == x && zNew == z) {
+                return true;
+            }
+
+            int x1, z1, x2, z2;
+            if (xNew > xOld) {
+                x1 = xOld;
+                z1 = zOld;
+                x2 = xNew;
+                z2 = zNew;
+            } else {
+                x1 = xNew;
+                z1 = zNew;
+                x2 = xOld;
+                z2 = zOld;
+            }
+
+            if (x1 <= x && x <= x2) {
+                long cross = (long) (z - z1) * (x2 - x1) - (long) (z2 - z1) * (x - x1);
+
+                if (cross == 0) {
+                    // On the edge's line; inside if between its ends.
+                    if ((z1 <= z) == (z <= z2)) {
+                        return true;
+                    }
+                } else if (cross < 0 && x1 != x) {
+                    inside = !inside;
+                }
+            }
+
+            xOld = xNew;
+            zOld = zNew;
+        }
+
+        return inside;
+    }
+
+    // The blocks in one layer of a polygon, edges included, by Pick's
+    // theorem: the area plus half the blocks on the edges, plus one. Exact
+    // unless the polygon crosses itself.
+    private static long polygonBlocks(int[] points) {
+        long twiceArea = 0;
+        long edgeBlocks = 0;
+        int last = points.length - 2;
+
+        for (int i = 0; i < points.length; i += 2) {
+            twiceArea += (long) points[last] * points[i + 1] - (long) points[i] * points[last + 1];
+            edgeBlocks += gcd(Math.abs((long) points[i] - points[last]), Math.abs((long) points[i + 1] - points[last + 1]));
+            last = i;
+        }
+
+        return Math.max(1, (Math.abs(twiceArea) + edgeBlocks) / 2 + 1);
+    }
+
+    private static long gcd(long a, long b) {
+        while (b != 0) {
+            long t = a % b;
+            a = b;
+            b = t;
+        }
+
+        return a;
+    }
+}
@@ -0,0 +1,80 @@
+package me.gnat008.MobArenaBuyableClasses.zones;
+
+import com.sk89q.worldedit.BlockVector2D;
+import com.sk89q.worldedit.bukkit.WorldEditPlugin;
+import com.sk89q.worldedit.bukkit.selections.CuboidSelection;
+import com.sk89q.worldedit.bukkit.selections.Polygonal2DSelection;
+import com.sk89q.worldedit.bukkit.selections.Selection;
+import me.gnat008.MobArenaBuyableClasses.exceptions.SelectionImportException;
+import org.bukkit.Location;
+import org.bukkit.entity.Player;
+import org.bukkit.plugin.Plugin;
+
+import java.util.List;
+
+/**
+ * Turns a player's WorldEdit selection into a purchase zone. Cuboid and
+ * polygon selections are supported; other shapes are refused rather than
+ * approximated by their bounding box.
+ */
+public final class SelectionImporter {
+
+    private final WorldEditPlugin worldEdit;
+
+    private SelectionImporter(WorldEditPlugin worldEdit) {
+        this.worldEdit = worldEdit;
+    }
+
+    /**
+     * @param plugin The plugin registered as WorldEdit, or null.
+     * @return An importer, or null if WorldEdit is not installed.
+     */
+    public static SelectionImporter create(Plugin plugin) {
+        if (!(plugin instanceof WorldEditPlugin)) {
+            return null;
+        }
+
+        return new SelectionImporter((WorldEditPlugin) plugin);
+    }
+
+    /**
+     * Creates a zone from a player's current selection.
+     *
+     * @param player  The player.
+     * @param id      The zone's name.
+     * @param classId The class it sells.
+     * @return The zone.
+     * @throws SelectionImportException If the player has no selection, or
+     *                                  it is of an unsupported shape.
+     */
+    public PurchaseRegion importSelection(Player player, String id, String classId) throws SelectionImportException {
+        Selection selection = worldEdit.getSelection(player);
+        if (selection == null) {
+            throw new SelectionImportException("Make a WorldEdit selection first.");
+        }
+
+        String world = selection.getWorld().getName();
+        Location min = selection.getMinimumPoint();
+        Location max = selection.getMaximumPoint();
+
+        if (selection instanceof CuboidSelection) {
+            return PurchaseRegion.zone(id, world, classId, min.getBlockX(), min.getBlockY(), min.getBlockZ(),
+                    max.getBlockX(), max.getBlockY(), max.getBlockZ());
+        } else if (selection instanceof Polygonal2DSelection) {
+            List<BlockVector2D> vertices = ((Polygonal2DSelection) selection).getNativePoints();
+            if (vertices.size() < 3) {
+                throw new SelectionImportException("A polygon selection needs at least three points.");
+            }
+
+            int[] points = new int[vertices.size() * 2];
+            for (int i = 0; i < vertices.size(); i++) {
+                points[i * 2] = vertices.get(i).getBlockX();
+                points[i * 2 + 1] = vertices.get(i).getBlockZ();
+            }
+
+            return PurchaseRegion.polygon(id, world, classId, min.getBlockY(), max.getBlockY(), points);
+        }
+
+        throw new SelectionImportException("Only cuboid and polygon selections can be made into zones.");
+    }
+}
@@ -0,0 +1,80 @@
+package me.gnat008.MobArenaBuyableClasses.zones;
+
+import java.util.*;
+
+/**
+ * The regions of one world, immutable, by kind and ID. Zones are also
+ * bucketed by chunk for the point lookups made on every player move; the
+ * buckets are built on first use.
+ */
+final class WorldRegions {
+
+    static final WorldRegions EMPTY = build(Collections.<PurchaseRegion>emptyList());
+
+    private final Map<String, PurchaseRegion> regions;
+
+    // Racy but idempotent: at worst two threads both build them.
+    private volatile ChunkBuckets buckets;
+
+    private WorldRegions(Map<String, PurchaseRegion> regions) {
+        this.regions = regions;
+    }
+
+    static WorldRegions build(Collection<PurchaseRegion> regions) {
+        Map<String, PurchaseRegion> byId = new HashMap<String, PurchaseRegion>();
+        for (PurchaseRegion region : regions) {
+            byId.put(key(region.getKind(), region.getId()), region);
+        }
+
+        return new WorldRegions(byId);
+    }
+
+    /**
+     * @return A copy with a region added, replacing any of the same kind
+     * and ID.
+     */
+    WorldRegions with(PurchaseRegion region) {
+        Map<String, PurchaseRegion> regions = new HashMap<String, PurchaseRegion>(this.regions);
+        regions.put(key(region.getKind(), region.getId()), region);
+        return new WorldRegions(regions);
+    }
+
+    /**
+     * @return A copy without a region, or this if there is no such region.
+     */
+    WorldRegions without(PurchaseRegion.Kind kind, String id) {
+        if (!regions.containsKey(key(kind, id))) {
+            return this;
+        }
+
+        Map<String, PurchaseRegion> regions = new HashMap<String, PurchaseRegion>(this.regions);
+        regions.remove(key(kind, id));
+        return new WorldRegions(regions);
+    }
+
+    PurchaseRegion get(PurchaseRegion.Kind kind, String id) {
+        return regions.get(key(kind, id));
+    }
+
+    Collection<PurchaseRegion> getRegions() {
+        return Collections.unmodifiableCollection(regions.values());
+    }
+
+    int size() {
+        return regions.size();
+    }
+
+    ChunkBuckets getBuckets() {
+        ChunkBuckets buckets = this.buckets;
+        if (buckets == null) {
+            buckets = ChunkBuckets.build(regions.values());
+            this.buckets = buckets;
+        }
+
+        return buckets;
+    }
+
+    private static String key(PurchaseRegion.Kind kind, String id) {
+        return kind == PurchaseRegion.Kind.SIGN ? "sign:" + id : "zone:" + id;
+    }
+}
@@ -0,0 +1,200 @@
+package me.gnat008.MobArenaBuyableClasses.zones;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Finds the purchase signs and zones at a block. Signs are looked up by
+ * their block; zones go through per-world chunk buckets, so a lookup costs
+ * one hash lookup and a scan of the few zones in that chunk instead of a
+ * scan of every region. Each world's regions are replaced as a whole on
+ * change, so lookups never see a half-made change and may run on any
+ * thread; changes should come from one thread.
+ */
+public class ZoneIndex {
+
+    private static final PurchaseRegion[] NO_ZONES = new PurchaseRegion[0];
+
+    private final ConcurrentMap<String, WorldRegions> worlds = new ConcurrentHashMap<String, WorldRegions>();
+
+    // Bumped on every change; only the changing thread writes it.
+    private volatile int version;
+
+    /**
+     * Replaces every region, rebuilding the index of each world.
+     *
+     * @param regions The regions.
+     */
+    public void load(Collection<PurchaseRegion> regions) {
+        Map<String, List<PurchaseRegion>> byWorld = groupByWorld(regions);
+
+        for (Map.Entry<String, List<PurchaseRegion>> entry : byWorld.entrySet()) {
+            worlds.put(entry.getKey(), WorldRegions.build(entry.getValue()));
+        }
+
+        worlds.keySet().retainAll(byWorld.keySet());
+        version++;
+    }
+
+    /**
+     * Replaces the regions of the worlds whose regions differ from those
+     * given, leaving the index of every other world as it is.
+     *
+     * @param regions The regions of every world.
+     * @return The names of the worlds that were rebuilt.
+     */
+    public Set<String> update(Collection<PurchaseRegion> regions) {
+        Map<String, List<PurchaseRegion>> byWorld = groupByWorld(regions);
+        Set<String> changed = new HashSet<String>();
+
+        for (Map.Entry<String, List<PurchaseRegion>> entry : byWorld.entrySet()) {
+            WorldRegions current = worlds.get(entry.getKey());
+            if (current == null || !sameRegions(current.getRegions(), entry.getValue())) {
+                worlds.put(entry.getKey(), WorldRegions.build(entry.getValue()));
+                changed.add(entry.getKey());
+            }
+        }
+
+        for (String world : new ArrayList<String>(worlds.keySet())) {
+            if (!byWorld.containsKey(world)) {
+                worlds.remove(world);
+                changed.add(world);
+            }
+        }
+
+        if (!changed.isEmpty()) {
+            version++;
+        }
+
+        return changed;
+    }
+
+    /**
+     * Adds a region, replacing any of the same kind and ID in its world.
+     *
+     * @param region The region.
+     */
+    public void add(PurchaseRegion region) {
+        WorldRegions current = worlds.get(region.getWorld());
+        worlds.put(region.getWorld(), (current != null ? current : WorldRegions.EMPTY).with(region));
+        version++;
+    }
+
+    /**
+     * Removes a region.
+     *
+     * @return The region removed, or null if there was none.
+     */
+    public PurchaseRegion remove(String world, PurchaseRegion.Kind kind, String id) {
+        WorldRegions current = worlds.get(world);
+        PurchaseRegion region = current != null ? current.get(kind, id) : null;
+
+        if (region != null) {
+            worlds.put(world, current.without(kind, id));
+            version++;
+        }
+
+        return region;
+    }
+
+    /**
+     * @return The sign at a block, or null.
+     */
+    public PurchaseRegion getSignAt(String world, int x, int y, int z) {
+        WorldRegions regions = worlds.get(world);
+        return regions != null ? regions.get(PurchaseRegion.Kind.SIGN, PurchaseRegion.signId(x, y, z)) : null;
+    }
+
+    /**
+     * Finds the zone a block is in. Where zones overlap, the smallest wins,
+     * so a zone can be carved out of a bigger one.
+     *
+     * @return The zone, or null if the block is in none.
+     */
+    public PurchaseRegion getZoneAt(String world, int x, int y, int z) {
+        WorldRegions regions = worlds.get(world);
+        if (regions == null) {
+            return null;
+        }
+
+        return ChunkBuckets.findZone(regions.getBuckets().getCandidates(x >> 4, z >> 4), x, y, z);
+    }
+
+    /**
+     * @return The zones that may hold blocks in a chunk column of a world.
+     * The array is shared and must not be modified.
+     */
+    PurchaseRegion[] getZoneCandidates(String world, int chunkX, int chunkZ) {
+        WorldRegions regions = worlds.get(world);
+        return regions != null ? regions.getBuckets().getCandidates(chunkX, chunkZ) : NO_ZONES;
+    }
+
+    /**
+     * @return A number that changes whenever a region is added, removed or
+     * reloaded, so callers caching lookups know to redo them.
+     */
+    public int getVersion() {
+        return version;
+    }
+
+    /**
+     * Adds every zone a block is in to a list.
+     */
+    public void getZonesAt(String world, int x, int y, int z, List<PurchaseRegion> out) {
+        for (PurchaseRegion zone : getZoneCandidates(world, x >> 4, z >> 4)) {
+            if (zone.contains(x, y, z)) {
+                out.add(zone);
+            }
+        }
+    }
+
+    public PurchaseRegion get(String world, PurchaseRegion.Kind kind, String id) {
+        WorldRegions regions = worlds.get(world);
+        return regions != null ? regions.get(kind, id) : null;
+    }
+
+    /**
+     * @return Every region, across worlds.
+     */
+    public List<PurchaseRegion> getRegions() {
+        List<PurchaseRegion> all = new ArrayList<PurchaseRegion>();
+        for (WorldRegions regions : worlds.values()) {
+            all.addAll(regions.getRegions());
+        }
+
+        return all;
+    }
+
+    /**
+     * @return The number of regions, across worlds.
+     */
+    public int size() {
+        int size = 0;
+        for (WorldRegions regions : worlds.values()) {
+            size += regions.size();
+        }
+
+        return size;
+    }
+
+    private static Map<String, List<PurchaseRegion>> groupByWorld(Collection<PurchaseRegion> regions) {
+        Map<String, List<PurchaseRegion>> byWorld = new HashMap<String, List<PurchaseRegion>>();
+
+        for (PurchaseRegion region : regions) {
+            List<PurchaseRegion> list = byWorld.get(region.getWorld());
+            if (list == null) {
+                list = new ArrayList<PurchaseRegion>();
+                byWorld.put(region.getWorld(), list);
+            }
+
+            list.add(region);
+        }
+
+        return byWorld;
+    }
+
+    private static boolean sameRegions(Collection<PurchaseRegion> current, List<PurchaseRegion> regions) {
+        return current.size() == regions.size() && new HashSet<PurchaseRegion>(current).equals(new HashSet<PurchaseRegion>(regions));
+    }
+}
@@ -0,0 +1,396 @@
+package me.gnat008.MobArenaBuyableClasses.zones;
+
+import me.gnat008.MobArenaBuyableClasses.MABuyableClasses;
+import me.gnat008.MobArenaBuyableClasses.config.ConfigurationWatcher;
+import me.gnat008.MobArenaBuyableClasses.exceptions.YAMLProcessorException;
+import me.gnat008.MobArenaBuyableClasses.logging.Log;
+import me.gnat008.MobArenaBuyableClasses.logging.Logs;
+import me.gnat008.MobArenaBuyableClasses.util.YAMLFormat;
+import me.gnat008.MobArenaBuyableClasses.util.YAMLNode;
+import me.gnat008.MobArenaBuyableClasses.util.YAMLProcessor;
+import me.gnat008.MobArenaBuyableClasses.util.YAMLWriteBehind;
+import org.yaml.snakeyaml.error.YAMLException;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.*;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Loads the purchase signs and zones from zones.yml into a
+ * {@link ZoneIndex}, reloads them when the file is edited, and saves
+ * changes made in game in the background.
+ * <p/>
+ * The file looks like:
+ * <pre>
+ * signs:
+ * - {world: arena, x: 10, y: 65, z: -4, class: knight}
+ * zones:
+ *     knight-lobby:
+ *         world: arena
+ *         class: knight
+ *         min: [0, 60, 0]
+ *         max: [8, 64, 8]
+ *     archer-lobby:
+ *         world: arena
+ *         class: archer
+ *         min: [20, 60, 0]
+ *         max: [30, 64, 12]
+ *         points: [20, 0, 30, 0, 25, 12]
+ * </pre>
+ * A zone with points is a polygon of those X, Z pairs, between the heights
+ * of its min and max; its other coordinates are only its bounding box.
+ * Coordinates are kept as flat lists of numbers, written on one line each,
+ * rather than a map per corner or vertex.
+ * <p/>
+ * Everything but reading the file happens on the main thread.
+ */
+public class ZoneManager {
+
+    private static final Log log = Logs.get("zones");
+
+    private static final String FILE = "zones.yml";
+    private static final long SAVE_DELAY_MILLIS = 1000;
+
+    private final MABuyableClasses plugin;
+    private final ZoneIndex index = new ZoneIndex();
+
+    private final YAMLProcessor zones;
+    private final ScheduledExecutorService writer;
+    private final YAMLWriteBehind writeBehind;
+
+    // Set while zones.yml exists but could not be read. Changes made in
+    // game are refused and nothing is saved until a reload succeeds, so the
+    // admin's file is never overwritten with an empty tree. Main thread only.
+    private boolean unreadable;
+
+    public ZoneManager(final MABuyableClasses plugin) {
+        this.plugin = plugin;
+        this.zones = newProcessor();
+
+        this.writer = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable r) {
+                Thread thread = new Thread(r, "MABuyableClasses-Zones-Writer");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+
+        this.writeBehind = new YAMLWriteBehind(zones, writer, new Executor() {
+            @Override
+            public void execute(Runnable task) {
+                try {
+                    plugin.getServer().getScheduler().runTask(plugin, task);
+                } catch (RuntimeException e) {
+                    // Disabled; close() saves instead.
+                }
+            }
+        }, SAVE_DELAY_MILLIS, new YAMLWriteBehind.FailureHandler() {
+            @Override
+            public void onFailure(File file, IOException e) {
+                log.warn("Unable to save {}: {}", file.getName(), e.getMessage());
+            }
+        });
+    }
+
+    /**
+     * Loads the file and fills the index. Used on startup.
+     */
+    public void load() {
+        if (zones.getFile().exists()) {
+            try {
+                zones.replaceRoot(zones.parse(zones.readBytes()));
+            } catch (IOException e) {
+                unreadable = true;
+                log.warn("Unable to load {}, no signs or zones will work until it is fixed: {}", FILE, e.getMessage());
+            } catch (YAMLProcessorException e) {
+                unreadable = true;
+                log.warn("Unable to load {}, no signs or zones will work until it is fixed: {}", FILE, e.getMessage());
+            } catch (YAMLException e) {
+                unreadable = true;
+                log.warn("Unable to parse {}, no signs or zones will work until it is fixed: {}", FILE, e.getMessage());
+            }
+        }
+
+        List<PurchaseRegion> regions = readRegions(zones);
+        index.load(regions);
+        log.info("Loaded {} purchase signs and zones.", regions.size());
+    }
+
+    /**
+     * Reloads the regions whenever the watcher sees zones.yml change. The
+     * file is parsed off the main thread, and only the worlds whose regions
+     * changed are re-indexed.
+     *
+     * @param watcher The watcher of the plugin data folder.
+     */
+    public void watch(ConfigurationWatcher watcher) {
+        watcher.watch(FILE, new Runnable() {
+            @Override
+            public void run() {
+                reload();
+            }
+        });
+    }
+
+    // Runs on the watcher thread.
+    private void reload() {
+        YAMLProcessor processor = newProcessor();
+        final Map<String, Object> tree;
+
+        try {
+            tree = processor.parse(processor.readBytes());
+        } catch (IOException e) {
+            log.warn("Unable to reload {}, keeping the current zones: {}", FILE, e.getMessage());
+            return;
+        } catch (YAMLProcessorException e) {
+            log.warn("Unable to reload {}, keeping the current zones: {}", FILE, e.getMessage());
+            return;
+        } catch (YAMLException e) {
+            log.warn("Unable to reload {}, keeping the current zones: {}", FILE, e.getMessage());
+            return;
+        }
+
+        processor.replaceRoot(tree);
+        final List<PurchaseRegion> regions = readRegions(processor);
+
+        plugin.getServer().getScheduler().runTask(plugin, new Runnable() {
+            @Override
+            public void run() {
+                // Changes made in game are about to overwrite the file, and
+                // are then read back in.
+                if (writeBehind.isDirty()) {
+                    log.warn("Discarded an edit of {}: changes made in game are about to be saved over it.", FILE);
+                    return;
+                }
+
+                if (unreadable) {
+                    unreadable = false;
+                    log.info("{} can be read again; signs and zones can be edited in game.", FILE);
+                }
+
+                zones.replaceRoot(tree);
+                Set<String> changed = index.update(regions);
+                if (!changed.isEmpty()) {
+                    log.info("Reloaded {}; re-indexed worlds {}", FILE, changed);
+                }
+            }
+        });
+    }
+
+    /**
+     * Adds a purchase sign, replacing any sign at the same block.
+     *
+     * @throws IllegalStateException If zones.yml could not be read.
+     */
+    public void addSign(PurchaseRegion sign) {
+        checkEditable();
+        removeSignEntry(sign.getWorld(), sign.getMinX(), sign.getMinY(), sign.getMinZ());
+
+        Map<String, Object> entry = new LinkedHashMap<String, Object>();
+        entry.put("world", sign.getWorld());
+        entry.put("x", sign.getMinX());
+        entry.put("y", sign.getMinY());
+        entry.put("z", sign.getMinZ());
+        entry.put("class", sign.getClassId());
+
+        List<Object> signs = getSignList();
+        signs.add(entry);
+        zones.setProperty("signs", signs);
+
+        index.add(sign);
+        writeBehind.markDirty();
+    }
+
+    /**
+     * Removes the purchase sign at a block.
+     *
+     * @return If there was one.
+     * @throws IllegalStateException If zones.yml could not be read.
+     */
+    public boolean removeSign(String world, int x, int y, int z) {
+        checkEditable();
+        removeSignEntry(world, x, y, z);
+        writeBehind.markDirty();
+        return index.remove(world, PurchaseRegion.Kind.SIGN, PurchaseRegion.signId(x, y, z)) != null;
+    }
+
+    /**
+     * Adds a purchase zone, replacing any zone of the same name.
+     *
+     * @throws IllegalArgumentException If the zone's name has a dot in it.
+     * @throws IllegalStateException If zones.yml could not be read.
+     */
+    public void addZone(PurchaseRegion zone) {
+        checkEditable();
+
+        if (zone.getId().indexOf('.') >= 0) {
+            throw new IllegalArgumentException("Zone names cannot contain '.'");
+        }
+
+        removeZone(zone.getId());
+
+        Map<String, Object> entry = new LinkedHashMap<String, Object>();
+        entry.put("world", zone.getWorld());
+        entry.put("class", zone.getClassId());
+        entry.put("min", Arrays.<Object>asList(zone.getMinX(), zone.getMinY(), zone.getMinZ()));
+        entry.put("max", Arrays.<Object>asList(zone.getMaxX(), zone.getMaxY(), zone.getMaxZ()));
+
+        if (zone.isPolygon()) {
+            List<Object> points = new ArrayList<Object>();
+            for (int coordinate : zone.getPolygon()) {
+                points.add(coordinate);
+            }
+
+            entry.put("points", points);
+        }
+
+        zones.setProperty("zones." + zone.getId(), entry);
+
+        index.add(zone);
+        writeBehind.markDirty();
+    }
+
+    /**
+     * Removes a purchase zone.
+     *
+     * @return If there was one.
+     * @throws IllegalStateException If zones.yml could not be read.
+     */
+    public boolean removeZone(String id) {
+        checkEditable();
+
+        String world = zones.getString("zones." + id + ".world");
+        if (world == null) {
+            return false;
+        }
+
+        zones.removeProperty("zones." + id);
+        writeBehind.markDirty();
+        return index.remove(world, PurchaseRegion.Kind.ZONE, id) != null;
+    }
+
+    /**
+     * Saves any unsaved changes and stops the writer. Call on the main
+     * thread when the plugin is disabled.
+     */
+    public void close() {
+        if (!unreadable) {
+            writeBehind.flush();
+        }
+
+        writer.shutdown();
+    }
+
+    /**
+     * @return False while zones.yml could not be read, when signs and zones
+     * can't be changed in game.
+     */
+    public boolean isEditable() {
+        return !unreadable;
+    }
+
+    public ZoneIndex getIndex() {
+        return index;
+    }
+
+    private void checkEditable() {
+        if (unreadable) {
+            throw new IllegalStateException(FILE + " could not be read; fix it before changing signs or zones in game");
+        }
+    }
+
+    private void removeSignEntry(String world, int x, int y, int z) {
+        List<Object> signs = getSignList();
+
+        for (Iterator<Object> it = signs.iterator(); it.hasNext(); ) {
+            Object o = it.next();
+            if (!(o instanceof Map)) {
+                continue;
+            }
+
+            Map<?, ?> entry = (Map<?, ?>) o;
+            if (world.equals(String.valueOf(entry.get("world"))) && isNumber(entry.get("x"), x)
+                    && isNumber(entry.get("y"), y) && isNumber(entry.get("z"), z)) {
+                it.remove();
+            }
+        }
+
+        zones.setProperty("signs", signs);
+    }
+
+    private List<Object> getSignList() {
+        List<Object> signs = zones.getList("signs");
+        return signs != null ? signs : new ArrayList<Object>();
+    }
+
+    private static boolean isNumber(Object o, int value) {
+        return o instanceof Number && ((Number) o).intValue() == value;
+    }
+
+    // Reads every valid region from a tree, logging and skipping the rest.
+    private static List<PurchaseRegion> readRegions(YAMLNode root) {
+        List<PurchaseRegion> regions = new ArrayList<PurchaseRegion>();
+
+        int position = 0;
+        for (YAMLNode sign : root.getNodeList("signs", null)) {
+            position++;
+
+            String world = sign.getString("world");
+            String classId = sign.getString("class");
+            Integer x = sign.getInt("x");
+            Integer y = sign.getInt("y");
+            Integer z = sign.getInt("z");
+
+            if (world == null || classId == null || x == null || y == null || z == null) {
+                log.warn("Skipping sign {} in {}: it needs a world, x, y, z and class.", position, FILE);
+                continue;
+            }
+
+            regions.add(PurchaseRegion.sign(world, x, y, z, classId));
+        }
+
+        Map<String, YAMLNode> zones = root.getNodes("zones");
+        if (zones != null) {
+            for (Map.Entry<String, YAMLNode> entry : zones.entrySet()) {
+                YAMLNode zone = entry.getValue();
+
+                String world = zone.getString("world");
+                String classId = zone.getString("class");
+                int[] min = zone.getIntArray("min");
+                int[] max = zone.getIntArray("max");
+
+                if (world == null || classId == null || min.length != 3 || max.length != 3) {
+                    log.warn("Skipping zone '{}' in {}: it needs a world, class, and min and max of [x, y, z].",
+                            entry.getKey(), FILE);
+                    continue;
+                }
+
+                if (!zone.getMap().containsKey("points")) {
+                    regions.add(PurchaseRegion.zone(entry.getKey(), world, classId,
+                            min[0], min[1], min[2], max[0], max[1], max[2]));
+                    continue;
+                }
+
+                try {
+                    regions.add(PurchaseRegion.polygon(entry.getKey(), world, classId,
+                            min[1], max[1], zone.getIntArray("points")));
+                } catch (IllegalArgumentException e) {
+                    log.warn("Skipping zone '{}' in {}: {}.", entry.getKey(), FILE, e.getMessage());
+                }
+            }
+        }
+
+        return regions;
+    }
+
+    private YAMLProcessor newProcessor() {
+        YAMLProcessor processor = new YAMLProcessor(new File(plugin.getDataFolder(), FILE), false, YAMLFormat.COMPACT);
+        processor.setLazyViews(true);
+        return processor;
+    }
+}
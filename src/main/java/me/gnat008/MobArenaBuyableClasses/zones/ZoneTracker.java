@@ -0,0 +1,144 @@
+package me.gnat008.MobArenaBuyableClasses.zones;
+
+import me.gnat008.MobArenaBuyableClasses.metrics.Counter;
+import me.gnat008.MobArenaBuyableClasses.metrics.MetricsRegistry;
+import org.bukkit.Location;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Tracks which purchase zone each player is in as they move. Move events
+ * arrive many times a tick per player, so the work per event is kept
+ * constant and small:
+ * <ul>
+ * <li>moves within one block (turning, small steps) are skipped;</li>
+ * <li>each player keeps the candidate zones of the chunk they are in, so
+ * moves within a chunk never touch the index;</li>
+ * <li>crossing into a new chunk costs one lookup in the index's chunk
+ * buckets.</li>
+ * </ul>
+ * Main thread only.
+ */
+public class ZoneTracker {
+
+    private final ZoneIndex index;
+    private final Map<UUID, Position> players = new HashMap<UUID, Position>();
+
+    private final Counter skipped;
+    private final Counter cached;
+    private final Counter lookups;
+    private final Counter entries;
+    private final Counter exits;
+
+    public ZoneTracker(ZoneIndex index, MetricsRegistry metrics) {
+        this.index = index;
+
+        String help = "Player moves seen by the zone tracker, by how they were handled.";
+        this.skipped = metrics.counter("mabc_zone_moves_total", help, "outcome", "skipped");
+        this.cached = metrics.counter("mabc_zone_moves_total", help, "outcome", "cached");
+        this.lookups = metrics.counter("mabc_zone_moves_total", help, "outcome", "lookup");
+
+        help = "Players entering and leaving purchase zones.";
+        this.entries = metrics.counter("mabc_zone_transitions_total", help, "direction", "enter");
+        this.exits = metrics.counter("mabc_zone_transitions_total", help, "direction", "exit");
+    }
+
+    /**
+     * Updates a player's zone after a move or teleport.
+     *
+     * @param player The player's ID.
+     * @param from   Where they moved from.
+     * @param to     Where they moved to.
+     * @return The zone they entered, or null if they are still in the same
+     * zone, or in none.
+     */
+    public PurchaseRegion move(UUID player, Location from, Location to) {
+        int x = to.getBlockX();
+        int y = to.getBlockY();
+        int z = to.getBlockZ();
+
+        if (x == from.getBlockX() && y == from.getBlockY() && z == from.getBlockZ() && to.getWorld() == from.getWorld()) {
+            skipped.increment();
+            return null;
+        }
+
+        Position position = players.get(player);
+        if (position == null) {
+            position = new Position();
+            players.put(player, position);
+        }
+
+        String world = to.getWorld().getName();
+        int chunkX = x >> 4;
+        int chunkZ = z >> 4;
+        int version = index.getVersion();
+
+        if (position.candidates != null && position.chunkX == chunkX && position.chunkZ == chunkZ
+                && position.version == version && world.equals(position.world)) {
+            cached.increment();
+        } else {
+            lookups.increment();
+            position.world = world;
+            position.chunkX = chunkX;
+            position.chunkZ = chunkZ;
+            position.version = version;
+            position.candidates = index.getZoneCandidates(world, chunkX, chunkZ);
+        }
+
+        // Most chunks have no zones at all.
+        PurchaseRegion zone = position.candidates.length == 0 ? null
+                : ChunkBuckets.findZone(position.candidates, x, y, z);
+        PurchaseRegion previous = position.zone;
+
+        if (zone == previous || (zone != null && zone.equals(previous))) {
+            return null;
+        }
+
+        position.zone = zone;
+
+        if (previous != null) {
+            exits.increment();
+        }
+
+        if (zone != null) {
+            entries.increment();
+        }
+
+        return zone;
+    }
+
+    /**
+     * @return The zone a player was last seen in, or null.
+     */
+    public PurchaseRegion getZone(UUID player) {
+        Position position = players.get(player);
+        return position != null ? position.zone : null;
+    }
+
+    /**
+     * Forgets a player, for example when they leave.
+     */
+    public void remove(UUID player) {
+        players.remove(player);
+    }
+
+    /**
+     * @return The number of players being tracked.
+     */
+    public int size() {
+        return players.size();
+    }
+
+    // A player's last zone and the zones of the chunk they are in.
+    private static final class Position {
+
+        private String world;
+        private int chunkX;
+        private int chunkZ;
+        private int version;
+        private PurchaseRegion[] candidates;
+        private PurchaseRegion zone;
+    }
+}
@@ -0,0 +1,121 @@
+package me.gnat008.MobArenaBuyableClasses.purchase;
+
+import me.gnat008.MobArenaBuyableClasses.economy.FakeEconomyBackend;
+import me.gnat008.MobArenaBuyableClasses.ownership.NoOpOwnershipBackend;
+import me.gnat008.MobArenaBuyableClasses.ownership.OwnershipStore;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.*;
+import java.util.concurrent.*;
+
+import static org.junit.Assert.*;
+
+/**
+ * Runs purchases from many threads at once. Every purchase is attempted
+ * twice, by different threads, and balances are too low to buy every
+ * class, so both double spends and overdrafts would show up in the
+ * balances left afterwards.
+ */
+public class PurchaseProcessorTest {
+
+    private static final int THREADS = 8;
+    private static final int PLAYERS = 50;
+    private static final int CLASSES = 40;
+    private static final long STARTING_BALANCE = 100;
+
+    private UUID[] players;
+    private OwnershipStore ownership;
+    private FakeEconomyBackend economy;
+    private PurchaseProcessor processor;
+    private ExecutorService executor;
+
+    @Before
+    public void setUp() {
+        players = new UUID[PLAYERS];
+        ownership = new OwnershipStore(new NoOpOwnershipBackend());
+        economy = new FakeEconomyBackend(STARTING_BALANCE, 0);
+        processor = new PurchaseProcessor(ownership, economy);
+        executor = Executors.newFixedThreadPool(THREADS);
+
+        for (int i = 0; i < PLAYERS; i++) {
+            players[i] = UUID.randomUUID();
+            ownership.load(players[i]).join();
+        }
+    }
+
+    @After
+    public void tearDown() {
+        executor.shutdownNow();
+        ownership.close();
+    }
+
+    @Test
+    public void concurrentPurchasesKeepBalancesConsistent() throws Exception {
+        final CountDownLatch start = new CountDownLatch(1);
+        List<Future<Map<PurchaseResult, Integer>>> results = new ArrayList<Future<Map<PurchaseResult, Integer>>>();
+
+        for (int t = 0; t < THREADS; t++) {
+            // Pairs of threads walk the same purchases, in opposite orders
+            // of players so they also meet in the middle.
+            final boolean reversed = t % 2 == 1;
+            results.add(executor.submit(new Callable<Map<PurchaseResult, Integer>>() {
+                @Override
+                public Map<PurchaseResult, Integer> call() throws Exception {
+                    Map<PurchaseResult, Integer> counts = new EnumMap<PurchaseResult, Integer>(PurchaseResult.class);
+                    start.await();
+
+                    for (int c = 0; c < CLASSES; c++) {
+                        for (int p = 0; p < PLAYERS; p++) {
+                            UUID player = players[reversed ? PLAYERS - 1 - p : p];
+                            PurchaseResult result = processor.purchase(player, "class" + c, priceOf(c));
+
+                            Integer count = counts.get(result);
+                            counts.put(result, count != null ? count + 1 : 1);
+                        }
+                    }
+
+                    return counts;
+                }
+            }));
+        }
+
+        start.countDown();
+
+        long successes = 0;
+        for (Future<Map<PurchaseResult, Integer>> future : results) {
+            Map<PurchaseResult, Integer> counts = future.get(30, TimeUnit.SECONDS);
+            for (Map.Entry<PurchaseResult, Integer> entry : counts.entrySet()) {
+                PurchaseResult result = entry.getKey();
+                assertTrue("Unexpected result " + result, result == PurchaseResult.SUCCESS
+                        || result == PurchaseResult.ALREADY_OWNED || result == PurchaseResult.INSUFFICIENT_FUNDS);
+
+                if (result == PurchaseResult.SUCCESS) {
+                    successes += entry.getValue();
+                }
+            }
+        }
+
+        long owned = 0;
+        for (UUID player : players) {
+            long spent = 0;
+            for (String classId : ownership.getOwned(player)) {
+                spent += priceOf(Integer.parseInt(classId.substring("class".length())));
+                owned++;
+            }
+
+            long balance = (long) economy.getBalance(player);
+            assertTrue("Negative balance for " + player + ": " + balance, balance >= 0);
+            assertEquals("Balance of " + player, STARTING_BALANCE - spent, balance);
+        }
+
+        assertEquals(owned, successes);
+        assertEquals(owned, processor.getPurchaseCount());
+        assertEquals((long) THREADS * PLAYERS * CLASSES - owned, processor.getRejectionCount());
+    }
+
+    private static long priceOf(int clazz) {
+        return 1 + clazz % 10;
+    }
+}